@@ -1,8 +1,13 @@
 package com.smartrecipe;
 
 import com.smartrecipe.crafting.AutoCraftExecutor;
+import com.smartrecipe.crafting.CraftRateController;
+import com.smartrecipe.recipe.CraftabilityTracker;
+import com.smartrecipe.recipe.InventoryMirror;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,6 +19,21 @@ public class SmartRecipeBookMod implements ClientModInitializer {
 	public void onInitializeClient() {
 		LOGGER.info("Smart Recipe Book initialized");
 
+		SmartRecipeConfig.load();
+
+		// Craft rates learned per server carry over between sessions
+		CraftRateController.load(SmartRecipeConfig.getFile("-rates"));
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) ->
+			CraftRateController.save(SmartRecipeConfig.getFile("-rates")));
+		ClientLifecycleEvents.CLIENT_STOPPING.register(client ->
+			CraftRateController.save(SmartRecipeConfig.getFile("-rates")));
+
+		// Reconcile the inventory mirror with changes made outside the packet hooks
+		ClientTickEvents.END_CLIENT_TICK.register(InventoryMirror::onClientTick);
+
+		// Re-evaluate craftability answers invalidated by inventory changes
+		ClientTickEvents.END_CLIENT_TICK.register(CraftabilityTracker::onClientTick);
+
 		// Register tick event for auto-craft execution
 		ClientTickEvents.END_CLIENT_TICK.register(AutoCraftExecutor::onClientTick);
 	}
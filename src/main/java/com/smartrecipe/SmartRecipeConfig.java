@@ -0,0 +1,120 @@
+package com.smartrecipe;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.smartrecipe.crafting.AutoCraftExecutor;
+import com.smartrecipe.crafting.CraftRateController;
+import com.smartrecipe.crafting.PlacementBackend;
+import com.smartrecipe.recipe.PlanChoiceMemory;
+
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * User settings, read from config/smart-recipe-book.json and applied to the
+ * crafting code at startup. The file is written back with every setting, so
+ * new ones show up with their defaults. Values out of range are clamped when
+ * they are applied.
+ */
+public class SmartRecipeConfig {
+
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	private static SmartRecipeConfig current = new SmartRecipeConfig();
+
+	// Most packets per second the executor sends, to stay under servers' anti-spam limits
+	public int maxPacketsPerSecond = CraftRateController.DEFAULT_MAX_PACKETS_PER_SECOND;
+
+	// Most batches in flight at once (default 4), the cap on the window the rate controller adapts (1 waits for each)
+	public int maxInFlight = AutoCraftExecutor.DEFAULT_MAX_IN_FLIGHT;
+
+	// How the grid is filled on servers without their own entry: RECIPE_BOOK or SLOT_TRANSFER
+	public PlacementBackend.Type placement = PlacementBackend.Type.RECIPE_BOOK;
+
+	// Placement per server (the address, or "singleplayer"), e.g. SLOT_TRANSFER where recipe book requests are dropped
+	public Map<String, PlacementBackend.Type> serverPlacement = new TreeMap<>();
+
+	// Recipe picked for an intermediate item, by item id: the chosen recipe's ingredients, one item id per slot
+	public Map<String, List<String>> recipeChoices = new TreeMap<>();
+
+	/**
+	 * A file of the mod in the game's config directory
+	 */
+	public static Path getFile(String suffix) {
+		return FabricLoader.getInstance().getConfigDir().resolve(SmartRecipeBookMod.MOD_ID + suffix + ".json");
+	}
+
+	/**
+	 * Read the config file (defaults if it is missing or broken), write it back and apply it
+	 */
+	public static void load() {
+		Path file = getFile("");
+		current = read(file);
+		current.save(file);
+		current.apply();
+	}
+
+	public static SmartRecipeConfig get() {
+		return current;
+	}
+
+	/**
+	 * Store the recipe choices made in game and write the config file
+	 */
+	public static void saveChoices() {
+		current.recipeChoices = PlanChoiceMemory.save();
+		current.save(getFile(""));
+	}
+
+	static SmartRecipeConfig read(Path file) {
+		if (!Files.exists(file)) return new SmartRecipeConfig();
+
+		try {
+			SmartRecipeConfig config = GSON.fromJson(Files.readString(file), SmartRecipeConfig.class);
+			return config != null ? config : new SmartRecipeConfig();
+		} catch (IOException | JsonParseException e) {
+			SmartRecipeBookMod.LOGGER.warn("Could not read {}, using the defaults", file, e);
+			return new SmartRecipeConfig();
+		}
+	}
+
+	void save(Path file) {
+		try {
+			Files.createDirectories(file.getParent());
+			Files.writeString(file, GSON.toJson(this));
+		} catch (IOException e) {
+			SmartRecipeBookMod.LOGGER.warn("Could not write {}", file, e);
+		}
+	}
+
+	/**
+	 * Push the settings to the code they configure
+	 */
+	public void apply() {
+		CraftRateController.setMaxPacketsPerSecond(maxPacketsPerSecond);
+		AutoCraftExecutor.setMaxInFlight(maxInFlight);
+
+		// Unknown backend names read as null and keep the default
+		if (placement != null) {
+			PlacementBackend.setDefault(placement);
+		}
+		if (serverPlacement != null) {
+			serverPlacement.forEach((server, type) -> {
+				if (type != null) {
+					PlacementBackend.select(server, type);
+				}
+			});
+		}
+		PlanChoiceMemory.load(recipeChoices != null ? recipeChoices : Map.of());
+		SmartRecipeBookMod.LOGGER.info("Config: at most {} packets per second, {} batches in flight, {} placement ({} per server), "
+			+ "{} recipe choices", CraftRateController.getMaxPacketsPerSecond(), AutoCraftExecutor.getMaxInFlight(), placement,
+			serverPlacement != null ? serverPlacement.size() : 0, recipeChoices != null ? recipeChoices.size() : 0);
+	}
+}
@@ -1,211 +1,1059 @@
 package com.smartrecipe.crafting;
 
 import com.smartrecipe.SmartRecipeBookMod;
+import com.smartrecipe.recipe.BatchPlanner;
 import com.smartrecipe.recipe.CraftCountTracker;
 import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.InventoryCapacity;
 
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.network.packet.c2s.play.ClickSlotC2SPacket;
-import net.minecraft.screen.ScreenHandler;
 import net.minecraft.screen.slot.SlotActionType;
-import net.minecraft.screen.sync.ItemStackHash;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.NetworkRecipeId;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-
-import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Executes multi-step crafting plans by sending CraftRequestC2SPacket directly.
- * Uses tick-based delays to ensure server has time to process each step.
+ *
+ * Plans are queued as jobs and run one after another, higher priority first
+ * (a running job is never interrupted). A job queued behind others is planned
+ * against the inventory those will leave behind, so it does not count on
+ * items they reserve. When a job ends the next one starts in the same tick.
+ *
+ * A craft counts as confirmed once the server has applied it: the handler
+ * revision moved past the one its click was sent at and its result arrived
+ * in the inventory. Several crafts are sent ahead of their confirmations,
+ * as many as CraftRateController allows for the server (at most
+ * maxInFlight) and within its packet budget, but only crafts whose inputs
+ * are already in the confirmed inventory (and not reserved by a craft in
+ * flight); anything that needs an unconfirmed result waits. With a window of
+ * 1 each craft waits for the one before it.
+ *
+ * The executor keeps the inventory the plan predicts after every step and
+ * checks it against the real one as each step lands. A step that leaves the
+ * inventory different from the prediction, or is never confirmed within the
+ * server's timeout, stops the plan instead of sending the rest blindly: once the
+ * batches in flight have landed, whatever is still missing of the targets is
+ * re-planned against the actual inventory and the job carries on. After a
+ * few re-plans the job is aborted.
+ *
+ * Repeated crafts of a step are sent as batches that fill the grid once and
+ * take the result with a single shift-click. Consecutive steps of the same
+ * recipe are merged into one. Sets of a step's recipe left in the grid are
+ * crafted without placing them again; the executor's own shift-click empties
+ * the grid, so this only reuses sets something else left behind (the player,
+ * or a shift-click that ran out of inventory room).
+ *
+ * The grid is filled by the server's recipe book placement or with slot
+ * clicks, whichever PlacementBackend selects for the server. Slot clicks are
+ * planned on the client's view of the slots, so those batches are not
+ * pipelined.
+ *
+ * Everything the executor reads from the game and sends to the server goes
+ * through a CraftEnvironment, so the tests run it against SimulatedCraftServer.
+ *
+ * Every batch sent lays an overlay of its expected consumption and
+ * production over the inventory the screens and the planner read, so they
+ * see the result right away. The overlay is dropped when the batch is
+ * confirmed (the inventory from the server now has it) or rolled back when
+ * the batch times out or the job is cancelled. The executor itself always
+ * works from the confirmed inventory.
  */
 public class AutoCraftExecutor {
 
-	private static List<CraftingPlan.CraftingStep> steps = new ArrayList<>();
-	private static int currentStepIndex = 0;
-	private static boolean isExecuting = false;
-	private static boolean userCraftAll = false;
-	private static MinecraftClient currentClient = null;
-	private static int ticksUntilNextStep = 0;
-	private static final int TICKS_BETWEEN_STEPS = 3; // 3 ticks between crafts
+	private static CraftEnvironment environment = null;
+	private static long ticks = 0; // Client ticks since start, for timings
+	private static boolean startPending = false; // Start the next job on the next tick
+
+	// Jobs
+	public static final int DEFAULT_PRIORITY = 0;
+	private static final int MAX_FINISHED_JOBS = 16;
+	private static final List<CraftJob> queue = new ArrayList<>(); // Highest priority first, FIFO within a priority
+	private static final ArrayDeque<CraftJob> finishedJobs = new ArrayDeque<>(); // Most recent last
+	private static CraftJob activeJob = null;
+	private static int nextJobId = 1;
+
+	// Pipelining
+	public static final int DEFAULT_MAX_IN_FLIGHT = 4; // Cap on the window CraftRateController adapts
+	private static final int MAX_IN_FLIGHT_LIMIT = 16;
+	private static int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	private static final ArrayDeque<InFlightCraft> inFlight = new ArrayDeque<>();
+
+	// Verified and failed batches per recipe over all plans
+	private static final Map<NetworkRecipeId, int[]> stepResults = new HashMap<>();
+
+	// Re-planning after a deviation
+	private static final int MAX_REPLANS = 3; // Per job, then give up
+
+	// Crafts and ticks of finished plans per peak window, to compare throughput
+	private static final Map<Integer, long[]> throughput = new TreeMap<>();
+
+	/**
+	 * A batch of crafts sent but not yet confirmed by the server
+	 * @param revision Handler revision (state id) the click was sent with
+	 * @param expectedItem Result item, null if there is nothing to wait for
+	 * @param produced Result items the batch adds
+	 * @param expectedCount Inventory count of the result once this batch lands
+	 * @param inputs Items this batch is expected to consume, reserved until it lands
+	 * @param predicted Predicted inventory counts of the items it touches once it lands
+	 * @param sentTick Tick it was sent at
+	 * @param sentNanos Time it was sent at, for the round trip
+	 * @param window Batches allowed in flight when it was sent
+	 * @param backend How the grid was filled
+	 * @param overlay Id of its overlay on the inventory
+	 */
+	private record InFlightCraft(int stepIndex, NetworkRecipeId recipeId, int revision, Item expectedItem, int produced,
+								 int expectedCount, Map<Item, Integer> inputs, Map<Item, Integer> predicted, long sentTick,
+								 long sentNanos, int window, PlacementBackend.Type backend, long overlay) {}
+
+	/**
+	 * Set the most crafts that may be in flight at once (1 = always wait for each confirmation,
+	 * default 4). The rate controller adapts the window below this cap.
+	 */
+	public static void setMaxInFlight(int window) {
+		maxInFlight = Math.max(1, Math.min(MAX_IN_FLIGHT_LIMIT, window));
+	}
 
-	// For multi-craft support
-	private static int totalQuantity = 1;
-	private static int currentQuantityIndex = 0;
-	private static List<CraftingPlan.CraftingStep> originalSteps = new ArrayList<>();
+	public static int getMaxInFlight() {
+		return maxInFlight;
+	}
 
 	/**
 	 * Execute a crafting plan (single item)
 	 */
-	public static void execute(MinecraftClient client, CraftingPlan plan, boolean all) {
-		execute(client, plan, all, 1);
+	public static CraftJob execute(MinecraftClient client, CraftingPlan plan) {
+		return execute(client, plan, 1);
 	}
 
 	/**
 	 * Execute a crafting plan multiple times
 	 */
-	public static void execute(MinecraftClient client, CraftingPlan plan, boolean all, int quantity) {
-		if (isExecuting) {
-			SmartRecipeBookMod.LOGGER.warn("Already executing a crafting plan");
-			return;
+	public static CraftJob execute(MinecraftClient client, CraftingPlan plan, int quantity) {
+		return execute(client, plan, quantity, DEFAULT_PRIORITY);
+	}
+
+	/**
+	 * Queue a crafting plan to be executed multiple times
+	 * @param priority Jobs with a higher priority run first; equal priorities run in order
+	 * @return The queued job, or null if the plan cannot run
+	 */
+	public static CraftJob execute(MinecraftClient client, CraftingPlan plan, int quantity, int priority) {
+		return execute(new ClientCraftEnvironment(client), plan, quantity, priority);
+	}
+
+	/**
+	 * Queue a crafting plan to run in an environment. The plan is re-planned
+	 * through the environment to follow the jobs ahead of it, to aggregate
+	 * several crafts, or to shrink it until its results fit.
+	 * @return The queued job, or null if the plan cannot run
+	 */
+	public static CraftJob execute(CraftEnvironment env, CraftingPlan plan, int quantity, int priority) {
+		// Smelting steps need a furnace screen, which the executor does not drive
+		if (plan.requiresSmelting()) {
+			SmartRecipeBookMod.LOGGER.warn("Plan for {} requires smelting {} batches first, not executing",
+				plan.getTargetItem().getName().getString(), plan.getSmeltingSteps().size());
+			return null;
 		}
 
-		currentClient = client;
-		userCraftAll = all;
-		originalSteps = new ArrayList<>(plan.getSteps());
-		totalQuantity = quantity;
-		currentQuantityIndex = 0;
+		environment = env;
+		CraftRateController.select(env.getServerKey());
+
+		// Jobs ahead of this one will have used up what they reserve
+		int ahead = countJobsAhead(priority);
+		Map<Item, Integer> projected = ahead > 0 ? projectInventory(priority) : null;
+		if (ahead > 0) {
+			CraftingPlan queued = planAfterQueue(plan, quantity, projected);
+			if (queued == null || !queued.canCraft()) {
+				SmartRecipeBookMod.LOGGER.warn("Not enough materials for {} left after the {} jobs ahead of it",
+					plan.getTargetItem().getName().getString(), ahead);
+				return null;
+			}
+			plan = queued;
+			quantity = 1;
+		} else if (quantity > 1) {
+			// Plan all crafts together so batch yields and leftovers are shared
+			CraftingPlan batched = env.planCrafts(plan.getTargetRecipe(), quantity, null);
+			if (batched != null && batched.canCraft()) {
+				SmartRecipeBookMod.LOGGER.info("Using aggregated plan: {} steps / {} crafts instead of {} single-craft steps",
+					batched.getSteps().size(), batched.getCraftCount(), batched.getUnbatchedStepCount());
+				plan = batched;
+				quantity = 1;
+			}
+		}
 
-		// Build the full step list: repeat plan for each quantity
-		steps = new ArrayList<>();
+		// Build the full step list: repeat plan for each quantity (only if it could not be planned as a whole)
+		List<CraftingPlan.CraftingStep> steps = new ArrayList<>();
 		for (int i = 0; i < quantity; i++) {
-			steps.addAll(originalSteps);
+			steps.addAll(plan.getSteps());
 		}
-		currentStepIndex = 0;
+		int unmerged = steps.size();
+		steps = CraftingGrid.mergeConsecutive(steps);
 
-		SmartRecipeBookMod.LOGGER.info("Starting crafting plan with {} steps x {} quantity = {} total steps",
-			originalSteps.size(), quantity, steps.size());
+		// Every result has to find room in the inventory, or the shift-clicks stop working halfway
+		InventoryCapacity.Result capacity = simulateCapacity(steps, projected);
+		if (!capacity.fits()) {
+			int crafts = targetCrafts(steps, plan.getTargetRecipe());
+			CraftingPlan smaller = shrinkToCapacity(plan, crafts, projected);
+			if (smaller == null) {
+				SmartRecipeBookMod.LOGGER.warn("Not crafting {}: the results of step {} would not fit in the inventory",
+					plan.getTargetItem().getName().getString(), capacity.overflowStep() + 1);
+				return null;
+			}
+
+			plan = smaller;
+			quantity = 1;
+			steps = CraftingGrid.mergeConsecutive(smaller.getSteps());
+			unmerged = smaller.getSteps().size();
+			capacity = simulateCapacity(steps, projected);
+			SmartRecipeBookMod.LOGGER.warn("Only {} of {} crafts of {} fit in the inventory, crafting those",
+				targetCrafts(steps, plan.getTargetRecipe()), crafts, plan.getTargetItem().getName().getString());
+		}
+
+		CraftJob job = new CraftJob(nextJobId++, priority, plan, steps, ticks);
+		job.mergedSteps = unmerged - steps.size();
+		job.peakSlots = capacity.peakSlots();
+		int position = 0;
+		while (position < queue.size() && queue.get(position).getPriority() >= priority) {
+			position++;
+		}
+		queue.add(position, job);
 
-		isExecuting = true;
-		// Schedule first step for next tick
-		ticksUntilNextStep = 1;
-		SmartRecipeBookMod.LOGGER.info("Scheduled first step for next tick");
+		SmartRecipeBookMod.LOGGER.info("Queued job {} with {} steps x {} quantity = {} total steps, {} merged, peak {} slots (queue depth {})",
+			job, plan.getSteps().size(), quantity, steps.size(), job.mergedSteps, job.peakSlots, getQueueDepth());
+
+		if (activeJob == null) {
+			// Schedule first step for next tick
+			startPending = true;
+		}
+		return job;
 	}
 
 	/**
-	 * Execute the current step by sending CraftRequestC2SPacket directly
+	 * Plan several targets together and craft them as a single job,
+	 * sharing intermediates between them
+	 * @return The queued job, or null if nothing could be planned or the batch is not craftable
 	 */
-	private static void executeCurrentStep() {
-		if (currentStepIndex >= steps.size()) {
-			SmartRecipeBookMod.LOGGER.info("Crafting plan complete!");
-			isExecuting = false;
-			currentClient = null;
-			return;
+	public static CraftJob executeBatch(MinecraftClient client, List<BatchPlanner.Target> targets) {
+		return executeBatch(new ClientCraftEnvironment(client), targets);
+	}
+
+	/**
+	 * Plan several targets together in an environment and craft them as a single job
+	 * @return The queued job, or null if nothing could be planned or the batch is not craftable
+	 */
+	public static CraftJob executeBatch(CraftEnvironment env, List<BatchPlanner.Target> targets) {
+		CraftingPlan plan = env.planTargets(targets, null);
+		if (plan == null || !plan.canCraft()) {
+			SmartRecipeBookMod.LOGGER.warn("Batch of {} targets cannot be crafted", targets.size());
+			return null;
+		}
+
+		return execute(env, plan, 1, DEFAULT_PRIORITY);
+	}
+
+	/**
+	 * Running and queued jobs that will run before a new job of the given priority
+	 */
+	private static int countJobsAhead(int priority) {
+		int ahead = activeJob != null ? 1 : 0;
+		for (CraftJob job : queue) {
+			if (job.getPriority() >= priority) ahead++;
+		}
+		return ahead;
+	}
+
+	/**
+	 * Inventory once the running job and the queued jobs that run before a
+	 * new job of the given priority are done
+	 */
+	private static Map<Item, Integer> projectInventory(int priority) {
+		Map<Item, Integer> inventory = new HashMap<>(environment.getInventory());
+
+		// Batches in flight, then what the running job has yet to send
+		for (InFlightCraft craft : inFlight) {
+			if (craft.inputs() != null) {
+				craft.inputs().forEach((item, count) -> inventory.merge(item, -count, Integer::sum));
+			}
+			if (craft.expectedItem() != null) {
+				inventory.merge(craft.expectedItem(), craft.produced(), Integer::sum);
+			}
+		}
+		if (activeJob != null) {
+			CraftJob.delta(activeJob.steps, activeJob.stepIndex, activeJob.craftInStep)
+				.forEach((item, count) -> inventory.merge(item, count, Integer::sum));
+		}
+
+		for (CraftJob job : queue) {
+			if (job.getPriority() < priority) continue;
+			CraftJob.delta(job.steps, 0, 0).forEach((item, count) -> inventory.merge(item, count, Integer::sum));
+		}
+
+		inventory.values().removeIf(count -> count <= 0);
+		return inventory;
+	}
+
+	/**
+	 * Plan a job against the inventory the jobs ahead of it leave behind
+	 */
+	private static CraftingPlan planAfterQueue(CraftingPlan plan, int quantity, Map<Item, Integer> inventory) {
+		if (plan.getTargets().size() > 1) {
+			List<BatchPlanner.Target> targets = new ArrayList<>();
+			for (ItemStack target : plan.getTargets()) {
+				targets.add(new BatchPlanner.Target(target.getItem(), target.getCount() * quantity));
+			}
+			return environment.planTargets(targets, inventory);
+		}
+
+		int crafts = targetCrafts(plan.getSteps(), plan.getTargetRecipe());
+		return environment.planCrafts(plan.getTargetRecipe(), Math.max(1, crafts) * quantity, inventory);
+	}
+
+	/**
+	 * Crafts of the target recipe among the steps
+	 */
+	private static int targetCrafts(List<CraftingPlan.CraftingStep> steps, NetworkRecipeId targetRecipe) {
+		int crafts = 0;
+		for (CraftingPlan.CraftingStep step : steps) {
+			if (step.getRecipeId().equals(targetRecipe)) {
+				crafts += step.getQuantity();
+			}
+		}
+		return crafts;
+	}
+
+	/**
+	 * Simulate the inventory slots through the steps
+	 * @param projected Inventory to start from, or null for the player's current slots
+	 */
+	private static InventoryCapacity.Result simulateCapacity(List<CraftingPlan.CraftingStep> steps, Map<Item, Integer> projected) {
+		return projected != null ? InventoryCapacity.simulate(projected, steps) : environment.simulateCapacity(steps);
+	}
+
+	/**
+	 * Plan the most crafts of a single-target plan whose results still fit in the inventory
+	 * @return The smaller plan, or null if not even one craft fits (or the plan has several targets)
+	 */
+	private static CraftingPlan shrinkToCapacity(CraftingPlan plan, int crafts, Map<Item, Integer> projected) {
+		if (plan.getTargets().size() > 1) return null;
+
+		CraftingPlan best = null;
+		int low = 1;
+		int high = crafts - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			CraftingPlan candidate = environment.planCrafts(plan.getTargetRecipe(), mid, projected);
+			if (candidate != null && candidate.canCraft()
+				&& simulateCapacity(CraftingGrid.mergeConsecutive(candidate.getSteps()), projected).fits()) {
+				best = candidate;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Start the highest priority queued job, if any
+	 */
+	private static void startNextJob() {
+		startPending = false;
+		if (queue.isEmpty() || environment == null || !environment.isReady()) return;
+
+		CraftJob job = queue.remove(0);
+		activeJob = job;
+		job.status = CraftJob.Status.RUNNING;
+		job.startedTick = ticks;
+
+		Map<Item, Integer> inventory = environment.getInventory();
+		job.predictedInventory.putAll(inventory);
+		job.targetDeltas.forEach((item, delta) -> job.targetGoals.put(item, inventory.getOrDefault(item, 0) + delta));
+
+		SmartRecipeBookMod.LOGGER.info("Starting job {} after {} ticks in the queue ({} more queued)",
+			job, job.getWaitTicks(), queue.size());
+
+		// The inventory may not be what the job was planned against (e.g. a higher
+		// priority job ran first); re-plan before sending anything if it no longer fits
+		if (!checkCapacity(job)) return;
+		if (!isFeasible(job.steps, inventory)) {
+			deviate(job, "the inventory no longer covers the plan");
 		}
+	}
+
+	/**
+	 * Check the job's results still fit in the inventory as it is now, and abort it if not
+	 */
+	private static boolean checkCapacity(CraftJob job) {
+		InventoryCapacity.Result capacity = environment.simulateCapacity(job.steps);
+		job.peakSlots = capacity.peakSlots();
+		if (capacity.fits()) return true;
+
+		abort(job, "the results of step " + (capacity.overflowStep() + 1) + " would not fit in the inventory");
+		return false;
+	}
+
+	/**
+	 * Whether the steps can run in order against the inventory (steps without recorded inputs are assumed to)
+	 */
+	private static boolean isFeasible(List<CraftingPlan.CraftingStep> steps, Map<Item, Integer> inventory) {
+		Map<Item, Integer> simulated = new HashMap<>(inventory);
+		for (CraftingPlan.CraftingStep step : steps) {
+			for (Map.Entry<Item, Integer> input : step.getInputs().entrySet()) {
+				if (simulated.merge(input.getKey(), -input.getValue(), Integer::sum) < 0) return false;
+			}
+			if (!step.getResult().isEmpty()) {
+				simulated.merge(step.getResult().getItem(), step.getResult().getCount() * step.getQuantity(), Integer::sum);
+			}
+		}
+		return true;
+	}
 
-		if (currentClient == null || currentClient.player == null) {
+	/**
+	 * Send as many crafts as the window and the confirmed inventory allow,
+	 * and finish jobs once everything is sent and confirmed, moving straight on to the next
+	 */
+	private static void pump() {
+		if (environment == null || !environment.isReady()) {
 			SmartRecipeBookMod.LOGGER.error("Client or player is null, aborting");
 			cancel();
 			return;
 		}
 
-		CraftingPlan.CraftingStep step = steps.get(currentStepIndex);
+		while (activeJob != null) {
+			CraftJob job = activeJob;
+
+			// Stopped or deviated: wait for the batches in flight to land first
+			if (job.stopStatus != null || job.replanPending) {
+				if (!inFlight.isEmpty()) return;
+				if (job.stopStatus != null) {
+					endJob(job, job.stopStatus);
+					continue;
+				}
+				if (!replan(job)) continue;
+			}
+
+			int window = CraftRateController.getWindow(maxInFlight);
+			while (job.stepIndex < job.steps.size() && job.stopStatus == null && inFlight.size() < window
+				&& CraftRateController.canSend()) {
+				CraftingPlan.CraftingStep step = job.steps.get(job.stepIndex);
+				Map<Item, Integer> perCraft = inputsPerCraft(step);
+				int crafts = batchSize(perCraft, step.getQuantity() - job.craftInStep);
+				Map<Item, Integer> inputs = scale(perCraft, crafts);
+				if (!inFlight.isEmpty() && (inputs == null || isProducedInFlight(inputs) || !isCovered(inputs)
+					|| usesSlotTransfer(step))) break;
+
+				sendBatch(job, step, crafts, perCraft, inputs, window);
+			}
+			if (job.stopStatus != null) continue;
+
+			if (job.stepIndex >= job.steps.size() && inFlight.isEmpty()) {
+				endJob(job, CraftJob.Status.DONE);
+				continue;
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Send a batch of crafts of the current step as one grid fill and one
+	 * shift-click on the result. A full stack is requested with craftAll when
+	 * the inventory holds no less than the batch needs; smaller batches are
+	 * staged one craft per request (each request for the same recipe adds one
+	 * more set to the grid), so the server never crafts more than asked.
+	 */
+	private static void sendBatch(CraftJob job, CraftingPlan.CraftingStep step, int crafts, Map<Item, Integer> perCraft,
+								  Map<Item, Integer> inputs, int window) {
+		boolean useCraftAll = crafts > 1 && crafts == stackLimit(perCraft) && isCovered(inputs);
+
+		SmartRecipeBookMod.LOGGER.debug("Executing step {}/{} crafts {}-{}/{}: {} (craftAll: {}, in flight: {})",
+			job.stepIndex + 1, job.steps.size(), job.craftInStep + 1, job.craftInStep + crafts, step.getQuantity(),
+			step.getRecipeId(), useCraftAll, inFlight.size());
+
+		// Sets of this recipe left in the grid are crafted as they are. Only
+		// trusted while nothing is in flight, when the grid is what the server has.
+		int resident = inFlight.isEmpty() ? Math.min(crafts, environment.residentCrafts(step)) : 0;
+		int toPlace = crafts - resident;
+
+		// Slot clicks are planned on the client's view of the slots, which is only
+		// what the server has while nothing is in flight
+		List<SlotTransferHelper.Click> clicks = null;
+		if (toPlace > 0 && inFlight.isEmpty() && usesSlotTransfer(step)) {
+			clicks = environment.planPlacement(step, toPlace);
+			if (clicks == null && !environment.isUnlocked(step.getRecipeId())) {
+				// The server would drop a craft request for it
+				abort(job, "recipe " + step.getRecipeId() + " is not unlocked and cannot be placed with slot clicks");
+				return;
+			}
+			if (clicks == null) {
+				SmartRecipeBookMod.LOGGER.debug("Cannot place {} with slot clicks, using the recipe book", step.getRecipeId());
+			}
+		}
+		PlacementBackend.Type backend = clicks != null ? PlacementBackend.Type.SLOT_TRANSFER : PlacementBackend.Type.RECIPE_BOOK;
+
+		// Resident sets are no longer in the inventory, so only placed ones take from it
+		Map<Item, Integer> placed = resident == 0 ? inputs : scale(perCraft, toPlace);
 
-		// Use craftAll=false to craft just one batch (not all available materials)
-		// This prevents using more ingredients than needed
-		boolean useCraftAll = false;
+		// What the inventory should hold once the batch lands, after the batches ahead of it
+		ItemStack result = step.getResult();
+		Item expectedItem = result.isEmpty() ? null : result.getItem();
+		int produced = result.getCount() * crafts;
+		Map<Item, Integer> predicted = new HashMap<>();
+		if (placed != null) {
+			for (Map.Entry<Item, Integer> input : placed.entrySet()) {
+				predicted.put(input.getKey(), job.predictedInventory.merge(input.getKey(), -input.getValue(), Integer::sum));
+			}
+		}
+		int expectedCount = 0;
+		if (expectedItem != null) {
+			expectedCount = job.predictedInventory.merge(expectedItem, produced, Integer::sum);
+			predicted.put(expectedItem, expectedCount);
+		}
 
-		SmartRecipeBookMod.LOGGER.info("Executing step {}/{}: {} (craftAll: {})",
-			currentStepIndex + 1, steps.size(), step.getRecipeId(), useCraftAll);
+		// Show the batch in the inventory everything else reads until it lands
+		Map<Item, Integer> delta = new HashMap<>();
+		if (placed != null) {
+			placed.forEach((item, count) -> delta.merge(item, -count, Integer::sum));
+		}
+		if (expectedItem != null) {
+			delta.merge(expectedItem, produced, Integer::sum);
+		}
 
 		// Send CraftRequestC2SPacket directly - bypasses vanilla recipe book
-		VanillaCraftingHelper.sendCraftRequest(step.getRecipeId(), useCraftAll);
+		int packetsBefore = job.sentPackets;
+		int skippedRequests;
+		if (toPlace == 0) {
+			skippedRequests = useCraftAll ? 1 : crafts;
+		} else if (clicks != null) {
+			SlotTransferHelper.send(environment, clicks);
+			job.sentPackets += clicks.size();
+			skippedRequests = 0;
+		} else if (useCraftAll) {
+			environment.sendCraftRequest(step.getRecipeId(), true);
+			job.sentPackets++;
+			skippedRequests = 0;
+		} else {
+			for (int i = 0; i < toPlace; i++) {
+				environment.sendCraftRequest(step.getRecipeId(), false);
+				job.sentPackets++;
+			}
+			skippedRequests = resident;
+		}
+		if (resident > 0) {
+			job.residentCrafts += resident;
+			job.skippedRequests += skippedRequests;
+			SmartRecipeBookMod.LOGGER.debug("Crafting {} of {} from sets left in the grid", resident, crafts);
+		}
 
 		// Click the result slot to complete the craft
-		// This moves the crafted item to inventory
-		clickCraftingResult();
+		// This moves the crafted items to inventory
+		int revision = clickCraftingResult();
+		job.sentPackets++;
+		CraftRateController.onSent(job.sentPackets - packetsBefore);
+		PlacementBackend.record(backend, crafts, job.sentPackets - packetsBefore);
+
+		inFlight.addLast(new InFlightCraft(job.stepIndex, step.getRecipeId(), revision, expectedItem, produced,
+			expectedCount, placed, predicted, ticks, environment.nanoTime(), window, backend, environment.addOverlay(delta)));
+		job.sentCrafts += crafts;
+		job.peakInFlight = Math.max(job.peakInFlight, inFlight.size());
 
 		// Track the crafted item for sorting purposes
-		ItemStack result = step.getResult();
 		if (!result.isEmpty()) {
-			CraftCountTracker.increment(result.getItem(), result.getCount());
-			SmartRecipeBookMod.LOGGER.info("Tracked craft: {} x{}", result.getItem().getName().getString(), result.getCount());
+			CraftCountTracker.increment(result.getItem(), produced);
+			if (SmartRecipeBookMod.LOGGER.isDebugEnabled()) {
+				SmartRecipeBookMod.LOGGER.debug("Tracked craft: {} x{}", result.getItem().getName().getString(), produced);
+			}
 		}
 
-		// Move to next step
-		currentStepIndex++;
+		// Move to next step once all of this step's crafts are sent
+		job.craftInStep += crafts;
+		if (job.craftInStep >= step.getQuantity()) {
+			job.stepIndex++;
+			job.craftInStep = 0;
+		}
+	}
+
+	/**
+	 * Whether the step's grid is filled with slot clicks: the server uses that
+	 * backend, or its recipe book does not have the recipe
+	 */
+	private static boolean usesSlotTransfer(CraftingPlan.CraftingStep step) {
+		return PlacementBackend.get(environment.getServerKey()) == PlacementBackend.Type.SLOT_TRANSFER
+			|| !environment.isUnlocked(step.getRecipeId());
+	}
 
-		if (currentStepIndex < steps.size()) {
-			// Schedule next step after delay
-			ticksUntilNextStep = TICKS_BETWEEN_STEPS;
-			SmartRecipeBookMod.LOGGER.info("Waiting {} ticks before next step", ticksUntilNextStep);
+	/**
+	 * Items one craft of a step consumes (rounded up), or null if the step does not record them
+	 */
+	private static Map<Item, Integer> inputsPerCraft(CraftingPlan.CraftingStep step) {
+		if (step.getInputs().isEmpty()) return null;
+
+		int crafts = Math.max(1, step.getQuantity());
+		Map<Item, Integer> inputs = new HashMap<>();
+		for (Map.Entry<Item, Integer> input : step.getInputs().entrySet()) {
+			inputs.put(input.getKey(), (input.getValue() + crafts - 1) / crafts);
+		}
+		return inputs;
+	}
+
+	private static Map<Item, Integer> scale(Map<Item, Integer> perCraft, int crafts) {
+		if (perCraft == null) return null;
+
+		Map<Item, Integer> inputs = new HashMap<>();
+		for (Map.Entry<Item, Integer> input : perCraft.entrySet()) {
+			inputs.put(input.getKey(), input.getValue() * crafts);
+		}
+		return inputs;
+	}
+
+	/**
+	 * Crafts to send as the next batch: the rest of the step, up to what one
+	 * grid fill holds. Steps without recorded inputs are sent one craft at a time.
+	 */
+	private static int batchSize(Map<Item, Integer> perCraft, int remaining) {
+		if (perCraft == null) return 1;
+		return Math.max(1, Math.min(remaining, stackLimit(perCraft)));
+	}
+
+	/**
+	 * Most crafts one grid fill holds: a grid slot takes one item per craft, up to a stack
+	 */
+	private static int stackLimit(Map<Item, Integer> perCraft) {
+		int limit = Integer.MAX_VALUE;
+		for (Item item : perCraft.keySet()) {
+			limit = Math.min(limit, item.getMaxCount());
+		}
+		return limit == Integer.MAX_VALUE ? 1 : limit;
+	}
+
+	/**
+	 * Whether a craft in flight produces one of the given inputs
+	 */
+	private static boolean isProducedInFlight(Map<Item, Integer> inputs) {
+		for (InFlightCraft craft : inFlight) {
+			if (craft.inputs() == null) return true;
+			if (craft.expectedItem() != null && inputs.containsKey(craft.expectedItem())) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Whether the confirmed inventory covers the inputs on top of what the crafts in flight reserve
+	 */
+	private static boolean isCovered(Map<Item, Integer> inputs) {
+		Map<Item, Integer> reserved = new HashMap<>();
+		for (InFlightCraft craft : inFlight) {
+			if (craft.inputs() == null) continue;
+			for (Map.Entry<Item, Integer> input : craft.inputs().entrySet()) {
+				reserved.merge(input.getKey(), input.getValue(), Integer::sum);
+			}
+		}
+
+		Map<Item, Integer> inventory = environment.getInventory();
+		for (Map.Entry<Item, Integer> input : inputs.entrySet()) {
+			int available = inventory.getOrDefault(input.getKey(), 0) - reserved.getOrDefault(input.getKey(), 0);
+			if (available < input.getValue()) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Drop confirmed crafts from the front of the window. The server applies
+	 * crafts in order, so only the oldest can be confirmed next.
+	 */
+	private static boolean confirmLanded() {
+		CraftJob job = activeJob;
+		boolean confirmed = false;
+		while (!inFlight.isEmpty() && isCraftConfirmed(inFlight.peekFirst())) {
+			InFlightCraft craft = inFlight.removeFirst();
+			environment.removeOverlay(craft.overlay()); // The confirmed inventory has it now
+			job.confirmedBatches++;
+			confirmed = true;
+			long now = environment.nanoTime();
+			CraftRateController.onConfirmed(now - craft.sentNanos(), craft.window(), now);
+			if (job.replanPending || job.stopStatus != null) continue; // Draining; whatever landed is the new start
+
+			String mismatch = verify(craft);
+			recordStep(job, craft, mismatch == null);
+			if (mismatch == null) {
+				PlacementBackend.onSuccess(environment.getServerKey(), craft.backend());
+			} else {
+				PlacementBackend.onFailure(environment.getServerKey(), craft.backend());
+				deviate(job, "step " + (craft.stepIndex() + 1) + " left " + mismatch);
+			}
+		}
+		return confirmed;
+	}
+
+	/**
+	 * Handle a step that did not go as planned: stop sending, and re-plan the
+	 * rest of the job once the batches in flight have landed
+	 */
+	private static void deviate(CraftJob job, String reason) {
+		if (job.replans >= MAX_REPLANS) {
+			abort(job, reason + ", and already re-planned " + job.replans + " times");
+			return;
+		}
+
+		SmartRecipeBookMod.LOGGER.warn("Job {} deviated at step {}: {}; re-planning the rest", job, job.stepIndex, reason);
+		job.replanPending = true;
+	}
+
+	/**
+	 * Re-solve what is left of the job against the actual inventory. Only the
+	 * missing targets are planned, so intermediates that already landed are
+	 * used as they are and nothing done is repeated. Plans come through the
+	 * plan cache and the cached cost tables.
+	 * @return false if the rest cannot be planned (the job is aborted)
+	 */
+	private static boolean replan(CraftJob job) {
+		long start = System.nanoTime();
+		Map<Item, Integer> inventory = environment.getInventory();
+
+		List<BatchPlanner.Target> missing = new ArrayList<>();
+		for (Map.Entry<Item, Integer> goal : job.targetGoals.entrySet()) {
+			int count = goal.getValue() - inventory.getOrDefault(goal.getKey(), 0);
+			if (count > 0) {
+				missing.add(new BatchPlanner.Target(goal.getKey(), count));
+			}
+		}
+
+		job.replanPending = false;
+		job.replans++;
+		job.steps = new ArrayList<>();
+		job.stepIndex = 0;
+		job.craftInStep = 0;
+		job.predictedInventory.clear();
+		job.predictedInventory.putAll(inventory);
+		if (missing.isEmpty()) {
+			SmartRecipeBookMod.LOGGER.info("Nothing left to re-plan, the targets are already there");
+			return true;
+		}
+
+		CraftingPlan original = job.getPlan();
+		CraftingPlan plan;
+		if (original.getTargets().size() == 1) {
+			// Same target recipe as before, for the crafts still missing
+			int yield = 1;
+			for (CraftingPlan.CraftingStep step : original.getSteps()) {
+				if (step.getRecipeId().equals(original.getTargetRecipe())) {
+					yield = Math.max(1, step.getResult().getCount());
+				}
+			}
+			int crafts = (missing.get(0).quantity() + yield - 1) / yield;
+			plan = environment.planCrafts(original.getTargetRecipe(), crafts, null);
 		} else {
-			SmartRecipeBookMod.LOGGER.info("All steps sent, crafting plan complete!");
-			isExecuting = false;
-			currentClient = null;
+			plan = environment.planTargets(missing, null);
+		}
+		long replanNanos = System.nanoTime() - start;
+
+		if (plan == null || !plan.canCraft()) {
+			abort(job, "the rest of the job can no longer be crafted");
+			return false;
+		}
+
+		job.steps = CraftingGrid.mergeConsecutive(new ArrayList<>(plan.getSteps()));
+		if (!checkCapacity(job)) return false;
+		SmartRecipeBookMod.LOGGER.info("Re-planned the rest of job {}: {} steps in {}us (full plan took {}us)",
+			job, job.steps.size(), replanNanos / 1000, original.getPlanningNanos() / 1000);
+		return true;
+	}
+
+	/**
+	 * Compare the inventory with the prediction for a batch that just landed.
+	 * Items a batch still in flight touches are checked when that one lands.
+	 * The result must match exactly; inputs may only be higher than predicted
+	 * (the server can pick other items for a slot than the planner did).
+	 * @return Description of the first mismatch, or null if the inventory is as predicted
+	 */
+	private static String verify(InFlightCraft craft) {
+		Map<Item, Integer> inventory = environment.getInventory();
+		for (Map.Entry<Item, Integer> entry : craft.predicted().entrySet()) {
+			Item item = entry.getKey();
+			if (isTouchedInFlight(item)) continue;
+
+			int actual = inventory.getOrDefault(item, 0);
+			int predicted = entry.getValue();
+			if (item == craft.expectedItem() ? actual != predicted : actual < predicted) {
+				return actual + "x " + item.getName().getString() + " instead of " + predicted;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isTouchedInFlight(Item item) {
+		for (InFlightCraft craft : inFlight) {
+			if (craft.predicted().containsKey(item)) return true;
+		}
+		return false;
+	}
+
+	private static void recordStep(CraftJob job, InFlightCraft craft, boolean success) {
+		int[] results = stepResults.computeIfAbsent(craft.recipeId(), k -> new int[2]);
+		results[success ? 0 : 1]++;
+		if (!success) {
+			job.failedBatches++;
 		}
 	}
 
+	/**
+	 * Stop a job after a step did not do what it should
+	 */
+	private static void abort(CraftJob job, String reason) {
+		SmartRecipeBookMod.LOGGER.warn("Aborting job {} after {} of {} steps: {} ({} batches verified, {} failed, {} of them timed out)",
+			job, job.stepIndex, job.steps.size(), reason, job.confirmedBatches - job.failedBatches + job.timedOutBatches,
+			job.failedBatches, job.timedOutBatches);
+		SmartRecipeBookMod.LOGGER.debug("Step success by recipe: {}", describeStepResults());
+		job.stopStatus = CraftJob.Status.FAILED;
+	}
+
+	/**
+	 * Verified and failed batches per recipe over all plans
+	 */
+	public static String describeStepResults() {
+		List<String> parts = new ArrayList<>();
+		for (Map.Entry<NetworkRecipeId, int[]> entry : stepResults.entrySet()) {
+			parts.add(entry.getKey() + " " + entry.getValue()[0] + "/" + (entry.getValue()[0] + entry.getValue()[1]));
+		}
+		return String.join(", ", parts);
+	}
+
+	/**
+	 * Finish the running job and start the next one right away
+	 */
+	private static void endJob(CraftJob job, CraftJob.Status status) {
+		job.status = status;
+		job.finishedTick = ticks;
+		activeJob = null;
+		addFinished(job);
+
+		long runTicks = job.getRunTicks();
+		if (status == CraftJob.Status.DONE) {
+			long[] totals = throughput.computeIfAbsent(job.peakInFlight, k -> new long[2]);
+			totals[0] += job.sentCrafts;
+			totals[1] += runTicks;
+
+			// One summary per job; the details are for debugging
+			SmartRecipeBookMod.LOGGER.info("Job {} complete: {} crafts in {} ticks after {} queued ({} crafts/s, peak {} in flight, {} batches verified, {} re-plans), {} packets instead of {} ({}% fewer)",
+				job, job.sentCrafts, runTicks, job.getWaitTicks(), String.format("%.1f", craftsPerSecond(job.sentCrafts, runTicks)),
+				job.peakInFlight, job.confirmedBatches, job.replans, job.sentPackets, job.sentCrafts * 2,
+				String.format("%.1f", job.getPacketSavings()));
+			if (SmartRecipeBookMod.LOGGER.isDebugEnabled()) {
+				SmartRecipeBookMod.LOGGER.debug("Received {} slot updates ({} per craft); {} crafts made from sets left in the grid ({} requests not sent), {} steps merged",
+					job.slotUpdates, job.sentCrafts == 0 ? 0 : String.format("%.1f", job.slotUpdates / (double) job.sentCrafts),
+					job.residentCrafts, job.skippedRequests, job.mergedSteps);
+				SmartRecipeBookMod.LOGGER.debug("Throughput by peak window: {}", describeThroughput());
+				SmartRecipeBookMod.LOGGER.debug("Craft rate profile {}", CraftRateController.getProfile());
+				SmartRecipeBookMod.LOGGER.debug("Placement: {}", PlacementBackend.describeUsage());
+				SmartRecipeBookMod.LOGGER.debug("Step success by recipe: {}", describeStepResults());
+			}
+		} else {
+			SmartRecipeBookMod.LOGGER.info("Job {} ended after {} ticks", job, runTicks);
+		}
+
+		startNextJob();
+	}
+
+	private static void addFinished(CraftJob job) {
+		finishedJobs.addLast(job);
+		if (finishedJobs.size() > MAX_FINISHED_JOBS) {
+			finishedJobs.removeFirst();
+		}
+	}
+
+	/**
+	 * Average crafts per second of all finished plans, per peak window
+	 */
+	public static String describeThroughput() {
+		List<String> parts = new ArrayList<>();
+		for (Map.Entry<Integer, long[]> entry : throughput.entrySet()) {
+			parts.add(entry.getKey() + ": " + String.format("%.1f", craftsPerSecond(entry.getValue()[0], entry.getValue()[1])));
+		}
+		return String.join(", ", parts);
+	}
+
+	private static double craftsPerSecond(long crafts, long ticks) {
+		return ticks == 0 ? 0 : crafts * 20.0 / ticks;
+	}
+
+	/**
+	 * Whether the server has applied a craft: the handler moved on from the
+	 * revision it was sent at and the result reached the inventory
+	 */
+	private static boolean isCraftConfirmed(InFlightCraft craft) {
+		if (environment == null || !environment.isReady()) return false;
+		if (environment.getRevision() == craft.revision()) return false;
+
+		return craft.expectedItem() == null
+			|| environment.getInventory().getOrDefault(craft.expectedItem(), 0) >= craft.expectedCount();
+	}
+
 	/**
 	 * Click the crafting result slot to complete the craft and move items to inventory
 	 * Note: We send this immediately after select() - the server will queue it and
 	 * process it after filling the grid. Shift-click crafts all available.
+	 * @return The state id the click was sent with
 	 */
-	private static void clickCraftingResult() {
-		if (currentClient == null || currentClient.player == null) return;
-
-		ScreenHandler handler = currentClient.player.currentScreenHandler;
-		if (handler == null) return;
+	private static int clickCraftingResult() {
+		if (environment == null || !environment.isReady()) return 0;
 
-		int syncId = handler.syncId;
-		short resultSlotId = 0; // Result slot is always slot 0 in crafting screens
-		int stateId = handler.getRevision();
+		SmartRecipeBookMod.LOGGER.debug("Sending shift-click on result slot");
 
-		SmartRecipeBookMod.LOGGER.info("Sending shift-click on result slot (syncId: {}, stateId: {})", syncId, stateId);
-
-		// Send a single shift-click packet - server will craft all available items
-		// We don't check client-side slot because server hasn't responded yet
-		ClickSlotC2SPacket packet = new ClickSlotC2SPacket(
-			syncId,
-			stateId,
-			resultSlotId,
-			(byte) 0, // button 0 = left click
-			SlotActionType.QUICK_MOVE, // shift-click to move to inventory
-			new Int2ObjectArrayMap<>(), // modified stacks
-			ItemStackHash.EMPTY // cursor (empty when shift-clicking)
-		);
-		currentClient.getNetworkHandler().sendPacket(packet);
-		SmartRecipeBookMod.LOGGER.info("Click packet sent");
+		// Result slot is always slot 0 in crafting screens; a shift-click
+		// (button 0, QUICK_MOVE) crafts everything the grid holds
+		int stateId = environment.sendClick(0, 0, SlotActionType.QUICK_MOVE);
+		SmartRecipeBookMod.LOGGER.debug("Click packet sent (stateId: {})", stateId);
+		return stateId;
 	}
 
 	/**
-	 * Called every client tick - handles delayed execution
+	 * Called every client tick - starts queued jobs and times out lost confirmations
 	 */
 	public static void onClientTick(MinecraftClient client) {
-		if (!isExecuting) return;
+		ticks++;
+		CraftRateController.onTick();
+		if (startPending && activeJob == null) {
+			startNextJob();
+		}
+		CraftJob job = activeJob;
+		if (job == null) return;
 
-		if (ticksUntilNextStep > 0) {
-			ticksUntilNextStep--;
-			if (ticksUntilNextStep == 0) {
-				SmartRecipeBookMod.LOGGER.info("Delay complete, executing next step");
-				executeCurrentStep();
+		confirmLanded();
+
+		// Never confirmed: the server rejected the step or gave a different result.
+		// Batches are sent in order, so every one past its deadline is at the front.
+		int timeout = CraftRateController.getTimeoutTicks();
+		while (!inFlight.isEmpty() && ticks - inFlight.peekFirst().sentTick() >= timeout) {
+			InFlightCraft lost = inFlight.removeFirst();
+			environment.removeOverlay(lost.overlay()); // Roll back; the server did not apply it as sent
+			job.timedOutBatches++;
+			CraftRateController.onLost(environment.nanoTime());
+			if (!job.replanPending && job.stopStatus == null) {
+				recordStep(job, lost, false);
+				PlacementBackend.onFailure(environment.getServerKey(), lost.backend());
+				deviate(job, "step " + (lost.stepIndex() + 1) + " was not confirmed within " + timeout + " ticks");
 			}
 		}
+		pump();
 	}
 
 	/**
-	 * Cancel the current crafting plan
+	 * Cancel one job. A queued job is dropped; a running one stops sending and
+	 * ends once its batches in flight have landed.
+	 * @return false if the job already finished
+	 */
+	public static boolean cancel(CraftJob job) {
+		if (queue.remove(job)) {
+			job.status = CraftJob.Status.CANCELLED;
+			addFinished(job);
+			SmartRecipeBookMod.LOGGER.info("Job {} cancelled while queued", job);
+			return true;
+		}
+		if (job == activeJob && job.stopStatus == null) {
+			job.stopStatus = CraftJob.Status.CANCELLED;
+			SmartRecipeBookMod.LOGGER.info("Job {} cancelled, stopping after {} batches in flight", job, inFlight.size());
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Cancel the running job and everything queued, right away
 	 */
 	public static void cancel() {
-		SmartRecipeBookMod.LOGGER.info("Crafting plan cancelled");
-		steps.clear();
-		currentStepIndex = 0;
-		isExecuting = false;
-		ticksUntilNextStep = 0;
-		currentClient = null;
+		SmartRecipeBookMod.LOGGER.info("Crafting plan cancelled ({} queued jobs dropped)", queue.size());
+		for (CraftJob job : queue) {
+			job.status = CraftJob.Status.CANCELLED;
+			addFinished(job);
+		}
+		queue.clear();
+		for (InFlightCraft craft : inFlight) {
+			environment.removeOverlay(craft.overlay());
+		}
+		inFlight.clear();
+		startPending = false;
+
+		if (activeJob != null) {
+			activeJob.status = CraftJob.Status.CANCELLED;
+			activeJob.finishedTick = ticks;
+			addFinished(activeJob);
+			activeJob = null;
+		}
 	}
 
 	/**
-	 * Check if currently executing a plan
+	 * Check if currently executing a plan or has plans queued
 	 */
 	public static boolean isExecuting() {
-		return isExecuting;
+		return activeJob != null || !queue.isEmpty();
 	}
 
 	/**
-	 * Get remaining steps count
+	 * Get remaining steps count of the running job
 	 */
 	public static int getRemainingSteps() {
-		return steps.size() - currentStepIndex;
+		return activeJob != null ? activeJob.getRemainingSteps() : 0;
 	}
 
 	/**
-	 * Called when inventory is updated - can be used to speed up execution
-	 * Currently we use tick-based delays, but this hook remains for future use
+	 * Jobs running or waiting
+	 */
+	public static int getQueueDepth() {
+		return queue.size() + (activeJob != null ? 1 : 0);
+	}
+
+	/**
+	 * The running job (if any) followed by the queued ones in the order they will run
+	 */
+	public static List<CraftJob> getJobs() {
+		List<CraftJob> jobs = new ArrayList<>();
+		if (activeJob != null) {
+			jobs.add(activeJob);
+		}
+		jobs.addAll(queue);
+		return Collections.unmodifiableList(jobs);
+	}
+
+	/**
+	 * Recently finished, failed or cancelled jobs with their timings, oldest first
+	 */
+	public static List<CraftJob> getFinishedJobs() {
+		return List.copyOf(finishedJobs);
+	}
+
+	/**
+	 * Client ticks counted by the executor, the clock job timings use
+	 */
+	public static long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Called on every slot update, after the inventory mirror has seen it
+	 */
+	public static void onSlotUpdate() {
+		if (activeJob != null) {
+			activeJob.slotUpdates++;
+		}
+		onInventoryUpdate();
+	}
+
+	/**
+	 * Called on every slot update and inventory sync, after the inventory mirror
+	 * has seen it. Sends the next crafts right away once crafts in flight are confirmed.
 	 */
 	public static void onInventoryUpdate() {
-		// Currently using tick-based delays instead of inventory-based triggering
-		// This method is kept for potential future optimization
+		if (activeJob == null) return;
+
+		if (confirmLanded()) {
+			pump();
+		}
 	}
 }
@@ -0,0 +1,150 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.SmartRecipeBookMod;
+import com.smartrecipe.recipe.BatchPlanner;
+import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.InventoryCapacity;
+import com.smartrecipe.recipe.InventoryMirror;
+import com.smartrecipe.recipe.RecipeCache;
+import com.smartrecipe.recipe.RecipeTreeCalculator;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.component.ComponentChangesHash;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.packet.c2s.play.ClickSlotC2SPacket;
+import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.SlotActionType;
+import net.minecraft.screen.sync.ItemStackHash;
+
+import java.util.List;
+import java.util.Map;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+
+/**
+ * The game client as a crafting environment: the inventory mirror, the
+ * player's open handler and its network connection.
+ */
+public class ClientCraftEnvironment implements CraftEnvironment {
+
+	private final MinecraftClient client;
+
+	public ClientCraftEnvironment(MinecraftClient client) {
+		this.client = client;
+	}
+
+	@Override
+	public boolean isReady() {
+		return client != null && client.player != null && client.player.currentScreenHandler != null
+			&& client.getNetworkHandler() != null;
+	}
+
+	@Override
+	public Map<Item, Integer> getInventory() {
+		return InventoryMirror.getConfirmedCounts(client.player);
+	}
+
+	@Override
+	public long addOverlay(Map<Item, Integer> delta) {
+		return InventoryMirror.addOverlay(delta);
+	}
+
+	@Override
+	public void removeOverlay(long overlay) {
+		InventoryMirror.removeOverlay(overlay);
+	}
+
+	@Override
+	public int getRevision() {
+		return client.player.currentScreenHandler.getRevision();
+	}
+
+	@Override
+	public String getServerKey() {
+		if (client.isIntegratedServerRunning()) return "singleplayer";
+
+		ServerInfo info = client.getCurrentServerEntry();
+		return info != null ? info.address : "unknown";
+	}
+
+	@Override
+	public boolean isUnlocked(NetworkRecipeId recipeId) {
+		return RecipeCache.isUnlocked(recipeId);
+	}
+
+	@Override
+	public int residentCrafts(CraftingPlan.CraftingStep step) {
+		return CraftingGrid.residentCrafts(client.player.currentScreenHandler, step);
+	}
+
+	@Override
+	public List<SlotTransferHelper.Click> planPlacement(CraftingPlan.CraftingStep step, int crafts) {
+		return SlotTransferHelper.planPlacement(client, step, crafts);
+	}
+
+	@Override
+	public CraftingPlan planCrafts(NetworkRecipeId recipeId, int crafts, Map<Item, Integer> inventory) {
+		return RecipeTreeCalculator.calculatePlanForQuantity(client, recipeId, crafts, inventory);
+	}
+
+	@Override
+	public CraftingPlan planTargets(List<BatchPlanner.Target> targets, Map<Item, Integer> inventory) {
+		return BatchPlanner.plan(client, targets, inventory);
+	}
+
+	@Override
+	public InventoryCapacity.Result simulateCapacity(List<CraftingPlan.CraftingStep> steps) {
+		return InventoryCapacity.simulate(client.player, steps);
+	}
+
+	@Override
+	public void sendCraftRequest(NetworkRecipeId recipeId, boolean craftAll) {
+		VanillaCraftingHelper.sendCraftRequest(recipeId, craftAll);
+	}
+
+	@Override
+	public int sendClick(int slot, int button, SlotActionType action) {
+		// Used for the result shift-click, which the client cannot predict
+		// (it does not compute crafting results); the server sends back what changed
+		return send(slot, button, action, new Int2ObjectArrayMap<>(), ItemStackHash.EMPTY);
+	}
+
+	@Override
+	public int sendClick(int slot, int button, SlotActionType action, Map<Integer, ItemStack> changed, ItemStack cursor) {
+		// The server takes the sent contents as what the client holds and only
+		// sends slots that differ from them, so the client's view has to match
+		ScreenHandler handler = client.player.currentScreenHandler;
+		ComponentChangesHash.ComponentHasher hasher = client.getNetworkHandler().getComponentHasher();
+		Int2ObjectMap<ItemStackHash> modified = new Int2ObjectArrayMap<>();
+		for (Map.Entry<Integer, ItemStack> entry : changed.entrySet()) {
+			handler.getSlot(entry.getKey()).setStackNoCallbacks(entry.getValue().copy());
+			modified.put(entry.getKey().intValue(), ItemStackHash.fromItemStack(entry.getValue(), hasher));
+		}
+		handler.setCursorStack(cursor.copy());
+		return send(slot, button, action, modified, ItemStackHash.fromItemStack(cursor, hasher));
+	}
+
+	private int send(int slot, int button, SlotActionType action, Int2ObjectMap<ItemStackHash> modified, ItemStackHash cursor) {
+		ScreenHandler handler = client.player.currentScreenHandler;
+		int syncId = handler.syncId;
+		// Clicks sent ahead of a confirmation carry the state id the client last
+		// heard; the server resyncs if it moved on since
+		int stateId = handler.getRevision();
+
+		SmartRecipeBookMod.LOGGER.debug("Sending click on slot {} (syncId: {}, stateId: {}, {}, {} predicted slots)",
+			slot, syncId, stateId, action, modified.size());
+
+		ClickSlotC2SPacket packet = new ClickSlotC2SPacket(syncId, stateId, (short) slot, (byte) button, action, modified, cursor);
+		client.getNetworkHandler().sendPacket(packet);
+		return stateId;
+	}
+
+	@Override
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+}
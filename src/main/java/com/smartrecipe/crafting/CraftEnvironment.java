@@ -0,0 +1,118 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.recipe.BatchPlanner;
+import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.InventoryCapacity;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.screen.slot.SlotActionType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What AutoCraftExecutor needs from the game: the inventory and handler it
+ * crafts in, the planner, a clock, and a way to send packets. ClientCraftEnvironment is
+ * the game client; SimulatedCraftServer stands in for it in the tests.
+ */
+public interface CraftEnvironment {
+
+	/**
+	 * Whether there is a player with an open handler to craft in
+	 */
+	boolean isReady();
+
+	/**
+	 * Item counts of the player's main inventory, as the client last heard them
+	 * from the server (without the overlays of batches in flight)
+	 */
+	Map<Item, Integer> getInventory();
+
+	/**
+	 * Show the expected effect of a batch sent to the server in the inventory
+	 * everything else reads, until it is removed
+	 * @param delta Change per item (negative for consumed items)
+	 * @return Id to remove the overlay with
+	 */
+	long addOverlay(Map<Item, Integer> delta);
+
+	/**
+	 * Remove a batch's overlay, once it landed or will not
+	 */
+	void removeOverlay(long overlay);
+
+	/**
+	 * Revision (state id) of the open handler, as the client last heard it
+	 */
+	int getRevision();
+
+	/**
+	 * Key of the server, for per-server settings and latency profiles
+	 */
+	String getServerKey();
+
+	/**
+	 * Whether the server's recipe book accepts craft requests for the recipe
+	 */
+	boolean isUnlocked(NetworkRecipeId recipeId);
+
+	/**
+	 * Complete sets of the step's recipe sitting in the open handler's crafting
+	 * grid, as the client last heard it (0 if it holds anything else)
+	 */
+	int residentCrafts(CraftingPlan.CraftingStep step);
+
+	/**
+	 * Slot clicks placing crafts of the step into the open handler's crafting
+	 * grid, planned on the client's view of its slots
+	 * @return The clicks, or null if the step cannot be placed with slot clicks
+	 */
+	List<SlotTransferHelper.Click> planPlacement(CraftingPlan.CraftingStep step, int crafts);
+
+	/**
+	 * Plan crafting a recipe several times, sharing batch yields and leftovers
+	 * @param inventory Inventory to plan against, or null for the current one
+	 * @return The plan, or null if the recipe is not a known crafting recipe
+	 */
+	CraftingPlan planCrafts(NetworkRecipeId recipeId, int crafts, Map<Item, Integer> inventory);
+
+	/**
+	 * Plan several targets together, sharing intermediates between them
+	 * @param inventory Inventory to plan against, or null for the current one
+	 * @return The plan, or null if no target has a known crafting recipe
+	 */
+	CraftingPlan planTargets(List<BatchPlanner.Target> targets, Map<Item, Integer> inventory);
+
+	/**
+	 * Simulate the inventory slots through the steps, from the current inventory
+	 */
+	InventoryCapacity.Result simulateCapacity(List<CraftingPlan.CraftingStep> steps);
+
+	/**
+	 * Send a CraftRequestC2SPacket for the open handler
+	 */
+	void sendCraftRequest(NetworkRecipeId recipeId, boolean craftAll);
+
+	/**
+	 * Send a ClickSlotC2SPacket for the open handler, without predicting its effect
+	 * @return The state id the click was sent with
+	 */
+	int sendClick(int slot, int button, SlotActionType action);
+
+	/**
+	 * Send a ClickSlotC2SPacket for the open handler, applying its predicted
+	 * effect to the client's view and sending it along, as vanilla does for
+	 * the player's own clicks
+	 * @param changed New contents of the slots the click changes, by handler slot id
+	 * @param cursor The cursor after the click
+	 * @return The state id the click was sent with
+	 */
+	int sendClick(int slot, int button, SlotActionType action, Map<Integer, ItemStack> changed, ItemStack cursor);
+
+	/**
+	 * Monotonic time, for round trips
+	 */
+	long nanoTime();
+}
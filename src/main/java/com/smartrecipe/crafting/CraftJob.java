@@ -0,0 +1,183 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.recipe.CraftingPlan;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One crafting plan queued in or run by AutoCraftExecutor, with its progress
+ * and timings. The executor drives the package-private state directly.
+ */
+public class CraftJob {
+
+	public enum Status {
+		QUEUED,
+		RUNNING,
+		DONE,
+		FAILED,
+		CANCELLED
+	}
+
+	private final int id;
+	private final int priority;
+	private final CraftingPlan plan;
+
+	// Progress
+	Status status = Status.QUEUED;
+	Status stopStatus = null; // FAILED or CANCELLED while running, applied once its batches in flight have landed
+	List<CraftingPlan.CraftingStep> steps;
+	int stepIndex = 0; // Step of the next craft to send
+	int craftInStep = 0; // Crafts already sent for the current step
+
+	// Inventory the plan predicts once every batch sent so far has landed
+	final Map<Item, Integer> predictedInventory = new HashMap<>();
+
+	// Re-planning after a deviation
+	final Map<Item, Integer> targetDeltas; // How much of each target the job adds
+	final Map<Item, Integer> targetGoals = new LinkedHashMap<>(); // Target counts once the job is done
+	boolean replanPending = false; // Deviation seen, waiting for the batches in flight to drain
+	int replans = 0;
+
+	int peakSlots = 0; // Most inventory slots the steps occupy at once, simulated
+
+	// Timings, in executor ticks
+	final long queuedTick;
+	long startedTick = -1;
+	long finishedTick = -1;
+
+	// Counters
+	int sentCrafts = 0;
+	int sentPackets = 0;
+	int confirmedBatches = 0;
+	int timedOutBatches = 0;
+	int failedBatches = 0;
+	int peakInFlight = 0;
+
+	// Grid residency
+	int mergedSteps = 0; // Consecutive steps of one recipe merged into one
+	int residentCrafts = 0; // Crafts made from sets left in the grid
+	int skippedRequests = 0; // Placement requests not sent because the grid held the sets
+	int slotUpdates = 0; // Slot updates received while running
+
+	CraftJob(int id, int priority, CraftingPlan plan, List<CraftingPlan.CraftingStep> steps, long queuedTick) {
+		this.id = id;
+		this.priority = priority;
+		this.plan = plan;
+		this.steps = steps;
+		this.queuedTick = queuedTick;
+
+		// What the steps add to each target, so the goals can be set from the inventory the job starts with
+		Map<Item, Integer> delta = delta(steps, 0, 0);
+		targetDeltas = new LinkedHashMap<>();
+		for (ItemStack target : plan.getTargets()) {
+			targetDeltas.put(target.getItem(), delta.getOrDefault(target.getItem(), 0));
+		}
+	}
+
+	/**
+	 * Net change the steps make to the inventory, from a step and craft on
+	 * (steps without recorded inputs only count their results)
+	 */
+	static Map<Item, Integer> delta(List<CraftingPlan.CraftingStep> steps, int fromStep, int craftsDone) {
+		Map<Item, Integer> delta = new HashMap<>();
+		for (int i = fromStep; i < steps.size(); i++) {
+			CraftingPlan.CraftingStep step = steps.get(i);
+			int crafts = step.getQuantity() - (i == fromStep ? craftsDone : 0);
+			if (crafts <= 0) continue;
+
+			for (Map.Entry<Item, Integer> input : step.getInputs().entrySet()) {
+				// Inputs are recorded over all crafts of the step
+				delta.merge(input.getKey(), -input.getValue() * crafts / step.getQuantity(), Integer::sum);
+			}
+			if (!step.getResult().isEmpty()) {
+				delta.merge(step.getResult().getItem(), step.getResult().getCount() * crafts, Integer::sum);
+			}
+		}
+		return delta;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	public CraftingPlan getPlan() {
+		return plan;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isFinished() {
+		return status != Status.QUEUED && status != Status.RUNNING;
+	}
+
+	/**
+	 * Steps not sent yet
+	 */
+	public int getRemainingSteps() {
+		return steps.size() - stepIndex;
+	}
+
+	/**
+	 * Items the job will still take out of the inventory (net of what its own steps produce)
+	 */
+	public Map<Item, Integer> getReservation() {
+		Map<Item, Integer> reservation = new HashMap<>();
+		for (Map.Entry<Item, Integer> entry : delta(steps, stepIndex, craftInStep).entrySet()) {
+			if (entry.getValue() < 0) {
+				reservation.put(entry.getKey(), -entry.getValue());
+			}
+		}
+		return Collections.unmodifiableMap(reservation);
+	}
+
+	/**
+	 * Most main inventory slots the job occupies at once, as last simulated
+	 */
+	public int getPeakSlots() {
+		return peakSlots;
+	}
+
+	/**
+	 * Ticks spent in the queue before starting (so far, if still queued)
+	 */
+	public long getWaitTicks() {
+		return (startedTick >= 0 ? startedTick : AutoCraftExecutor.getTicks()) - queuedTick;
+	}
+
+	/**
+	 * Ticks spent running (so far, if still running; 0 if it never started)
+	 */
+	public long getRunTicks() {
+		if (startedTick < 0) return 0;
+		return (finishedTick >= 0 ? finishedTick : AutoCraftExecutor.getTicks()) - startedTick;
+	}
+
+	/**
+	 * Share of packets saved against sending every craft on its own (a request
+	 * and a shift-click each), in percent. A craftAll batch takes two packets
+	 * for up to a stack of crafts, but a staged batch of N crafts takes N
+	 * requests and one shift-click, so it saves less than half.
+	 */
+	public double getPacketSavings() {
+		if (sentCrafts == 0) return 0;
+		return 100.0 * (1 - sentPackets / (2.0 * sentCrafts));
+	}
+
+	@Override
+	public String toString() {
+		return "#" + id + " " + plan.getTargetItem().getName().getString() + " (" + status + ", priority " + priority + ")";
+	}
+}
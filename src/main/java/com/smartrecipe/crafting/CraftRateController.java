@@ -0,0 +1,297 @@
+package com.smartrecipe.crafting;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.client.MinecraftClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Paces craft requests to what the current server sustains.
+ *
+ * Every confirmed batch gives a round-trip time sample (request sent to
+ * result landed), kept per server as a smoothed RTT and deviation. The
+ * number of batches in flight follows AIMD: it grows by one batch per
+ * window's worth of confirmations and halves whenever a batch is lost or
+ * the RTT climbs far above the best seen (the server is queueing our
+ * packets). Independent of the window, a token bucket caps the packets
+ * sent per second so anti-spam limits are never hit.
+ *
+ * Profiles are saved when leaving a server and loaded at startup, so a
+ * server the client has played on starts from the window and RTT it had.
+ */
+public class CraftRateController {
+
+	private static final double MIN_WINDOW = 1.0;
+	private static final double INITIAL_WINDOW = 2.0;
+	private static final double RTT_GAIN = 0.125; // Smoothing of the RTT average
+	private static final double RTT_DEVIATION_GAIN = 0.25;
+	private static final double CONGESTION_RTT_FACTOR = 3.0; // RTT this far above the best counts as congestion...
+	private static final double CONGESTION_RTT_MARGIN_MS = 250; // ...if it is also this much slower
+	private static final int MIN_TIMEOUT_TICKS = 20;
+	private static final int MAX_TIMEOUT_TICKS = 100;
+
+	public static final int DEFAULT_MAX_PACKETS_PER_SECOND = 40;
+	private static final int MAX_PACKETS_PER_SECOND_LIMIT = 400;
+
+	private static int maxPacketsPerSecond = DEFAULT_MAX_PACKETS_PER_SECOND;
+	private static double packetTokens = 0;
+
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	private static final Map<String, LatencyProfile> profiles = new HashMap<>();
+	private static LatencyProfile current = null;
+
+	/**
+	 * What is saved of a profile. The time of the last decrease is on this
+	 * session's clock, so it is not kept.
+	 */
+	private record SavedProfile(double window, double smoothedRttMs, double rttDeviationMs, double minRttMs,
+								int samples, int losses) {}
+
+	/**
+	 * Round-trip times and window for one server
+	 */
+	public static class LatencyProfile {
+		private final String server;
+		private double window = INITIAL_WINDOW;
+		private double smoothedRttMs = -1;
+		private double rttDeviationMs = 0;
+		private double minRttMs = Double.MAX_VALUE;
+		private int samples = 0;
+		private int losses = 0;
+		private long lastDecreaseNanos = 0;
+
+		private LatencyProfile(String server) {
+			this.server = server;
+		}
+
+		public String getServer() {
+			return server;
+		}
+
+		public double getWindow() {
+			return window;
+		}
+
+		public double getSmoothedRttMs() {
+			return smoothedRttMs;
+		}
+
+		public double getMinRttMs() {
+			return samples == 0 ? -1 : minRttMs;
+		}
+
+		public int getSamples() {
+			return samples;
+		}
+
+		public int getLosses() {
+			return losses;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: window %.1f, rtt %.0fms (min %.0fms, dev %.0fms), %d samples, %d lost",
+				server, window, smoothedRttMs, getMinRttMs(), rttDeviationMs, samples, losses);
+		}
+	}
+
+	/**
+	 * Switch to the profile of the server the client is connected to
+	 */
+	public static LatencyProfile select(MinecraftClient client) {
+		return select(new ClientCraftEnvironment(client).getServerKey());
+	}
+
+	/**
+	 * Switch to the profile of a server (the address, or "singleplayer")
+	 */
+	public static LatencyProfile select(String server) {
+		if (current == null || !current.server.equals(server)) {
+			current = profiles.computeIfAbsent(server, LatencyProfile::new);
+			packetTokens = 0;
+			SmartRecipeBookMod.LOGGER.info("Craft rate profile {}", current);
+		}
+		return current;
+	}
+
+	/**
+	 * Batches that may be in flight now, at most the given cap
+	 */
+	public static int getWindow(int cap) {
+		if (current == null) return Math.min(cap, (int) INITIAL_WINDOW);
+		return Math.max(1, Math.min(cap, (int) current.window));
+	}
+
+	/**
+	 * A batch was confirmed after the given round-trip time
+	 * @param window Batches that were allowed in flight when it was sent
+	 * @param now Current time on the clock the round trip was measured with
+	 */
+	public static void onConfirmed(long rttNanos, int window, long now) {
+		if (current == null) return;
+		LatencyProfile profile = current;
+		double rttMs = rttNanos / 1_000_000.0;
+
+		// Smoothed RTT and deviation, as TCP keeps them
+		if (profile.smoothedRttMs < 0) {
+			profile.smoothedRttMs = rttMs;
+			profile.rttDeviationMs = rttMs / 2;
+		} else {
+			profile.rttDeviationMs += RTT_DEVIATION_GAIN * (Math.abs(rttMs - profile.smoothedRttMs) - profile.rttDeviationMs);
+			profile.smoothedRttMs += RTT_GAIN * (rttMs - profile.smoothedRttMs);
+		}
+		profile.minRttMs = Math.min(profile.minRttMs, rttMs);
+		profile.samples++;
+
+		if (profile.samples > 1 && rttMs > profile.minRttMs * CONGESTION_RTT_FACTOR
+			&& rttMs > profile.minRttMs + CONGESTION_RTT_MARGIN_MS) {
+			decrease(profile, "rtt " + Math.round(rttMs) + "ms", now);
+		} else if (window >= (int) profile.window) {
+			// Additive increase: one more batch per window of confirmations, only while the window is used
+			profile.window += 1.0 / profile.window;
+		}
+	}
+
+	/**
+	 * A batch was never confirmed or not applied as sent
+	 */
+	public static void onLost(long now) {
+		if (current == null) return;
+		current.losses++;
+		decrease(current, "lost batch", now);
+	}
+
+	/**
+	 * Multiplicative decrease, at most once per round trip so a burst of losses counts once
+	 */
+	private static void decrease(LatencyProfile profile, String reason, long now) {
+		double rttNanos = Math.max(profile.smoothedRttMs, 0) * 1_000_000;
+		if (now - profile.lastDecreaseNanos < rttNanos) return;
+
+		profile.lastDecreaseNanos = now;
+		profile.window = Math.max(MIN_WINDOW, profile.window / 2);
+		SmartRecipeBookMod.LOGGER.debug("Craft rate: {}, window down to {}", reason, String.format("%.1f", profile.window));
+	}
+
+	/**
+	 * Ticks to wait for a confirmation before counting the batch as lost:
+	 * the smoothed RTT plus four deviations, but at least a second
+	 */
+	public static int getTimeoutTicks() {
+		if (current == null || current.smoothedRttMs < 0) return MIN_TIMEOUT_TICKS;
+
+		double rtoMs = current.smoothedRttMs + 4 * current.rttDeviationMs;
+		return (int) Math.max(MIN_TIMEOUT_TICKS, Math.min(MAX_TIMEOUT_TICKS, Math.ceil(rtoMs / 50)));
+	}
+
+	/**
+	 * Refill the packet budget, once per client tick
+	 */
+	public static void onTick() {
+		double perTick = maxPacketsPerSecond / 20.0;
+		// Allow bursts of up to a quarter second worth of packets
+		packetTokens = Math.min(Math.max(perTick, maxPacketsPerSecond / 4.0), packetTokens + perTick);
+	}
+
+	/**
+	 * Whether the packet budget allows sending now. A batch may overdraw
+	 * the budget; later sends wait until it has been paid back.
+	 */
+	public static boolean canSend() {
+		return packetTokens >= 1;
+	}
+
+	/**
+	 * Charge sent packets to the budget
+	 */
+	public static void onSent(int packets) {
+		packetTokens -= packets;
+	}
+
+	/**
+	 * Set the most packets per second the executor may send
+	 */
+	public static void setMaxPacketsPerSecond(int packets) {
+		maxPacketsPerSecond = Math.max(1, Math.min(MAX_PACKETS_PER_SECOND_LIMIT, packets));
+	}
+
+	public static int getMaxPacketsPerSecond() {
+		return maxPacketsPerSecond;
+	}
+
+	/**
+	 * Profile of the current server, or null before the first job
+	 */
+	public static LatencyProfile getProfile() {
+		return current;
+	}
+
+	public static Map<String, LatencyProfile> getProfiles() {
+		return Map.copyOf(profiles);
+	}
+
+	/**
+	 * Write every profile to a file
+	 */
+	public static void save(Path file) {
+		Map<String, SavedProfile> saved = new TreeMap<>();
+		profiles.forEach((server, profile) -> saved.put(server, new SavedProfile(profile.window, profile.smoothedRttMs,
+			profile.rttDeviationMs, profile.minRttMs, profile.samples, profile.losses)));
+
+		try {
+			Files.createDirectories(file.getParent());
+			Files.writeString(file, GSON.toJson(saved));
+		} catch (IOException e) {
+			SmartRecipeBookMod.LOGGER.warn("Could not save craft rate profiles to {}", file, e);
+		}
+	}
+
+	/**
+	 * Read profiles saved by save(), replacing those of the same servers
+	 */
+	public static void load(Path file) {
+		if (!Files.exists(file)) return;
+
+		Map<String, SavedProfile> saved;
+		try {
+			saved = GSON.fromJson(Files.readString(file), new TypeToken<Map<String, SavedProfile>>() {}.getType());
+		} catch (IOException | JsonParseException e) {
+			SmartRecipeBookMod.LOGGER.warn("Could not load craft rate profiles from {}", file, e);
+			return;
+		}
+		if (saved == null) return;
+
+		saved.forEach((server, entry) -> {
+			LatencyProfile profile = new LatencyProfile(server);
+			profile.window = Math.max(MIN_WINDOW, entry.window());
+			profile.smoothedRttMs = entry.smoothedRttMs();
+			profile.rttDeviationMs = Math.max(0, entry.rttDeviationMs());
+			profile.minRttMs = entry.minRttMs();
+			profile.samples = Math.max(0, entry.samples());
+			profile.losses = Math.max(0, entry.losses());
+			profiles.put(server, profile);
+		});
+		current = null;
+		SmartRecipeBookMod.LOGGER.info("Loaded {} craft rate profiles", saved.size());
+	}
+
+	/**
+	 * Forget every profile
+	 */
+	static void clear() {
+		profiles.clear();
+		current = null;
+		packetTokens = 0;
+	}
+}
@@ -0,0 +1,68 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.recipe.CraftingPlan;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.screen.AbstractCraftingScreenHandler;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads what the crafting grid of the open screen holds, so the executor can
+ * craft from sets left in the grid instead of having the server clear the
+ * grid and place them again.
+ */
+public class CraftingGrid {
+
+	/**
+	 * Complete sets of the step's recipe sitting in the grid, 0 if the grid is
+	 * empty or holds anything else. The server shows a result only for a valid
+	 * arrangement, so the result slot tells which recipe the grid holds.
+	 */
+	public static int residentCrafts(ScreenHandler handler, CraftingPlan.CraftingStep step) {
+		if (!(handler instanceof AbstractCraftingScreenHandler crafting) || step.getResult().isEmpty()) return 0;
+
+		ItemStack output = crafting.getOutputSlot().getStack();
+		if (output.isEmpty() || output.getItem() != step.getResult().getItem()) return 0;
+
+		// Every occupied slot gives one item per craft; all must be inputs of this step
+		int crafts = Integer.MAX_VALUE;
+		for (Slot slot : crafting.getInputSlots()) {
+			ItemStack stack = slot.getStack();
+			if (stack.isEmpty()) continue;
+			if (!step.getInputs().isEmpty() && !step.getInputs().containsKey(stack.getItem())) return 0;
+			crafts = Math.min(crafts, stack.getCount());
+		}
+		return crafts == Integer.MAX_VALUE ? 0 : crafts;
+	}
+
+	/**
+	 * Merge consecutive steps of the same recipe into one, so their crafts are
+	 * batched into shared grid fills instead of the grid being cleared and
+	 * filled with the same arrangement again
+	 * @return The merged steps (the same list if nothing could be merged)
+	 */
+	public static List<CraftingPlan.CraftingStep> mergeConsecutive(List<CraftingPlan.CraftingStep> steps) {
+		List<CraftingPlan.CraftingStep> merged = new ArrayList<>();
+		for (CraftingPlan.CraftingStep step : steps) {
+			int last = merged.size() - 1;
+			CraftingPlan.CraftingStep previous = last >= 0 ? merged.get(last) : null;
+			if (previous != null && previous.getRecipeId().equals(step.getRecipeId()) && !step.isSmelting()
+				&& previous.getInputs().isEmpty() == step.getInputs().isEmpty()) {
+				Map<Item, Integer> inputs = new HashMap<>(previous.getInputs());
+				step.getInputs().forEach((item, count) -> inputs.merge(item, count, Integer::sum));
+				merged.set(last, new CraftingPlan.CraftingStep(step.getRecipeId(), step.getResult(),
+					previous.getQuantity() + step.getQuantity(), inputs, step.getStation(), step.getCookingTime()));
+			} else {
+				merged.add(step);
+			}
+		}
+		return merged.size() == steps.size() ? steps : merged;
+	}
+}
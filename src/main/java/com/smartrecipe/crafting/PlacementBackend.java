@@ -0,0 +1,109 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.client.MinecraftClient;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How the executor fills the crafting grid, chosen per server.
+ *
+ * RECIPE_BOOK sends CraftRequestC2SPacket and lets the server place the
+ * ingredients; SLOT_TRANSFER places them with slot clicks (SlotTransferHelper).
+ * A server whose batches keep failing with its backend is switched to the
+ * other one. Packets per craft are tracked for both.
+ */
+public class PlacementBackend {
+
+	public enum Type {
+		RECIPE_BOOK,
+		SLOT_TRANSFER
+	}
+
+	private static final int MAX_FAILURES = 3; // Failed batches in a row before falling back
+
+	private static Type defaultType = Type.RECIPE_BOOK;
+	private static final Map<String, Type> selected = new HashMap<>();
+	private static final Map<String, Integer> failures = new HashMap<>();
+	private static final Map<Type, long[]> usage = new EnumMap<>(Type.class); // Crafts and packets per backend
+
+	/**
+	 * Backend for servers without their own selection
+	 */
+	public static void setDefault(Type type) {
+		defaultType = type;
+	}
+
+	/**
+	 * Select the backend for a server (the address, or "singleplayer")
+	 */
+	public static void select(String server, Type type) {
+		selected.put(server, type);
+		failures.remove(server);
+	}
+
+	/**
+	 * Select the backend for the server the client is connected to
+	 */
+	public static void select(MinecraftClient client, Type type) {
+		select(new ClientCraftEnvironment(client).getServerKey(), type);
+	}
+
+	public static Type get(MinecraftClient client) {
+		return get(new ClientCraftEnvironment(client).getServerKey());
+	}
+
+	public static Type get(String server) {
+		return selected.getOrDefault(server, defaultType);
+	}
+
+	/**
+	 * A batch placed with the backend landed as predicted
+	 */
+	static void onSuccess(String server, Type type) {
+		if (type == get(server)) {
+			failures.remove(server);
+		}
+	}
+
+	/**
+	 * A batch placed with the backend failed; after a few in a row the server falls back to the other one
+	 */
+	static void onFailure(String server, Type type) {
+		if (type != get(server)) return;
+
+		int failed = failures.merge(server, 1, Integer::sum);
+		if (failed >= MAX_FAILURES) {
+			Type fallback = type == Type.RECIPE_BOOK ? Type.SLOT_TRANSFER : Type.RECIPE_BOOK;
+			SmartRecipeBookMod.LOGGER.warn("{} failed {} batches in a row on {}, falling back to {}", type, failed, server, fallback);
+			select(server, fallback);
+		}
+	}
+
+	/**
+	 * Count the packets a batch of crafts took with a backend
+	 */
+	static void record(Type type, int crafts, int packets) {
+		long[] totals = usage.computeIfAbsent(type, k -> new long[2]);
+		totals[0] += crafts;
+		totals[1] += packets;
+	}
+
+	/**
+	 * Packets per craft of each backend used so far
+	 */
+	public static String describeUsage() {
+		List<String> parts = new ArrayList<>();
+		for (Map.Entry<Type, long[]> entry : usage.entrySet()) {
+			long[] totals = entry.getValue();
+			parts.add(entry.getKey() + " " + String.format("%.2f", totals[0] == 0 ? 0 : totals[1] / (double) totals[0])
+				+ " packets/craft over " + totals[0] + " crafts");
+		}
+		return String.join(", ", parts);
+	}
+}
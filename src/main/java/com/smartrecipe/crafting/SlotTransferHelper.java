@@ -0,0 +1,543 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.SmartRecipeBookMod;
+import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.RecipeGraph;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.display.RecipeDisplay;
+import net.minecraft.recipe.display.ShapedCraftingRecipeDisplay;
+import net.minecraft.recipe.display.ShapelessCraftingRecipeDisplay;
+import net.minecraft.recipe.display.SlotDisplay;
+import net.minecraft.recipe.display.SlotDisplayContexts;
+import net.minecraft.screen.AbstractCraftingScreenHandler;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+import net.minecraft.screen.slot.SlotActionType;
+import net.minecraft.util.context.ContextParameterMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Places ingredients into the crafting grid with plain slot clicks instead of
+ * the server's recipe book placement, for servers where that is slow,
+ * disabled or refuses recipes it considers locked.
+ *
+ * The whole click sequence is worked out up front on a model of the
+ * inventory, grid and cursor. Each ingredient is picked up once (gathered
+ * into one stack where that helps) and spread over all grid slots that take
+ * it with a quick-craft drag, so a set of N slots costs N + 2 clicks rather
+ * than one click per item. When the cursor holds more than the slots need,
+ * the cheaper of a few one-each drags or a drag that also covers spare
+ * inventory slots is used. A double-click collects from every slot of the
+ * handler, so an ingredient that is also in the armor or offhand slots (which
+ * the model does not follow) is never gathered.
+ *
+ * Stacks are told apart by item and components, the way they merge: a named
+ * or enchanted stack is neither gathered with plain ones nor dragged onto
+ * them, and plain stacks are used first. Every click carries what the model
+ * expects the changed slots and the cursor to hold after it, so the server
+ * only answers where the prediction was wrong.
+ */
+public class SlotTransferHelper {
+
+	private static final int OUTSIDE = ScreenHandler.EMPTY_SPACE_SLOT_INDEX;
+	private static final int MAX_CLICKS = 512; // Give up on sequences longer than this
+	private static final int LEFT_DRAG = 0;
+	private static final int RIGHT_DRAG = 1;
+
+	/**
+	 * One click to send, with the slots it is predicted to leave behind
+	 * @param slot Handler slot id, or OUTSIDE for the start and end of a drag
+	 * @param changed New contents of the slots the click changes, by handler slot id
+	 * @param cursor The cursor after the click
+	 */
+	public record Click(int slot, int button, SlotActionType action, Map<Integer, ItemStack> changed, ItemStack cursor) {}
+
+	/**
+	 * Work out the clicks that add the given number of sets of the step's
+	 * recipe to the grid. Anything already in the grid must be part of the
+	 * same arrangement.
+	 * @return The clicks, or null if the recipe cannot be placed this way
+	 */
+	public static List<Click> planPlacement(MinecraftClient client, CraftingPlan.CraftingStep step, int crafts) {
+		if (client.player == null || client.world == null || crafts <= 0) return null;
+		if (!(client.player.currentScreenHandler instanceof AbstractCraftingScreenHandler handler)) return null;
+		if (!handler.getCursorStack().isEmpty()) return null;
+
+		RecipeGraph.RecipeNode node = RecipeGraph.get(client.world).getNode(step.getRecipeId());
+		if (node == null || node.isSmelting()) return null;
+
+		int width = (int) Math.round(Math.sqrt(handler.getInputSlots().size()));
+		Map<Integer, List<Item>> layout = layout(node, width, SlotDisplayContexts.createParameters(client.world));
+		if (layout == null) return null;
+
+		return planPlacement(Model.of(client, handler), layout, step, crafts);
+	}
+
+	/**
+	 * Work out the clicks on a model of the handler's slots
+	 * @param layout Accepted items per grid position (an index into the model's grid slots)
+	 * @return The clicks, or null if the recipe cannot be placed this way
+	 */
+	static List<Click> planPlacement(Model model, Map<Integer, List<Item>> layout, CraftingPlan.CraftingStep step, int crafts) {
+		if (crafts <= 0) return null;
+
+		// Grid slots outside the arrangement must be empty
+		for (int i = 0; i < model.gridIds.size(); i++) {
+			if (!layout.containsKey(i) && model.gridItems.get(model.gridIds.get(i)) != null) return null;
+		}
+
+		// Pick a kind of stack for every grid slot, preferring what the planner chose
+		Map<ItemStack, Integer> available = model.totals();
+		Map<ItemStack, List<Integer>> groups = new LinkedHashMap<>();
+		for (Map.Entry<Integer, List<Item>> position : layout.entrySet()) {
+			if (position.getKey() >= model.gridIds.size()) return null;
+
+			int slot = model.gridIds.get(position.getKey());
+			ItemStack kind = chooseKind(position.getValue(), model.gridItems.get(slot), step, available, crafts);
+			if (kind == null) return null;
+
+			available.merge(kind, -crafts, Integer::sum);
+			groups.computeIfAbsent(kind, k -> new ArrayList<>()).add(slot);
+		}
+
+		List<Click> clicks = new ArrayList<>();
+		for (Map.Entry<ItemStack, List<Integer>> group : groups.entrySet()) {
+			if (!model.place(group.getKey(), group.getValue(), crafts, clicks)) return null;
+		}
+		return clicks;
+	}
+
+	/**
+	 * Send the clicks of a placement
+	 */
+	public static void send(CraftEnvironment environment, List<Click> clicks) {
+		// Sent without waiting for the server in between. Every click carries the
+		// current state id and its predicted slots, which stay valid while the
+		// server agrees with them, so it only resyncs after a wrong prediction.
+		for (Click click : clicks) {
+			environment.sendClick(click.slot(), click.button(), click.action(), click.changed(), click.cursor());
+		}
+		SmartRecipeBookMod.LOGGER.debug("Sent {} placement clicks", clicks.size());
+	}
+
+	/**
+	 * Grid slot index (row-major in a grid of the given width) and accepted items of every ingredient
+	 * @return null if the recipe does not fit the grid
+	 */
+	private static Map<Integer, List<Item>> layout(RecipeGraph.RecipeNode node, int width, ContextParameterMap contextParams) {
+		RecipeDisplay display = node.getEntry().display();
+		List<SlotDisplay> ingredients;
+		int recipeWidth;
+		if (display instanceof ShapedCraftingRecipeDisplay shaped) {
+			if (shaped.width() > width || shaped.height() > width) return null;
+			ingredients = shaped.ingredients();
+			recipeWidth = shaped.width();
+		} else if (display instanceof ShapelessCraftingRecipeDisplay shapeless) {
+			if (shapeless.ingredients().size() > width * width) return null;
+			ingredients = shapeless.ingredients();
+			recipeWidth = width;
+		} else {
+			return null;
+		}
+
+		Map<Integer, List<Item>> layout = new LinkedHashMap<>();
+		for (int i = 0; i < ingredients.size(); i++) {
+			List<Item> options = new ArrayList<>();
+			for (ItemStack stack : ingredients.get(i).getStacks(contextParams)) {
+				if (!stack.isEmpty() && !options.contains(stack.getItem())) {
+					options.add(stack.getItem());
+				}
+			}
+			if (!options.isEmpty()) {
+				layout.put((i / recipeWidth) * width + i % recipeWidth, options);
+			}
+		}
+		return layout;
+	}
+
+	/**
+	 * Kind of stack for one grid slot: whatever it already holds, else an
+	 * option the step consumes, else any option there is enough of
+	 * @param current Kind the slot holds, null if empty
+	 */
+	private static ItemStack chooseKind(List<Item> options, ItemStack current, CraftingPlan.CraftingStep step,
+										Map<ItemStack, Integer> available, int crafts) {
+		if (current != null) {
+			return options.contains(current.getItem()) && available.getOrDefault(current, 0) >= crafts ? current : null;
+		}
+
+		ItemStack fallback = null;
+		for (Item option : options) {
+			ItemStack kind = bestKind(option, available, crafts);
+			if (kind == null) continue;
+			if (step.getInputs().containsKey(option)) return kind;
+			if (fallback == null) fallback = kind;
+		}
+		return fallback;
+	}
+
+	/**
+	 * Kind of the item there is enough of: plain stacks before ones with
+	 * components of their own (names, enchantments), then the most plentiful
+	 */
+	private static ItemStack bestKind(Item item, Map<ItemStack, Integer> available, int crafts) {
+		ItemStack best = null;
+		for (Map.Entry<ItemStack, Integer> entry : available.entrySet()) {
+			ItemStack kind = entry.getKey();
+			if (kind.getItem() != item || entry.getValue() < crafts) continue;
+
+			if (best == null) {
+				best = kind;
+				continue;
+			}
+			boolean plain = kind.getComponentChanges().isEmpty();
+			boolean bestPlain = best.getComponentChanges().isEmpty();
+			if (plain != bestPlain ? plain : entry.getValue() > available.get(best)) {
+				best = kind;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The player inventory slots of the handler, its grid and the cursor, updated as clicks are planned.
+	 * Slots of a handler are added in slot id order.
+	 *
+	 * Slots hold kinds: one stack per item and components, shared by every
+	 * slot whose stack would merge with it, so kinds compare by identity.
+	 */
+	static class Model {
+		private final List<ItemStack> kinds = new ArrayList<>();
+		private final List<Integer> ids = new ArrayList<>();
+		private final List<ItemStack> items = new ArrayList<>();
+		private final List<Integer> counts = new ArrayList<>();
+		private final List<Integer> gridIds = new ArrayList<>(); // In grid order
+		private final Map<Integer, Integer> gridCounts = new HashMap<>();
+		private final Map<Integer, ItemStack> gridItems = new HashMap<>();
+		private final Set<ItemStack> otherItems = new HashSet<>(); // Held in slots the model does not track (armor, offhand)
+		private ItemStack cursorItem = null;
+		private int cursor = 0;
+		private int cursorOrigin = -1; // Model index the cursor was last loaded from
+
+		static Model of(MinecraftClient client, AbstractCraftingScreenHandler handler) {
+			Model model = new Model();
+			List<Slot> grid = handler.getInputSlots();
+			for (Slot slot : grid) {
+				model.addGridSlot(slot.id, slot.getStack());
+			}
+			for (Slot slot : handler.slots) {
+				if (grid.contains(slot) || slot == handler.getOutputSlot()) continue;
+
+				if (slot.inventory == client.player.getInventory() && slot.getIndex() < 36) {
+					model.addInventorySlot(slot.id, slot.getStack());
+				} else {
+					model.addOtherItem(slot.getStack());
+				}
+			}
+			return model;
+		}
+
+		/**
+		 * Add a main inventory slot
+		 */
+		void addInventorySlot(int id, ItemStack stack) {
+			ids.add(id);
+			items.add(kind(stack));
+			counts.add(stack.getCount());
+		}
+
+		/**
+		 * Add a main inventory slot holding a plain stack
+		 * @param item Item it holds, null if empty
+		 */
+		void addInventorySlot(int id, Item item, int count) {
+			addInventorySlot(id, item == null ? ItemStack.EMPTY : new ItemStack(item, count));
+		}
+
+		/**
+		 * Add the next crafting grid slot, in grid order
+		 */
+		void addGridSlot(int id, ItemStack stack) {
+			gridIds.add(id);
+			gridItems.put(id, kind(stack));
+			gridCounts.put(id, stack.getCount());
+		}
+
+		/**
+		 * Add the next crafting grid slot, holding a plain stack
+		 * @param item Item it holds, null if empty
+		 */
+		void addGridSlot(int id, Item item, int count) {
+			addGridSlot(id, item == null ? ItemStack.EMPTY : new ItemStack(item, count));
+		}
+
+		/**
+		 * Note a stack in a slot outside the main inventory and grid that a
+		 * double-click also collects from (armor, offhand)
+		 */
+		void addOtherItem(ItemStack stack) {
+			if (!stack.isEmpty()) {
+				otherItems.add(kind(stack));
+			}
+		}
+
+		void addOtherItem(Item item) {
+			addOtherItem(new ItemStack(item));
+		}
+
+		/**
+		 * The kind a stack belongs to, null for an empty stack
+		 */
+		private ItemStack kind(ItemStack stack) {
+			if (stack.isEmpty()) return null;
+
+			for (ItemStack kind : kinds) {
+				if (ItemStack.areItemsAndComponentsEqual(kind, stack)) return kind;
+			}
+			ItemStack kind = stack.copyWithCount(1);
+			kinds.add(kind);
+			return kind;
+		}
+
+		/**
+		 * Items held in the main inventory, per kind in order of first appearance
+		 */
+		Map<ItemStack, Integer> totals() {
+			Map<ItemStack, Integer> totals = new LinkedHashMap<>();
+			for (int i = 0; i < ids.size(); i++) {
+				if (items.get(i) != null) {
+					totals.merge(items.get(i), counts.get(i), Integer::sum);
+				}
+			}
+			return totals;
+		}
+
+		/**
+		 * Plan the clicks that add the given number of items of one kind to each target grid slot
+		 */
+		boolean place(ItemStack item, List<Integer> targets, int need, List<Click> clicks) {
+			int max = item.getMaxCount();
+			Map<Integer, Integer> remaining = new LinkedHashMap<>();
+			for (int target : targets) {
+				remaining.put(target, need);
+			}
+			// A double-click would also pull the item out of the grid, armor or offhand
+			boolean noGather = targets.stream().anyMatch(target -> gridItems.get(target) == item) || otherItems.contains(item);
+
+			while (!remaining.isEmpty()) {
+				if (clicks.size() > MAX_CLICKS) return false;
+
+				if (cursor == 0) {
+					int source = largestStack(item);
+					if (source < 0) return false;
+					load(source, need * remaining.size(), max, !noGather, clicks);
+					noGather = true; // Gathering again would pull items back out of the grid
+				}
+
+				List<Integer> pending = new ArrayList<>(remaining.keySet());
+				int slots = pending.size();
+				int least = remaining.values().stream().min(Integer::compare).orElse(0);
+
+				if (cursor < slots) {
+					// Not enough for every slot: one each into as many as it covers
+					drag(pending.subList(0, cursor), RIGHT_DRAG, remaining, clicks);
+				} else if (cursor / slots <= least) {
+					drag(pending, LEFT_DRAG, remaining, clicks);
+				} else {
+					// More than the slots need: one-each drags, or an even drag that spills into spare slots
+					List<Integer> spill = spillSlots(slots, least);
+					int roundsCost = least * (slots == 1 ? 1 : slots + 2);
+					int spillCost = spill == null ? Integer.MAX_VALUE : slots + spill.size() + 2;
+					int spillPlaced = spill == null ? 0 : cursor / (slots + spill.size()) * slots;
+					if (spill != null && spillPlaced * roundsCost >= least * slots * spillCost) {
+						List<Integer> dragged = new ArrayList<>(pending);
+						dragged.addAll(spill);
+						drag(dragged, LEFT_DRAG, remaining, clicks);
+					} else {
+						for (int i = 0; i < least; i++) {
+							drag(pending, RIGHT_DRAG, remaining, clicks);
+						}
+					}
+				}
+			}
+
+			// Put back whatever is left on the cursor
+			if (cursor > 0) {
+				int slot = roomFor(item, cursor);
+				if (slot < 0) return false;
+				items.set(slot, item);
+				counts.set(slot, counts.get(slot) + cursor);
+				cursor = 0;
+				cursorItem = null;
+				click(ids.get(slot), 0, SlotActionType.PICKUP, List.of(ids.get(slot)), clicks);
+			}
+			return true;
+		}
+
+		/**
+		 * Pick up a stack, and gather more of the item onto the cursor when that saves a reload
+		 */
+		private void load(int source, int wanted, int max, boolean mayGather, List<Click> clicks) {
+			cursorItem = items.get(source);
+			cursor = counts.get(source);
+			cursorOrigin = source;
+			counts.set(source, 0);
+			items.set(source, null);
+			click(ids.get(source), 0, SlotActionType.PICKUP, List.of(ids.get(source)), clicks);
+
+			if (!mayGather || cursor >= Math.min(wanted, max)) return;
+
+			// Double-click on the now empty slot collects the kind from the
+			// other slots (non-full stacks first) up to a full stack
+			Set<Integer> gathered = new LinkedHashSet<>();
+			for (int pass = 0; pass < 2 && cursor < max; pass++) {
+				for (int i = 0; i < ids.size() && cursor < max; i++) {
+					if (items.get(i) != cursorItem || (pass == 0 && counts.get(i) >= max)) continue;
+
+					int taken = Math.min(max - cursor, counts.get(i));
+					cursor += taken;
+					counts.set(i, counts.get(i) - taken);
+					if (counts.get(i) == 0) items.set(i, null);
+					gathered.add(ids.get(i));
+				}
+			}
+			if (!gathered.isEmpty()) {
+				click(ids.get(source), 0, SlotActionType.PICKUP_ALL, gathered, clicks);
+			}
+		}
+
+		/**
+		 * Quick-craft drag over the slots (a single slot is a plain click);
+		 * left drags split the cursor evenly, right drags place one each
+		 */
+		private void drag(List<Integer> slots, int type, Map<Integer, Integer> remaining, List<Click> clicks) {
+			ItemStack item = cursorItem;
+			int per = type == LEFT_DRAG ? cursor / slots.size() : 1;
+			if (slots.size() > 1) {
+				// Starting a drag and adding slots to it changes nothing yet
+				click(OUTSIDE, ScreenHandler.packQuickCraftData(0, type), SlotActionType.QUICK_CRAFT, List.of(), clicks);
+				for (int slot : slots) {
+					click(slot, ScreenHandler.packQuickCraftData(1, type), SlotActionType.QUICK_CRAFT, List.of(), clicks);
+				}
+			}
+
+			int max = item.getMaxCount();
+			for (int slot : slots) {
+				Integer left = remaining.get(slot);
+				if (left != null) {
+					// Grid slot
+					int placed = Math.min(per, max - gridCounts.get(slot));
+					gridItems.put(slot, item);
+					gridCounts.put(slot, gridCounts.get(slot) + placed);
+					cursor -= placed;
+					if (left - placed <= 0) {
+						remaining.remove(slot);
+					} else {
+						remaining.put(slot, left - placed);
+					}
+				} else {
+					// Spare inventory slot
+					int index = ids.indexOf(slot);
+					int placed = Math.min(per, max - counts.get(index));
+					items.set(index, item);
+					counts.set(index, counts.get(index) + placed);
+					cursor -= placed;
+				}
+			}
+			if (cursor == 0) {
+				cursorItem = null;
+			}
+
+			if (slots.size() == 1) {
+				click(slots.get(0), type, SlotActionType.PICKUP, slots, clicks);
+			} else {
+				click(OUTSIDE, ScreenHandler.packQuickCraftData(2, type), SlotActionType.QUICK_CRAFT, slots, clicks);
+			}
+		}
+
+		/**
+		 * Add a click, predicting the given slots and the cursor as the model has them now
+		 */
+		private void click(int slot, int button, SlotActionType action, Collection<Integer> changed, List<Click> clicks) {
+			Map<Integer, ItemStack> stacks = new LinkedHashMap<>();
+			for (int id : changed) {
+				stacks.put(id, stackAt(id));
+			}
+			clicks.add(new Click(slot, button, action, stacks,
+				cursorItem == null ? ItemStack.EMPTY : cursorItem.copyWithCount(cursor)));
+		}
+
+		private ItemStack stackAt(int id) {
+			ItemStack kind;
+			int count;
+			if (gridItems.containsKey(id)) {
+				kind = gridItems.get(id);
+				count = gridCounts.get(id);
+			} else {
+				int index = ids.indexOf(id);
+				kind = items.get(index);
+				count = counts.get(index);
+			}
+			return kind == null ? ItemStack.EMPTY : kind.copyWithCount(count);
+		}
+
+		/**
+		 * Inventory slots to spill into alongside the grid slots so an even
+		 * split gives each grid slot no more than it needs
+		 * @return The slots, or null if there are not enough spare slots
+		 */
+		private List<Integer> spillSlots(int gridSlots, int least) {
+			int total = (cursor + least) / (least + 1); // Slots needed so cursor / total <= least
+			int needed = total - gridSlots;
+			if (needed <= 0) return List.of();
+
+			List<Integer> spill = new ArrayList<>();
+			// The slot the cursor came from first, then empty ones
+			if (cursorOrigin >= 0 && items.get(cursorOrigin) == null) {
+				spill.add(ids.get(cursorOrigin));
+			}
+			for (int i = 0; i < ids.size() && spill.size() < needed; i++) {
+				if (i != cursorOrigin && items.get(i) == null) {
+					spill.add(ids.get(i));
+				}
+			}
+			if (spill.size() < needed || gridSlots + spill.size() > cursor) return null;
+			return spill.subList(0, needed);
+		}
+
+		private int largestStack(ItemStack item) {
+			int best = -1;
+			for (int i = 0; i < ids.size(); i++) {
+				if (items.get(i) == item && (best < 0 || counts.get(i) > counts.get(best))) {
+					best = i;
+				}
+			}
+			return best;
+		}
+
+		private int roomFor(ItemStack item, int count) {
+			if (cursorOrigin >= 0 && (items.get(cursorOrigin) == null
+				|| (items.get(cursorOrigin) == item && counts.get(cursorOrigin) + count <= item.getMaxCount()))) {
+				return cursorOrigin;
+			}
+			for (int i = 0; i < ids.size(); i++) {
+				if (items.get(i) == null || (items.get(i) == item && counts.get(i) + count <= item.getMaxCount())) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
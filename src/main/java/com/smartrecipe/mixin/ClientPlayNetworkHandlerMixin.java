@@ -1,15 +1,21 @@
 package com.smartrecipe.mixin;
 
 import com.smartrecipe.crafting.AutoCraftExecutor;
+import com.smartrecipe.recipe.InventoryMirror;
 import com.smartrecipe.recipe.RecipeCache;
 
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.network.packet.s2c.play.ScreenHandlerSlotUpdateS2CPacket;
 import net.minecraft.network.packet.s2c.play.InventoryS2CPacket;
 import net.minecraft.network.packet.s2c.play.RecipeBookAddS2CPacket;
 import net.minecraft.network.packet.s2c.play.RecipeBookRemoveS2CPacket;
+import net.minecraft.network.packet.s2c.play.SetPlayerInventoryS2CPacket;
 import net.minecraft.recipe.RecipeDisplayEntry;
 import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
@@ -21,6 +27,9 @@ import java.util.ArrayList;
 @Mixin(ClientPlayNetworkHandler.class)
 public class ClientPlayNetworkHandlerMixin {
 
+	// Sync id of slot updates that address the player's inventory by inventory index
+	private static final int PLAYER_INVENTORY_SYNC_ID = -2;
+
 	/**
 	 * Track slot updates to know when crafting completes
 	 */
@@ -29,7 +38,20 @@ public class ClientPlayNetworkHandlerMixin {
 		at = @At("TAIL")
 	)
 	private void onSlotUpdate(ScreenHandlerSlotUpdateS2CPacket packet, CallbackInfo ci) {
-		AutoCraftExecutor.onInventoryUpdate();
+		mirrorSlot(packet.getSyncId(), packet.getSlot());
+		AutoCraftExecutor.onSlotUpdate();
+	}
+
+	/**
+	 * Track slot updates addressed to the player's inventory directly rather than through a screen handler
+	 */
+	@Inject(
+		method = "onSetPlayerInventory",
+		at = @At("TAIL")
+	)
+	private void onSetPlayerInventory(SetPlayerInventoryS2CPacket packet, CallbackInfo ci) {
+		mirrorSlot(PLAYER_INVENTORY_SYNC_ID, packet.slot());
+		AutoCraftExecutor.onSlotUpdate();
 	}
 
 	/**
@@ -40,9 +62,34 @@ public class ClientPlayNetworkHandlerMixin {
 		at = @At("TAIL")
 	)
 	private void onInventorySync(InventoryS2CPacket packet, CallbackInfo ci) {
+		InventoryMirror.sync(MinecraftClient.getInstance().player);
 		AutoCraftExecutor.onInventoryUpdate();
 	}
 
+	/**
+	 * Forward an updated handler slot to the inventory mirror if it belongs to the player's inventory
+	 */
+	private static void mirrorSlot(int syncId, int slotIndex) {
+		ClientPlayerEntity player = MinecraftClient.getInstance().player;
+		if (player == null) return;
+
+		// Player inventory updates carry an inventory index, not a handler slot
+		if (syncId == PLAYER_INVENTORY_SYNC_ID) {
+			if (slotIndex >= 0 && slotIndex < player.getInventory().size()) {
+				InventoryMirror.updateSlot(slotIndex, player.getInventory().getStack(slotIndex));
+			}
+			return;
+		}
+
+		ScreenHandler handler = syncId == 0 ? player.playerScreenHandler : player.currentScreenHandler;
+		if (handler == null || handler.syncId != syncId || slotIndex < 0 || slotIndex >= handler.slots.size()) return;
+
+		Slot slot = handler.getSlot(slotIndex);
+		if (slot.inventory == player.getInventory()) {
+			InventoryMirror.updateSlot(slot.getIndex(), slot.getStack());
+		}
+	}
+
 	/**
 	 * Capture recipes when they are added to the recipe book.
 	 * This is the key hook for our custom recipe cache.
@@ -63,8 +110,8 @@ public class ClientPlayNetworkHandlerMixin {
 			entries.add(entry.contents());
 		}
 
-		// Add to our cache
-		RecipeCache.addRecipes(entries);
+		// Add to our cache, as unlocked
+		RecipeCache.unlockRecipes(entries);
 	}
 
 	/**
@@ -76,7 +123,7 @@ public class ClientPlayNetworkHandlerMixin {
 	)
 	private void onRecipeBookRemove(RecipeBookRemoveS2CPacket packet, CallbackInfo ci) {
 		for (NetworkRecipeId id : packet.recipes()) {
-			RecipeCache.removeRecipe(id);
+			RecipeCache.lockRecipe(id);
 		}
 	}
 
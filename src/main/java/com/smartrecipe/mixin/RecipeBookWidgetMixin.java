@@ -41,7 +41,7 @@ public abstract class RecipeBookWidgetMixin {
 		if (client == null || client.player == null) return;
 
 		// Get the crafting plan for this recipe
-		CraftingPlan plan = RecipeTreeCalculator.calculatePlan(client, recipeId);
+		CraftingPlan plan = RecipeTreeCalculator.calculatePlanWithChoices(client, recipeId);
 
 		if (plan == null) {
 			// No plan needed, let vanilla handle it
@@ -53,6 +53,9 @@ public abstract class RecipeBookWidgetMixin {
 			return;
 		}
 
+		// Craft-all (shift-click) crafts as many as the inventory allows
+		int quantity = craftAll ? RecipeTreeCalculator.calculateMaxCraftable(client, recipeId) : 1;
+
 		// Check if there are multiple recipe choices
 		if (plan.hasRecipeChoices()) {
 			// Show popup for user to choose recipes
@@ -62,7 +65,7 @@ public abstract class RecipeBookWidgetMixin {
 				plan,
 				(finalPlan) -> {
 					// Execute the plan after user confirms choices
-					AutoCraftExecutor.execute(client, finalPlan, craftAll);
+					AutoCraftExecutor.execute(client, finalPlan, quantity);
 				}
 			));
 			return;
@@ -70,6 +73,6 @@ public abstract class RecipeBookWidgetMixin {
 
 		// Execute multi-step plan
 		cir.setReturnValue(true);
-		AutoCraftExecutor.execute(client, plan, craftAll);
+		AutoCraftExecutor.execute(client, plan, quantity);
 	}
 }
@@ -1,7 +1,6 @@
 package com.smartrecipe.mixin;
 
-import com.smartrecipe.recipe.RecipeTreeCalculator;
-import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.CraftabilityTracker;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.recipebook.RecipeResultCollection;
@@ -36,8 +35,8 @@ public class RecipeResultCollectionMixin {
 		}
 
 		try {
-			CraftingPlan plan = RecipeTreeCalculator.calculatePlan(client, recipeId);
-			if (plan != null && plan.isValid()) {
+			// Tracked answer; new ones are computed a slice at a time in the background
+			if (Boolean.TRUE.equals(CraftabilityTracker.get(client, recipeId))) {
 				cir.setReturnValue(true);
 			}
 		} catch (Exception e) {
@@ -0,0 +1,121 @@
+package com.smartrecipe.recipe;
+
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import java.util.*;
+
+/**
+ * Plans several targets ("shopping list") as one job.
+ *
+ * Targets are planned one after another against a single simulated
+ * inventory, so leftovers from one target (e.g. spare sticks) are used by
+ * the next. The resulting steps are then merged per recipe, so every shared
+ * intermediate is crafted in one combined batch, and ordered so each batch
+ * runs after the batches producing its inputs. If the merged order does not
+ * hold up in simulation the steps are kept in planning order instead.
+ */
+public class BatchPlanner {
+
+	/**
+	 * Something to craft
+	 * @param quantity Number of items wanted (rounded up to whole crafts)
+	 */
+	public record Target(Item item, int quantity) {}
+
+	/**
+	 * Plan all targets together
+	 * @return The merged plan (targetItem is the first target, getTargets() lists all),
+	 * or null if no target has a known crafting recipe
+	 */
+	public static CraftingPlan plan(MinecraftClient client, List<Target> targets) {
+		return plan(client, targets, null);
+	}
+
+	/**
+	 * Plan all targets together against a given inventory
+	 * @param fromInventory Inventory to plan against, or null for the player's
+	 */
+	public static CraftingPlan plan(MinecraftClient client, List<Target> targets, Map<Item, Integer> fromInventory) {
+		if (client.player == null || client.world == null || targets.isEmpty()) return null;
+		long start = System.nanoTime();
+
+		RecipeGraph graph = RecipeGraph.get(client.world, RecipeTreeCalculator.getGridSize(client));
+		Map<Item, Integer> startInventory = fromInventory != null ? fromInventory
+			: RecipeTreeCalculator.getInventoryContents(client.player);
+		Map<Item, Integer> inventory = new HashMap<>(startInventory);
+		CostTable costs = CostTable.get(graph, startInventory.keySet());
+
+		CraftingPlan plan = null;
+		List<CraftingPlan.CraftingStep> sequential = new ArrayList<>();
+		Set<Item> dependencies = new HashSet<>();
+		double cost = 0;
+		boolean canCraft = true;
+
+		for (Target target : targets) {
+			RecipeGraph.RecipeNode node = producerFor(target.item(), graph, costs);
+			if (node == null) {
+				SmartRecipeBookMod.LOGGER.warn("BatchPlanner: No crafting recipe for {}", target.item().getName().getString());
+				canCraft = false;
+				continue;
+			}
+
+			ItemStack wanted = new ItemStack(target.item(), target.quantity());
+			if (plan == null) {
+				plan = new CraftingPlan(node.getId(), wanted);
+			} else {
+				plan.addTarget(wanted);
+			}
+
+			// Plan against what the earlier targets left behind
+			int crafts = (target.quantity() + node.getResultCount() - 1) / Math.max(1, node.getResultCount());
+			Map<Item, Integer> before = new HashMap<>(inventory);
+			PlanSearch search = new PlanSearch(node, crafts, inventory, graph, costs, Collections.emptyMap());
+
+			if (search.runToCompletion()) {
+				sequential.addAll(search.getSteps());
+				cost += search.getCost();
+			} else {
+				// Leave nothing of the failed target behind
+				inventory.clear();
+				inventory.putAll(before);
+				canCraft = false;
+			}
+			dependencies.addAll(search.getTouchedItems());
+		}
+
+		if (plan == null) return null;
+
+		List<CraftingPlan.CraftingStep> merged = StepAggregator.aggregate(sequential, startInventory);
+		List<CraftingPlan.CraftingStep> steps = merged != null ? merged : sequential;
+		for (CraftingPlan.CraftingStep step : steps) {
+			plan.addStep(step);
+		}
+		plan.setCost(cost);
+		plan.setCanCraft(canCraft && !steps.isEmpty());
+		plan.setDependencies(Collections.unmodifiableSet(dependencies));
+		plan.setUnbatchedStepCount(sequential.size());
+		plan.setPlanningNanos(System.nanoTime() - start);
+
+		SmartRecipeBookMod.LOGGER.info("BatchPlanner: {} targets, {} steps merged into {} (canCraft: {})",
+			targets.size(), sequential.size(), steps.size(), plan.canCraft());
+		return plan;
+	}
+
+	/**
+	 * Recipe to craft a target with: the remembered choice, else the cheapest, else any
+	 */
+	private static RecipeGraph.RecipeNode producerFor(Item item, RecipeGraph graph, CostTable costs) {
+		RecipeGraph.RecipeNode remembered = PlanChoiceMemory.get(item, graph);
+		if (remembered != null) return remembered;
+
+		RecipeGraph.RecipeNode cheapest = costs.getBestProducer(item);
+		if (cheapest != null) return cheapest;
+
+		List<RecipeGraph.RecipeNode> producers = graph.getProducers(item);
+		return producers.isEmpty() ? null : producers.get(0);
+	}
+}
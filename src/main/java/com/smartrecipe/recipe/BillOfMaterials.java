@@ -0,0 +1,233 @@
+package com.smartrecipe.recipe;
+
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.item.Item;
+import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.world.World;
+
+import java.util.*;
+
+/**
+ * Fully expanded raw-material requirements of a crafting recipe under the
+ * default producer choices (the cheapest producer and slot option when
+ * starting from raw materials only).
+ *
+ * Raw materials are ingredients no crafting recipe produces, plus items that
+ * can only be crafted from themselves (e.g. ingots and nuggets). Bills for
+ * every recipe are built together and kept until the recipe snapshot changes.
+ *
+ * Besides the raw-material vector for one craft, a bill keeps its
+ * intermediates in consumer-before-input order, so checking it against an
+ * inventory (using held intermediates first) is a single linear pass instead
+ * of a recursive walk over the recipe tree.
+ */
+public class BillOfMaterials {
+
+	private static int tableVersion = -1;
+	private static Map<NetworkRecipeId, BillOfMaterials> table = Collections.emptyMap();
+
+	private final NetworkRecipeId recipeId;
+	private final Map<Item, Integer> targetInputs;
+	private final List<Line> lines;
+	private final Map<Item, Integer> materials;
+	private final int stepCount;
+
+	/**
+	 * How an intermediate item is made: its producer's yield and inputs per craft
+	 */
+	private record Line(Item item, int yield, Map<Item, Integer> inputs) {}
+
+	/**
+	 * Raw materials still required and the crafts needed to turn them into the target
+	 */
+	private record Explosion(Map<Item, Integer> required, int steps) {}
+
+	private BillOfMaterials(NetworkRecipeId recipeId, Map<Item, Integer> targetInputs, List<Line> lines) {
+		this.recipeId = recipeId;
+		this.targetInputs = targetInputs;
+		this.lines = lines;
+
+		Explosion explosion = explode(Collections.emptyMap(), 1);
+		this.materials = Collections.unmodifiableMap(explosion.required());
+		this.stepCount = explosion.steps();
+	}
+
+	/**
+	 * Get the bill for a recipe, rebuilding all bills if the recipe snapshot changed
+	 * @return The bill, or null if the recipe is not a crafting recipe
+	 */
+	static BillOfMaterials get(World world, NetworkRecipeId recipeId) {
+		// Crafting recipes only: smelted items count as raw materials for the bill
+		RecipeGraph graph = RecipeGraph.get(world, RecipeGraph.LARGE_GRID);
+		if (tableVersion != graph.getVersion()) {
+			table = buildAll(graph);
+			tableVersion = graph.getVersion();
+		}
+		return table.get(recipeId);
+	}
+
+	public NetworkRecipeId getRecipeId() {
+		return recipeId;
+	}
+
+	/**
+	 * Raw materials consumed by one craft starting from an empty inventory
+	 */
+	public Map<Item, Integer> getMaterials() {
+		return materials;
+	}
+
+	/**
+	 * Crafting steps needed for one craft starting from an empty inventory (including the final one)
+	 */
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * Raw materials missing to craft the recipe a number of times. Held
+	 * intermediates are used before crafting more of them.
+	 * @return Missing items and counts; empty if the inventory covers the bill
+	 */
+	public Map<Item, Integer> getShortfall(Map<Item, Integer> inventory, int runs) {
+		Map<Item, Integer> shortfall = new LinkedHashMap<>();
+		for (Map.Entry<Item, Integer> entry : explode(inventory, runs).required().entrySet()) {
+			int missing = entry.getValue() - inventory.getOrDefault(entry.getKey(), 0);
+			if (missing > 0) {
+				shortfall.put(entry.getKey(), missing);
+			}
+		}
+		return shortfall;
+	}
+
+	public boolean isCoveredBy(Map<Item, Integer> inventory, int runs) {
+		return getShortfall(inventory, runs).isEmpty();
+	}
+
+	/**
+	 * Most crafts (up to the limit) the inventory covers under the default producers
+	 * @return 0 if not even one craft is covered
+	 */
+	public int getMaxCraftable(Map<Item, Integer> inventory, int limit) {
+		int lo = 0, hi = limit;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) / 2;
+			if (isCoveredBy(inventory, mid)) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Net the requirements against the inventory one intermediate at a time,
+	 * in an order where every consumer comes before its inputs
+	 */
+	private Explosion explode(Map<Item, Integer> inventory, int runs) {
+		Map<Item, Integer> required = new LinkedHashMap<>();
+		for (Map.Entry<Item, Integer> input : targetInputs.entrySet()) {
+			required.merge(input.getKey(), input.getValue() * runs, Integer::sum);
+		}
+		int steps = runs;
+
+		for (Line line : lines) {
+			Integer need = required.remove(line.item());
+			if (need == null) continue;
+
+			int net = need - inventory.getOrDefault(line.item(), 0);
+			if (net <= 0) continue;
+
+			int crafts = (net + line.yield() - 1) / line.yield();
+			steps += crafts;
+			for (Map.Entry<Item, Integer> input : line.inputs().entrySet()) {
+				required.merge(input.getKey(), input.getValue() * crafts, Integer::sum);
+			}
+		}
+
+		return new Explosion(required, steps);
+	}
+
+	static Map<NetworkRecipeId, BillOfMaterials> buildAll(RecipeGraph graph) {
+		long start = System.nanoTime();
+
+		// Raw materials: ingredients no recipe produces
+		Set<Item> leaves = new HashSet<>();
+		for (RecipeGraph.RecipeNode node : graph.getNodes()) {
+			for (List<Item> options : node.getSlots()) {
+				for (Item item : options) {
+					if (graph.getProducers(item).isEmpty()) {
+						leaves.add(item);
+					}
+				}
+			}
+		}
+
+		// Default producers are the cheapest ones starting from raw materials only.
+		// Items this cannot reach (only craftable from themselves) stay raw.
+		CostTable costs = CostTable.build(graph, leaves);
+		Map<Item, Line> lines = new HashMap<>();
+		Map<NetworkRecipeId, BillOfMaterials> bills = new HashMap<>();
+
+		for (RecipeGraph.RecipeNode node : graph.getNodes()) {
+			Map<Item, Integer> targetInputs = inputsOf(node, costs);
+
+			// Post-order visits inputs before consumers; reversed it nets consumers first
+			List<Line> order = new ArrayList<>();
+			Set<Item> visited = new HashSet<>();
+			for (Item item : targetInputs.keySet()) {
+				visit(item, costs, lines, visited, order);
+			}
+			Collections.reverse(order);
+
+			bills.put(node.getId(), new BillOfMaterials(node.getId(), targetInputs, order));
+		}
+
+		SmartRecipeBookMod.LOGGER.debug("BillOfMaterials: Built {} bills ({} intermediates, {} raw materials) in {}us",
+			bills.size(), lines.size(), leaves.size(), (System.nanoTime() - start) / 1000);
+		return bills;
+	}
+
+	private static void visit(Item item, CostTable costs, Map<Item, Line> lines, Set<Item> visited, List<Line> order) {
+		if (!visited.add(item)) return;
+
+		Line line = lineFor(item, costs, lines);
+		if (line == null) return; // Raw material
+
+		for (Item input : line.inputs().keySet()) {
+			visit(input, costs, lines, visited, order);
+		}
+		order.add(line);
+	}
+
+	/**
+	 * How the default producer makes an item, or null if it is a raw material.
+	 * Lines are shared between all bills of a snapshot.
+	 */
+	private static Line lineFor(Item item, CostTable costs, Map<Item, Line> lines) {
+		if (lines.containsKey(item)) {
+			return lines.get(item);
+		}
+
+		RecipeGraph.RecipeNode producer = costs.getBestProducer(item);
+		Line line = producer == null ? null
+			: new Line(item, Math.max(1, producer.getResultCount()), inputsOf(producer, costs));
+		lines.put(item, line);
+		return line;
+	}
+
+	/**
+	 * Items one craft of a recipe consumes, using each slot's cheapest option
+	 */
+	private static Map<Item, Integer> inputsOf(RecipeGraph.RecipeNode node, CostTable costs) {
+		Map<Item, Integer> inputs = new LinkedHashMap<>();
+		for (List<Item> options : node.getSlots()) {
+			List<Item> ordered = costs.orderByCost(options);
+			Item item = ordered.isEmpty() ? options.get(0) : ordered.get(0);
+			inputs.merge(item, 1, Integer::sum);
+		}
+		return Collections.unmodifiableMap(inputs);
+	}
+}
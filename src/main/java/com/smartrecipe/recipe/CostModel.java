@@ -0,0 +1,54 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.util.Rarity;
+
+/**
+ * Weights used to rank alternative ways of producing an item.
+ * A plan's cost is the sum of its crafting steps, the raw materials it pulls
+ * out of the inventory (weighted by rarity so rare items are preserved) and
+ * any time spent waiting on a smelting station. Recipes the server's recipe
+ * book has not unlocked can only be placed with slot clicks, so they cost
+ * extra and are used only where no unlocked producer does better.
+ */
+public class CostModel {
+
+	// Cost of one craft operation (one request + result click)
+	public static final double STEP_COST = 1.0;
+
+	// Cost of consuming one common item from the inventory
+	public static final double RAW_UNIT_COST = 0.25;
+
+	// Cost per tick a recipe occupies a furnace/blast furnace/smoker
+	public static final double COOK_TICK_COST = 0.01;
+
+	// Extra cost of a crafting recipe that is not unlocked (slot clicks instead of one request)
+	public static final double LOCKED_STEP_COST = 4.0;
+
+	/**
+	 * Fixed cost of running a recipe once, excluding its ingredients
+	 */
+	public static double stepCost(RecipeGraph.RecipeNode node) {
+		double cost = STEP_COST + node.getCookingTime() * COOK_TICK_COST;
+		if (!node.isSmelting() && !RecipeCache.isUnlocked(node.getId())) {
+			cost += LOCKED_STEP_COST;
+		}
+		return cost;
+	}
+
+	/**
+	 * Cost of consuming one unit of an item that is already in the inventory
+	 */
+	public static double rawCost(Item item) {
+		return RAW_UNIT_COST * rarityMultiplier(item.getDefaultStack().getRarity());
+	}
+
+	private static double rarityMultiplier(Rarity rarity) {
+		return switch (rarity) {
+			case COMMON -> 1.0;
+			case UNCOMMON -> 4.0;
+			case RARE -> 16.0;
+			case EPIC -> 64.0;
+		};
+	}
+}
@@ -0,0 +1,178 @@
+package com.smartrecipe.recipe;
+
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.item.Item;
+
+import java.util.*;
+
+/**
+ * Per-unit cost of every item reachable from a set of held items, and the
+ * cheapest recipe producing each of them.
+ *
+ * Built with Knuth's generalisation of Dijkstra to hypergraphs: items are
+ * finalised in increasing cost order, and a recipe (hyperedge) is relaxed once
+ * every one of its slots has a finalised option. A slot's cost is the cost of
+ * its first finalised option, which is its cheapest. Costs are quantity-blind,
+ * so one table serves every plan against the same held item set.
+ */
+public class CostTable {
+
+	// Last table per graph partition
+	private static final Map<RecipeGraph.Partition, CostTable> current = new HashMap<>();
+
+	private final RecipeGraph graph;
+	private final Set<Item> heldItems;
+	private final Map<Item, Double> costs;
+	private final Map<Item, RecipeGraph.RecipeNode> bestProducers;
+	private final Map<Item, Double> bestUnitCosts;
+	private final Map<RecipeGraph.RecipeNode, Double> recipeCosts;
+
+	private CostTable(RecipeGraph graph, Set<Item> heldItems) {
+		this.graph = graph;
+		this.heldItems = heldItems;
+		this.costs = new HashMap<>();
+		this.bestProducers = new HashMap<>();
+		this.bestUnitCosts = new HashMap<>();
+		this.recipeCosts = new HashMap<>();
+	}
+
+	/**
+	 * Get the cost table for the given graph (or grid partition) and held items, reusing the last one if unchanged
+	 */
+	public static CostTable get(RecipeGraph graph, Set<Item> heldItems) {
+		CostTable table = current.get(graph.getPartition());
+		if (table == null || table.graph != graph || !table.heldItems.equals(heldItems)) {
+			table = build(graph, heldItems);
+			current.put(graph.getPartition(), table);
+		}
+		return table;
+	}
+
+	/**
+	 * Build a table for the given held items without replacing the shared one
+	 */
+	static CostTable build(RecipeGraph graph, Set<Item> heldItems) {
+		long start = System.nanoTime();
+		CostTable table = new CostTable(graph, new HashSet<>(heldItems));
+
+		Map<Item, Double> tentative = new HashMap<>();
+		Set<Item> finalized = new HashSet<>();
+		Map<RecipeGraph.RecipeNode, double[]> slotCosts = new HashMap<>();
+		Map<RecipeGraph.RecipeNode, Integer> pendingSlots = new HashMap<>();
+		PriorityQueue<Map.Entry<Item, Double>> queue = new PriorityQueue<>(Map.Entry.comparingByValue());
+
+		for (Item item : heldItems) {
+			double cost = CostModel.rawCost(item);
+			tentative.put(item, cost);
+			queue.add(Map.entry(item, cost));
+		}
+
+		// Recipes without ingredients can be relaxed immediately
+		for (RecipeGraph.RecipeNode node : graph.getNodes()) {
+			if (node.getSlots().isEmpty()) {
+				table.relax(node, CostModel.stepCost(node), 0, tentative, queue);
+			}
+		}
+
+		while (!queue.isEmpty()) {
+			Map.Entry<Item, Double> head = queue.poll();
+			Item item = head.getKey();
+			if (!finalized.add(item)) continue; // Stale queue entry
+
+			double itemCost = head.getValue();
+			table.costs.put(item, itemCost);
+
+			for (RecipeGraph.SlotRef ref : graph.getConsumers(item)) {
+				RecipeGraph.RecipeNode node = ref.node();
+				double[] slots = slotCosts.computeIfAbsent(node, k -> {
+					double[] fresh = new double[k.getSlots().size()];
+					Arrays.fill(fresh, Double.NaN);
+					return fresh;
+				});
+				if (!Double.isNaN(slots[ref.slot()])) continue;
+
+				slots[ref.slot()] = itemCost;
+				int pending = pendingSlots.getOrDefault(node, slots.length) - 1;
+				pendingSlots.put(node, pending);
+
+				if (pending == 0) {
+					double total = CostModel.stepCost(node);
+					double maxInput = 0;
+					for (double slotCost : slots) {
+						total += slotCost;
+						maxInput = Math.max(maxInput, slotCost);
+					}
+					table.relax(node, total, maxInput, tentative, queue);
+				}
+			}
+		}
+
+		SmartRecipeBookMod.LOGGER.debug("CostTable: Costed {} items from {} held in {}us",
+			table.costs.size(), heldItems.size(), (System.nanoTime() - start) / 1000);
+		return table;
+	}
+
+	/**
+	 * Offer a recipe as a producer of its result. The per-unit cost is never
+	 * allowed below its most expensive input so the cost function stays
+	 * superior (monotone), which Knuth's algorithm needs to be exact.
+	 */
+	private void relax(RecipeGraph.RecipeNode node, double recipeCost, double maxInputCost,
+					   Map<Item, Double> tentative, PriorityQueue<Map.Entry<Item, Double>> queue) {
+		recipeCosts.put(node, recipeCost);
+
+		double unitCost = Math.max(recipeCost / Math.max(1, node.getResultCount()), maxInputCost);
+
+		// The best producer is the one with the lowest per-unit cost. Unless the
+		// result is held, a recipe consuming its own result is relaxed only after
+		// that result was finalised and can never beat the producer that did it.
+		Item result = node.getResult();
+		Double bestUnitCost = bestUnitCosts.get(result);
+		if (bestUnitCost == null || unitCost < bestUnitCost) {
+			bestUnitCosts.put(result, unitCost);
+			bestProducers.put(result, node);
+		}
+
+		Double known = tentative.get(result);
+		if (known == null || unitCost < known) {
+			tentative.put(result, unitCost);
+			queue.add(Map.entry(result, unitCost));
+		}
+	}
+
+	/**
+	 * Per-unit cost of an item, or positive infinity if it cannot be obtained
+	 */
+	public double getCost(Item item) {
+		return costs.getOrDefault(item, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Cost of running a recipe once with the cheapest inputs, or positive infinity if it cannot run
+	 */
+	public double getRecipeCost(RecipeGraph.RecipeNode node) {
+		return recipeCosts.getOrDefault(node, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Recipe producing the item at the lowest per-unit cost, or null if no reachable recipe produces it
+	 */
+	public RecipeGraph.RecipeNode getBestProducer(Item item) {
+		return bestProducers.get(item);
+	}
+
+	/**
+	 * Order a slot's options from cheapest to most expensive, dropping unobtainable ones
+	 */
+	public List<Item> orderByCost(List<Item> options) {
+		List<Item> ordered = new ArrayList<>(options.size());
+		for (Item option : options) {
+			if (costs.containsKey(option)) {
+				ordered.add(option);
+			}
+		}
+		ordered.sort(Comparator.comparingDouble(this::getCost));
+		return ordered;
+	}
+}
@@ -0,0 +1,202 @@
+package com.smartrecipe.recipe;
+
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.item.Item;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import java.util.*;
+
+/**
+ * Craftability answers that survive inventory changes.
+ *
+ * Every answer records the items its plan search looked at. When the
+ * inventory mirror reports a count change, only the answers that depended on
+ * that item are marked dirty. Answers that were pruned by reachability depend
+ * on the whole held set, and so do negative answers: a failed search never
+ * looked at the ingredients of producers it did not expand (an oak log when
+ * planks were missing), so picking one up must be noticed. Both are also
+ * marked dirty whenever an item appears or disappears. Dirty answers keep
+ * being served until they are re-evaluated, which happens on the client tick
+ * within a time budget while a screen is open.
+ *
+ * Answers never computed before are started by the query itself, within a
+ * budget shared by all queries between two ticks, so a page full of new
+ * recipes does not stall a frame; the rest wait for the tick.
+ */
+public class CraftabilityTracker {
+
+	// Time a single query may spend on an answer it has never computed
+	private static final long QUERY_BUDGET_NS = 500_000L;
+
+	// Time all queries between two ticks may spend on answers never computed
+	private static final long QUERIES_PER_TICK_BUDGET_NS = 1_000_000L;
+	private static long queryNanosLeft = QUERIES_PER_TICK_BUDGET_NS;
+
+	// Time per tick spent re-evaluating dirty answers
+	private static final long TICK_BUDGET_NS = 2_000_000L;
+
+	private static final Map<NetworkRecipeId, Boolean> answers = new HashMap<>();
+	private static final Map<Item, Set<NetworkRecipeId>> dependents = new HashMap<>();
+	private static final Map<NetworkRecipeId, Set<Item>> dependencies = new HashMap<>();
+	private static final Set<NetworkRecipeId> presenceDependents = new HashSet<>();
+	private static final Set<NetworkRecipeId> dirty = new LinkedHashSet<>();
+	private static int recipeVersion = -1;
+	private static int gridSize = -1;
+
+	/**
+	 * Whether a recipe can be crafted, including sub-crafting.
+	 * @return The latest known answer, or null if it is still being computed
+	 */
+	public static Boolean get(MinecraftClient client, NetworkRecipeId recipeId) {
+		checkSnapshot(client);
+
+		Boolean answer = answers.get(recipeId);
+		if (answer != null) {
+			return answer;
+		}
+
+		// Never asked before - give it a slice now if this tick's queries have
+		// time left, the tick finishes it otherwise
+		long slice = Math.min(QUERY_BUDGET_NS, queryNanosLeft);
+		if (slice <= 0) {
+			dirty.add(recipeId);
+			return null;
+		}
+
+		long start = System.nanoTime();
+		boolean complete = evaluate(client, recipeId, slice);
+		queryNanosLeft -= System.nanoTime() - start;
+		if (!complete) {
+			dirty.add(recipeId);
+			return null;
+		}
+		return answers.get(recipeId);
+	}
+
+	/**
+	 * Called by the inventory mirror whenever an item count changes
+	 */
+	public static void onCountChanged(Item item, int before, int after) {
+		Set<NetworkRecipeId> affected = dependents.get(item);
+		if (affected != null) {
+			dirty.addAll(affected);
+		}
+
+		// Gaining or losing an item kind can change which recipes are reachable
+		if ((before > 0) != (after > 0)) {
+			dirty.addAll(presenceDependents);
+		}
+	}
+
+	/**
+	 * Mark every answer dirty (e.g. the whole inventory was replaced)
+	 */
+	public static void invalidateAll() {
+		dirty.addAll(answers.keySet());
+	}
+
+	/**
+	 * Tick handler: re-evaluate dirty answers within the tick budget
+	 */
+	public static void onClientTick(MinecraftClient client) {
+		queryNanosLeft = QUERIES_PER_TICK_BUDGET_NS;
+		if (dirty.isEmpty() || client.player == null || client.currentScreen == null) return;
+		checkSnapshot(client);
+
+		long deadline = System.nanoTime() + TICK_BUDGET_NS;
+		int evaluated = 0;
+
+		while (!dirty.isEmpty()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) break;
+
+			// An unfinished search resumes from here on the next tick
+			NetworkRecipeId recipeId = dirty.iterator().next();
+			if (!evaluate(client, recipeId, remaining)) break;
+			dirty.remove(recipeId);
+			evaluated++;
+		}
+
+		if (evaluated > 0) {
+			SmartRecipeBookMod.LOGGER.debug("CraftabilityTracker: Re-evaluated {} answers, {} still dirty",
+				evaluated, dirty.size());
+		}
+	}
+
+	/**
+	 * Advance the plan search for a recipe and record its answer once complete
+	 */
+	private static boolean evaluate(MinecraftClient client, NetworkRecipeId recipeId, long maxNanos) {
+		RecipeTreeCalculator.PlanResult result = RecipeTreeCalculator.advancePlan(client, recipeId, maxNanos);
+		if (!result.complete()) return false;
+
+		CraftingPlan plan = result.plan();
+		record(recipeId, plan != null && plan.isValid(), plan == null ? Collections.emptySet() : plan.getDependencies());
+		return true;
+	}
+
+	/**
+	 * Store an answer and index it by the items it depends on
+	 * @param itemDependencies Items the answer depends on, or null if it depends on the whole held set
+	 */
+	static void record(NetworkRecipeId recipeId, boolean craftable, Set<Item> itemDependencies) {
+		forget(recipeId);
+		answers.put(recipeId, craftable);
+
+		if (itemDependencies == null || !craftable) {
+			presenceDependents.add(recipeId);
+		}
+		if (itemDependencies == null) return;
+
+		dependencies.put(recipeId, itemDependencies);
+		for (Item item : itemDependencies) {
+			dependents.computeIfAbsent(item, k -> new HashSet<>()).add(recipeId);
+		}
+	}
+
+	private static void forget(NetworkRecipeId recipeId) {
+		presenceDependents.remove(recipeId);
+
+		Set<Item> previous = dependencies.remove(recipeId);
+		if (previous == null) return;
+
+		for (Item item : previous) {
+			Set<NetworkRecipeId> ids = dependents.get(item);
+			if (ids != null) {
+				ids.remove(recipeId);
+				if (ids.isEmpty()) {
+					dependents.remove(item);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drop everything when the recipe snapshot or the crafting grid changes
+	 */
+	private static void checkSnapshot(MinecraftClient client) {
+		int currentGridSize = RecipeTreeCalculator.getGridSize(client);
+		if (recipeVersion == RecipeCache.getVersion() && gridSize == currentGridSize) return;
+
+		clear();
+		recipeVersion = RecipeCache.getVersion();
+		gridSize = currentGridSize;
+	}
+
+	static void clear() {
+		answers.clear();
+		dependents.clear();
+		dependencies.clear();
+		presenceDependents.clear();
+		dirty.clear();
+	}
+
+	/**
+	 * Whether an answer is waiting to be re-evaluated
+	 */
+	static boolean isDirty(NetworkRecipeId recipeId) {
+		return dirty.contains(recipeId);
+	}
+}
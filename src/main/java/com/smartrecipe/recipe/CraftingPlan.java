@@ -1,32 +1,63 @@
 package com.smartrecipe.recipe;
 
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.recipe.NetworkRecipeId;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 /**
  * Represents a plan to craft an item, potentially with multiple steps
  * for crafting sub-components first.
  */
 public class CraftingPlan {
+	// Estimated ticks per instant craft (request + result click, at the executor's pace)
+	public static final int CRAFT_STEP_TICKS = 3;
+
 	private final List<CraftingStep> steps;
 	private final NetworkRecipeId targetRecipe;
 	private final ItemStack targetItem;
-	private final Map<ItemStack, List<NetworkRecipeId>> recipeChoices;
+	private final Map<ItemStack, List<RecipeOption>> recipeChoices;
+	private final List<ItemStack> targets; // Everything the plan produces for the user (batch plans have several)
 	private boolean canCraft = true; // Track if all dependencies were resolved
+	private double cost = 0; // Total cost under CostModel
+	private int unbatchedStepCount = 0; // Steps needed crafting one at a time (for comparison)
+	private long planningNanos = 0; // Time spent searching and aggregating this plan
+	private Set<Item> dependencies = null; // Items the outcome was derived from (null = the whole held set)
+	private boolean frozen = false; // Shared plans (e.g. cached ones) can no longer change
 
 	public CraftingPlan(NetworkRecipeId targetRecipe, ItemStack targetItem) {
 		this.steps = new ArrayList<>();
 		this.targetRecipe = targetRecipe;
 		this.targetItem = targetItem;
-		this.recipeChoices = new HashMap<>();
+		this.recipeChoices = new LinkedHashMap<>();
+		this.targets = new ArrayList<>(List.of(targetItem));
+	}
+
+	/**
+	 * Make the plan immutable; any further modification throws
+	 */
+	public void freeze() {
+		frozen = true;
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new IllegalStateException("Crafting plan for " + targetRecipe + " is frozen");
+		}
 	}
 
 	public void setCanCraft(boolean canCraft) {
+		checkMutable();
 		this.canCraft = canCraft;
 	}
 
@@ -34,16 +65,107 @@ public class CraftingPlan {
 		return canCraft;
 	}
 
+	public void setCost(double cost) {
+		checkMutable();
+		this.cost = cost;
+	}
+
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Instant crafting steps, in plan order
+	 */
+	public List<CraftingStep> getCraftingSteps() {
+		return steps.stream().filter(step -> !step.isSmelting()).toList();
+	}
+
+	/**
+	 * Smelting batches, in plan order
+	 */
+	public List<CraftingStep> getSmeltingSteps() {
+		return steps.stream().filter(CraftingStep::isSmelting).toList();
+	}
+
+	public boolean requiresSmelting() {
+		for (CraftingStep step : steps) {
+			if (step.isSmelting()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Estimated wall-clock ticks to run the whole plan, crafting and smelting one after another
+	 */
+	public int getEstimatedTicks() {
+		int ticks = 0;
+		for (CraftingStep step : steps) {
+			ticks += step.getEstimatedTicks();
+		}
+		return ticks;
+	}
+
+	/**
+	 * Total number of craft operations over all steps
+	 */
+	public int getCraftCount() {
+		int crafts = 0;
+		for (CraftingStep step : steps) {
+			crafts += step.getQuantity();
+		}
+		return crafts;
+	}
+
+	public void setUnbatchedStepCount(int unbatchedStepCount) {
+		checkMutable();
+		this.unbatchedStepCount = unbatchedStepCount;
+	}
+
+	/**
+	 * Number of single-craft steps the same result took before aggregation
+	 */
+	public int getUnbatchedStepCount() {
+		return unbatchedStepCount;
+	}
+
+	public void setPlanningNanos(long planningNanos) {
+		checkMutable();
+		this.planningNanos = planningNanos;
+	}
+
+	/**
+	 * Time it took to compute this plan (a cached plan keeps its original time)
+	 */
+	public long getPlanningNanos() {
+		return planningNanos;
+	}
+
+	public void setDependencies(Set<Item> dependencies) {
+		checkMutable();
+		this.dependencies = dependencies;
+	}
+
+	/**
+	 * Items whose counts this plan's outcome depends on, or null if it depends
+	 * on which items are held at all (e.g. it was ruled out by reachability)
+	 */
+	public Set<Item> getDependencies() {
+		return dependencies;
+	}
+
 	public void addStep(CraftingStep step) {
+		checkMutable();
 		steps.add(step);
 	}
 
 	public void addStepAtBeginning(CraftingStep step) {
+		checkMutable();
 		steps.add(0, step);
 	}
 
 	public List<CraftingStep> getSteps() {
-		return steps;
+		return frozen ? Collections.unmodifiableList(steps) : steps;
 	}
 
 	public NetworkRecipeId getTargetRecipe() {
@@ -54,6 +176,18 @@ public class CraftingPlan {
 		return targetItem;
 	}
 
+	/**
+	 * Add another item the plan produces for the user (batch plans)
+	 */
+	public void addTarget(ItemStack target) {
+		checkMutable();
+		targets.add(target);
+	}
+
+	public List<ItemStack> getTargets() {
+		return Collections.unmodifiableList(targets);
+	}
+
 	public boolean requiresSubCrafting() {
 		return steps.size() > 1;
 	}
@@ -62,18 +196,25 @@ public class CraftingPlan {
 		return !steps.isEmpty() && canCraft;
 	}
 
-	public void addRecipeChoice(ItemStack item, List<NetworkRecipeId> recipes) {
-		recipeChoices.put(item, recipes);
+	public void addRecipeChoice(ItemStack item, List<RecipeOption> options) {
+		checkMutable();
+		recipeChoices.put(item, options);
 	}
 
 	public boolean hasRecipeChoices() {
 		return !recipeChoices.isEmpty();
 	}
 
-	public Map<ItemStack, List<NetworkRecipeId>> getRecipeChoices() {
-		return recipeChoices;
+	public Map<ItemStack, List<RecipeOption>> getRecipeChoices() {
+		return frozen ? Collections.unmodifiableMap(recipeChoices) : recipeChoices;
 	}
 
+	/**
+	 * One way of producing an intermediate item, with the cost and step count
+	 * of the whole plan when that recipe is used
+	 */
+	public record RecipeOption(NetworkRecipeId recipeId, List<Item> ingredients, double cost, int stepCount) {}
+
 	/**
 	 * Represents a single crafting step
 	 */
@@ -81,11 +222,34 @@ public class CraftingPlan {
 		private final NetworkRecipeId recipeId;
 		private final ItemStack result;
 		private final int quantity;
+		private final Map<Item, Integer> inputs;
+		private final Item station;
+		private final int cookingTime;
 
 		public CraftingStep(NetworkRecipeId recipeId, ItemStack result, int quantity) {
+			this(recipeId, result, quantity, Collections.emptyMap());
+		}
+
+		/**
+		 * @param quantity Number of times the recipe is crafted
+		 * @param inputs Items consumed over all crafts of this step, as planned
+		 */
+		public CraftingStep(NetworkRecipeId recipeId, ItemStack result, int quantity, Map<Item, Integer> inputs) {
+			this(recipeId, result, quantity, inputs, null, 0);
+		}
+
+		/**
+		 * @param station Smelting station running the step, or null for an instant crafting step
+		 * @param cookingTime Ticks one smelt takes
+		 */
+		public CraftingStep(NetworkRecipeId recipeId, ItemStack result, int quantity, Map<Item, Integer> inputs,
+							Item station, int cookingTime) {
 			this.recipeId = recipeId;
 			this.result = result;
 			this.quantity = quantity;
+			this.inputs = inputs;
+			this.station = station;
+			this.cookingTime = cookingTime;
 		}
 
 		public NetworkRecipeId getRecipeId() {
@@ -99,5 +263,28 @@ public class CraftingPlan {
 		public int getQuantity() {
 			return quantity;
 		}
+
+		public Map<Item, Integer> getInputs() {
+			return inputs;
+		}
+
+		public boolean isSmelting() {
+			return station != null;
+		}
+
+		public Item getStation() {
+			return station;
+		}
+
+		public int getCookingTime() {
+			return cookingTime;
+		}
+
+		/**
+		 * Estimated ticks for all crafts of this step
+		 */
+		public int getEstimatedTicks() {
+			return quantity * (isSmelting() ? cookingTime : CRAFT_STEP_TICKS);
+		}
 	}
 }
@@ -0,0 +1,123 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.item.Item;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulates the main inventory slot by slot through a plan's steps, so a
+ * plan that would fill the inventory halfway through is caught before it
+ * runs (once the inventory is full the shift-click on the result does
+ * nothing and every later step is wasted).
+ *
+ * Each step takes its inputs out of the slots in inventory order, then puts
+ * its results where a shift-click would: onto stacks of the same item that
+ * have room first, then into empty slots, respecting max stack sizes.
+ */
+public class InventoryCapacity {
+
+	private static final int SLOT_COUNT = 36;
+
+	/**
+	 * Outcome of a simulation
+	 * @param peakSlots Most slots occupied at once
+	 * @param overflowStep Index of the first step whose results do not fit, or -1
+	 */
+	public record Result(int peakSlots, int overflowStep) {
+		public boolean fits() {
+			return overflowStep < 0;
+		}
+	}
+
+	/**
+	 * Simulate the steps against the player's current slot layout
+	 */
+	public static Result simulate(ClientPlayerEntity player, List<CraftingPlan.CraftingStep> steps) {
+		InventoryMirror.getCounts(player); // Make sure the mirror follows this player
+		return simulate(InventoryMirror.copySlotItems(), InventoryMirror.copySlotCounts(), steps);
+	}
+
+	/**
+	 * Simulate the steps against an inventory known only by counts, packed into full stacks
+	 */
+	public static Result simulate(Map<Item, Integer> inventory, List<CraftingPlan.CraftingStep> steps) {
+		Item[] items = new Item[SLOT_COUNT];
+		int[] counts = new int[SLOT_COUNT];
+		int slot = 0;
+		for (Map.Entry<Item, Integer> entry : inventory.entrySet()) {
+			int left = entry.getValue();
+			while (left > 0 && slot < SLOT_COUNT) {
+				items[slot] = entry.getKey();
+				counts[slot] = Math.min(left, entry.getKey().getMaxCount());
+				left -= counts[slot];
+				slot++;
+			}
+		}
+		return simulate(items, counts, steps);
+	}
+
+	private static Result simulate(Item[] items, int[] counts, List<CraftingPlan.CraftingStep> steps) {
+		int peak = occupied(items);
+
+		for (int i = 0; i < steps.size(); i++) {
+			CraftingPlan.CraftingStep step = steps.get(i);
+			for (Map.Entry<Item, Integer> input : step.getInputs().entrySet()) {
+				remove(items, counts, input.getKey(), input.getValue());
+			}
+
+			if (!step.getResult().isEmpty()) {
+				int produced = step.getResult().getCount() * step.getQuantity();
+				if (!insert(items, counts, step.getResult().getItem(), produced)) {
+					return new Result(SLOT_COUNT, i);
+				}
+			}
+			peak = Math.max(peak, occupied(items));
+		}
+		return new Result(peak, -1);
+	}
+
+	private static void remove(Item[] items, int[] counts, Item item, int count) {
+		for (int slot = 0; slot < SLOT_COUNT && count > 0; slot++) {
+			if (items[slot] != item) continue;
+
+			int taken = Math.min(count, counts[slot]);
+			counts[slot] -= taken;
+			count -= taken;
+			if (counts[slot] == 0) {
+				items[slot] = null;
+			}
+		}
+	}
+
+	/**
+	 * @return false if not everything fits
+	 */
+	private static boolean insert(Item[] items, int[] counts, Item item, int count) {
+		int max = item.getMaxCount();
+		for (int slot = 0; slot < SLOT_COUNT && count > 0; slot++) {
+			if (items[slot] != item || counts[slot] >= max) continue;
+
+			int added = Math.min(count, max - counts[slot]);
+			counts[slot] += added;
+			count -= added;
+		}
+		for (int slot = 0; slot < SLOT_COUNT && count > 0; slot++) {
+			if (items[slot] != null) continue;
+
+			items[slot] = item;
+			counts[slot] = Math.min(count, max);
+			count -= counts[slot];
+		}
+		return count == 0;
+	}
+
+	private static int occupied(Item[] items) {
+		int occupied = 0;
+		for (Item item : items) {
+			if (item != null) occupied++;
+		}
+		return occupied;
+	}
+}
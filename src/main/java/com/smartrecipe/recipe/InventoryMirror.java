@@ -0,0 +1,300 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import java.util.*;
+
+/**
+ * Persistent item counts for the player's main inventory.
+ *
+ * Counts are updated slot by slot from the inventory packets the client
+ * receives, and reconciled once per tick to catch changes the client makes
+ * on its own (e.g. predicted clicks). Planners read the counts directly
+ * instead of rescanning all 36 slots into a new map every time.
+ *
+ * Alongside the counts it keeps a Zobrist-style hash of the (item, count)
+ * pairs, a hash of just the set of held items and a change counter, which
+ * callers can use as cheap cache keys.
+ *
+ * While a plan runs, the executor lays an overlay over the confirmed counts
+ * for every batch it sent: what the batch is expected to consume and
+ * produce. getCounts (and so the planner, the screens and the hashes) sees
+ * the counts with the overlays applied, so nothing flickers back to missing
+ * while the server catches up. The server's slot updates for a batch do not
+ * arrive at once (the inputs leave before the result lands), so each change
+ * of a confirmed count is taken out of the overlays item by item, oldest
+ * first, and an overlay entry is dropped once the confirmed count has
+ * absorbed it. What is left of an overlay is removed once its batch is
+ * confirmed or given up on (rolled back). getConfirmedCounts is what the
+ * server last said.
+ */
+public class InventoryMirror {
+
+	// Main inventory slots (hotbar + storage)
+	private static final int SLOT_COUNT = 36;
+
+	private static final Item[] slotItems = new Item[SLOT_COUNT];
+	private static final int[] slotCounts = new int[SLOT_COUNT];
+	private static final Map<Item, Integer> counts = new HashMap<>(); // Predicted: confirmed plus overlays
+	private static final Map<Item, Integer> countsView = Collections.unmodifiableMap(counts);
+	private static final Map<Item, Integer> confirmed = new HashMap<>();
+	private static final Map<Item, Integer> confirmedView = Collections.unmodifiableMap(confirmed);
+
+	// Optimistic overlays of batches in flight, and their sum per item
+	private static final Map<Long, Map<Item, Integer>> overlays = new LinkedHashMap<>();
+	private static final Map<Item, Integer> overlayTotals = new HashMap<>();
+	private static long nextOverlayId = 1;
+
+	private static ClientPlayerEntity owner = null;
+	private static long hash = 0;
+	private static long presenceHash = 0;
+	private static long changeCount = 0;
+
+	/**
+	 * Current item counts for the player, including what batches in flight
+	 * are expected to change, as a read-only live view.
+	 * Copy it before simulating consumption.
+	 */
+	public static Map<Item, Integer> getCounts(ClientPlayerEntity player) {
+		if (player != owner) {
+			sync(player);
+		}
+		return countsView;
+	}
+
+	/**
+	 * Item counts as the server last confirmed them, without overlays, as a read-only live view
+	 */
+	public static Map<Item, Integer> getConfirmedCounts(ClientPlayerEntity player) {
+		if (player != owner) {
+			sync(player);
+		}
+		return confirmedView;
+	}
+
+	/**
+	 * Apply the expected effect of a batch on top of the confirmed counts until it is removed
+	 * @param delta Change per item (negative for consumed items)
+	 * @return Id to remove the overlay with
+	 */
+	public static long addOverlay(Map<Item, Integer> delta) {
+		long id = nextOverlayId++;
+		overlays.put(id, new HashMap<>(delta));
+		for (Map.Entry<Item, Integer> entry : delta.entrySet()) {
+			overlayTotals.merge(entry.getKey(), entry.getValue(), Integer::sum);
+			refresh(entry.getKey());
+		}
+		return id;
+	}
+
+	/**
+	 * Remove an overlay, because its batch landed or will not
+	 */
+	public static void removeOverlay(long id) {
+		Map<Item, Integer> delta = overlays.remove(id);
+		if (delta == null) return;
+
+		for (Map.Entry<Item, Integer> entry : delta.entrySet()) {
+			if (overlayTotals.merge(entry.getKey(), -entry.getValue(), Integer::sum) == 0) {
+				overlayTotals.remove(entry.getKey());
+			}
+			refresh(entry.getKey());
+		}
+	}
+
+	/**
+	 * Overlays not yet removed
+	 */
+	public static int getOverlayCount() {
+		return overlays.size();
+	}
+
+	/**
+	 * Item in every main inventory slot (null for empty slots), as a copy
+	 */
+	public static Item[] copySlotItems() {
+		return slotItems.clone();
+	}
+
+	/**
+	 * Count in every main inventory slot, as a copy
+	 */
+	public static int[] copySlotCounts() {
+		return slotCounts.clone();
+	}
+
+	/**
+	 * Hash of every (item, count) pair; equal inventories hash equally regardless of slot layout
+	 */
+	public static long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Hash of the set of held items, ignoring counts
+	 */
+	public static long getPresenceHash() {
+		return presenceHash;
+	}
+
+	/**
+	 * Incremented every time any item count changes
+	 */
+	public static long getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * Apply a single slot update
+	 * @param index Player inventory index (0-35)
+	 */
+	public static void updateSlot(int index, ItemStack stack) {
+		if (index < 0 || index >= SLOT_COUNT) return;
+
+		Item item = stack.isEmpty() ? null : stack.getItem();
+		int count = stack.isEmpty() ? 0 : stack.getCount();
+		if (slotItems[index] == item && slotCounts[index] == count) return;
+
+		// Remove the old contents, then add the new
+		Item previous = slotItems[index];
+		if (previous != null) {
+			if (confirmed.merge(previous, -slotCounts[index], Integer::sum) <= 0) {
+				confirmed.remove(previous);
+			}
+		}
+		if (item != null) {
+			confirmed.merge(item, count, Integer::sum);
+		}
+
+		if (previous == item) {
+			absorb(item, count - slotCounts[index]);
+		} else {
+			if (previous != null) {
+				absorb(previous, -slotCounts[index]);
+			}
+			if (item != null) {
+				absorb(item, count);
+			}
+		}
+
+		slotItems[index] = item;
+		slotCounts[index] = count;
+		if (previous != null) {
+			refresh(previous);
+		}
+		if (item != null && item != previous) {
+			refresh(item);
+		}
+	}
+
+	/**
+	 * Reconcile every slot against the player's inventory.
+	 * Only slots that differ touch the counts, so this is cheap when nothing changed.
+	 */
+	public static void sync(ClientPlayerEntity player) {
+		if (player != owner) {
+			reset();
+			owner = player;
+		}
+		if (player == null) return;
+
+		for (int i = 0; i < SLOT_COUNT; i++) {
+			updateSlot(i, player.getInventory().getStack(i));
+		}
+	}
+
+	/**
+	 * Tick handler: reconcile with the client's own inventory changes
+	 */
+	public static void onClientTick(MinecraftClient client) {
+		sync(client.player);
+	}
+
+	/**
+	 * Let the overlays take in a change of a confirmed count, oldest first: a
+	 * decrease absorbs expected consumption, an increase expected production.
+	 * Entries absorbed in full are dropped.
+	 */
+	private static void absorb(Item item, int change) {
+		if (!overlayTotals.containsKey(item)) return;
+
+		for (Map<Item, Integer> delta : overlays.values()) {
+			if (change == 0) break;
+
+			Integer expected = delta.get(item);
+			if (expected == null || Integer.signum(expected) != Integer.signum(change)) continue;
+
+			int taken = Math.abs(expected) <= Math.abs(change) ? expected : change;
+			change -= taken;
+			if (expected == taken) {
+				delta.remove(item);
+			} else {
+				delta.put(item, expected - taken);
+			}
+			if (overlayTotals.merge(item, -taken, Integer::sum) == 0) {
+				overlayTotals.remove(item);
+			}
+		}
+	}
+
+	/**
+	 * Forget the player and everything known about their inventory
+	 */
+	static void clear() {
+		reset();
+		owner = null;
+	}
+
+	private static void reset() {
+		Arrays.fill(slotItems, null);
+		Arrays.fill(slotCounts, 0);
+		counts.clear();
+		confirmed.clear();
+		overlays.clear();
+		overlayTotals.clear();
+		hash = 0;
+		presenceHash = 0;
+		changeCount++;
+		CraftabilityTracker.invalidateAll();
+	}
+
+	/**
+	 * Bring an item's predicted count in line with its confirmed count and overlays
+	 */
+	private static void refresh(Item item) {
+		int before = counts.getOrDefault(item, 0);
+		int after = Math.max(0, confirmed.getOrDefault(item, 0) + overlayTotals.getOrDefault(item, 0));
+		if (after == before) return;
+
+		if (after > 0) {
+			counts.put(item, after);
+		} else {
+			counts.remove(item);
+		}
+
+		// XOR out the old pair and in the new one
+		hash ^= zobrist(item, before) ^ zobrist(item, after);
+		if ((before > 0) != (after > 0)) {
+			presenceHash ^= mix64(Item.getRawId(item));
+		}
+		changeCount++;
+		CraftabilityTracker.onCountChanged(item, before, after);
+	}
+
+	private static long zobrist(Item item, int count) {
+		if (count <= 0) return 0;
+		return mix64(Item.getRawId(item) * 0x9E3779B97F4A7C15L + count);
+	}
+
+	/**
+	 * SplitMix64 finalizer
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,87 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.recipe.NetworkRecipeId;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Global, size-bounded cache of finished crafting plans.
+ *
+ * Plans are keyed by recipe, quantity, the inventory mirror's hash and the
+ * recipe snapshot version, so a hit is always a plan for exactly the current
+ * state; stale entries simply stop being looked up and age out in LRU order.
+ * Cached plans are frozen so callers cannot change them for each other.
+ */
+public class PlanCache {
+
+	private static final int MAX_ENTRIES = 256;
+
+	private static final Map<Key, CraftingPlan> plans = new LinkedHashMap<>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, CraftingPlan> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private static long hits = 0;
+	private static long misses = 0;
+
+	/**
+	 * Identifies a plan
+	 * @param gridSize Crafting grid the plan was restricted to
+	 * @param inventoryHash InventoryMirror.getHash() the plan was made against
+	 * @param recipeVersion RecipeCache.getVersion() the plan was made against
+	 */
+	public record Key(NetworkRecipeId recipeId, int quantity, int gridSize, long inventoryHash, int recipeVersion) {}
+
+	/**
+	 * Key for a plan against the current inventory and recipes.
+	 * Read the inventory through the mirror first so its hash is up to date.
+	 */
+	public static Key currentKey(NetworkRecipeId recipeId, int quantity, int gridSize) {
+		return new Key(recipeId, quantity, gridSize, InventoryMirror.getHash(), RecipeCache.getVersion());
+	}
+
+	/**
+	 * Get a cached plan, or null on a miss
+	 */
+	public static synchronized CraftingPlan get(Key key) {
+		CraftingPlan plan = plans.get(key);
+		if (plan != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return plan;
+	}
+
+	/**
+	 * Freeze and cache a plan
+	 * @return The (now immutable) plan
+	 */
+	public static synchronized CraftingPlan put(Key key, CraftingPlan plan) {
+		plan.freeze();
+		plans.put(key, plan);
+		return plan;
+	}
+
+	/**
+	 * Drop every plan, e.g. when remembered producer choices change
+	 */
+	public static synchronized void clear() {
+		plans.clear();
+	}
+
+	public static synchronized long getHits() {
+		return hits;
+	}
+
+	public static synchronized long getMisses() {
+		return misses;
+	}
+
+	public static synchronized int size() {
+		return plans.size();
+	}
+}
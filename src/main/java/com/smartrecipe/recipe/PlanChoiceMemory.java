@@ -0,0 +1,112 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which recipe the user picked to produce each intermediate item,
+ * so later plans use it directly instead of prompting again.
+ *
+ * Recipe ids are handed out by the server per session, so a choice is kept
+ * as the chosen recipe's ingredients (the first accepted item of each slot)
+ * and matched against the item's producers when it is looked up. That way
+ * choices survive restarts and carry over between servers (SmartRecipeConfig
+ * stores them).
+ */
+public class PlanChoiceMemory {
+
+	private static final Map<Item, List<Item>> choices = new ConcurrentHashMap<>();
+
+	/**
+	 * Remember the recipe chosen for an item
+	 */
+	public static void remember(Item item, RecipeGraph.RecipeNode producer) {
+		// Cached plans may have used a different producer
+		List<Item> signature = signature(producer);
+		if (!signature.equals(choices.put(item, signature))) {
+			PlanCache.clear();
+		}
+	}
+
+	/**
+	 * Get the remembered recipe for an item among the graph's producers, or
+	 * null if the user never chose one or the graph has no such recipe
+	 */
+	public static RecipeGraph.RecipeNode get(Item item, RecipeGraph graph) {
+		List<Item> chosen = choices.get(item);
+		if (chosen == null) return null;
+
+		for (RecipeGraph.RecipeNode producer : graph.getProducers(item)) {
+			if (signature(producer).equals(chosen)) return producer;
+		}
+		return null;
+	}
+
+	/**
+	 * Whether the user chose a recipe for the item
+	 */
+	public static boolean has(Item item) {
+		return choices.containsKey(item);
+	}
+
+	/**
+	 * Forget all choices
+	 */
+	public static void clear() {
+		choices.clear();
+		PlanCache.clear();
+	}
+
+	/**
+	 * Replace the choices with ones read from the config: ingredient item ids
+	 * by item id. Ids of unknown items are skipped.
+	 */
+	public static void load(Map<String, List<String>> saved) {
+		choices.clear();
+		PlanCache.clear();
+		saved.forEach((itemId, ingredientIds) -> {
+			Optional<Item> item = item(itemId);
+			if (item.isEmpty() || ingredientIds == null) return;
+
+			List<Item> ingredients = new ArrayList<>();
+			for (String ingredientId : ingredientIds) {
+				Optional<Item> ingredient = item(ingredientId);
+				if (ingredient.isEmpty()) return;
+				ingredients.add(ingredient.get());
+			}
+			choices.put(item.get(), List.copyOf(ingredients));
+		});
+	}
+
+	/**
+	 * The choices as the config stores them
+	 */
+	public static Map<String, List<String>> save() {
+		Map<String, List<String>> saved = new TreeMap<>();
+		choices.forEach((item, ingredients) ->
+			saved.put(Registries.ITEM.getId(item).toString(),
+				ingredients.stream().map(ingredient -> Registries.ITEM.getId(ingredient).toString()).toList()));
+		return saved;
+	}
+
+	private static List<Item> signature(RecipeGraph.RecipeNode producer) {
+		List<Item> ingredients = new ArrayList<>();
+		for (List<Item> options : producer.getSlots()) {
+			ingredients.add(options.get(0));
+		}
+		return ingredients;
+	}
+
+	private static Optional<Item> item(String id) {
+		Identifier identifier = id == null ? null : Identifier.tryParse(id);
+		return identifier == null ? Optional.empty() : Registries.ITEM.getOptionalValue(identifier);
+	}
+}
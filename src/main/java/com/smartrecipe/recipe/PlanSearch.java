@@ -0,0 +1,324 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+
+import java.util.*;
+
+/**
+ * Resumable top-down plan search.
+ *
+ * This is the planner's depth-first search with its recursion unrolled onto an
+ * explicit stack, so it can stop after any number of node expansions and pick
+ * up where it left off on the next call. run() takes a node and time budget
+ * and reports whether the search finished; UI code can give it a slice of
+ * every frame without ever blocking on a deep tree.
+ *
+ * Each slot tries its options cheapest first. Missing items are produced with
+ * the forced, remembered or cheapest producer, and failed attempts are rolled
+ * back before the next one is tried.
+ */
+public class PlanSearch {
+
+	public static final long UNBOUNDED = Long.MAX_VALUE;
+
+	// Max recursion depth for dependency checking (prevents hangs on complex recipe trees)
+	private static final int MAX_RECURSION_DEPTH = 3;
+
+	// Only read the clock every this many expansions
+	private static final int CLOCK_CHECK_INTERVAL = 32;
+
+	private final RecipeGraph.RecipeNode target;
+	private final RecipeGraph graph;
+	private final CostTable costs;
+	private final Map<Item, RecipeGraph.RecipeNode> overrides;
+
+	private final Map<Item, Integer> inventory;
+	private final Set<Item> visited = new HashSet<>();
+	private final List<CraftingPlan.CraftingStep> steps = new ArrayList<>();
+	private final Map<Item, RecipeGraph.RecipeNode> chosenProducers = new LinkedHashMap<>();
+	private final Set<Item> touchedItems = new HashSet<>();
+	private final Deque<Frame> stack = new ArrayDeque<>();
+	private double cost = 0;
+
+	private int remainingRepetitions;
+	private Boolean childResult = null; // Result of the frame popped last, not yet consumed by its parent
+	private boolean complete = false;
+	private boolean success = false;
+	private long expandedNodes = 0;
+	private long searchNanos = 0; // Time spent in run() over all calls
+
+	/**
+	 * @param target Recipe to craft
+	 * @param repetitions How many times to craft it (all against the same simulated inventory)
+	 * @param inventory Simulated inventory; the search consumes from it in place
+	 * @param overrides Producers to force for specific items
+	 */
+	public PlanSearch(RecipeGraph.RecipeNode target, int repetitions, Map<Item, Integer> inventory,
+					  RecipeGraph graph, CostTable costs, Map<Item, RecipeGraph.RecipeNode> overrides) {
+		this.target = target;
+		this.graph = graph;
+		this.costs = costs;
+		this.overrides = overrides;
+		this.inventory = inventory;
+		this.remainingRepetitions = repetitions;
+		pushRoot();
+	}
+
+	/**
+	 * Run the search until it finishes or a budget runs out
+	 * @param maxNodes Max frames to expand in this call
+	 * @param maxNanos Max time to spend in this call
+	 * @return true if the search is complete
+	 */
+	public boolean run(long maxNodes, long maxNanos) {
+		long start = System.nanoTime();
+		long deadline = maxNanos == UNBOUNDED ? UNBOUNDED : start + maxNanos;
+		long expanded = 0;
+
+		while (!complete) {
+			if (expanded >= maxNodes) break;
+			if (deadline != UNBOUNDED && expanded % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) break;
+
+			expand();
+			expanded++;
+		}
+
+		expandedNodes += expanded;
+		searchNanos += System.nanoTime() - start;
+		return complete;
+	}
+
+	/**
+	 * Run the search to completion
+	 */
+	public boolean runToCompletion() {
+		run(UNBOUNDED, UNBOUNDED);
+		return success;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Whether every repetition was satisfied (only meaningful once complete)
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	/**
+	 * Steps in dependency order, including one target step per repetition
+	 */
+	public List<CraftingPlan.CraftingStep> getSteps() {
+		return steps;
+	}
+
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Producer used for each intermediate item, in the order they were first crafted
+	 */
+	public Map<Item, RecipeGraph.RecipeNode> getChosenProducers() {
+		return chosenProducers;
+	}
+
+	/**
+	 * Every item the search considered for a slot; the outcome can only change
+	 * if the count of one of these changes
+	 */
+	public Set<Item> getTouchedItems() {
+		return touchedItems;
+	}
+
+	public long getExpandedNodes() {
+		return expandedNodes;
+	}
+
+	/**
+	 * Time spent searching so far, over all run() calls
+	 */
+	public long getSearchNanos() {
+		return searchNanos;
+	}
+
+	private void pushRoot() {
+		remainingRepetitions--;
+		stack.push(new Frame(target, 0));
+	}
+
+	/**
+	 * One unit of work: advance the top frame by a single decision
+	 */
+	private void expand() {
+		Frame frame = stack.peek();
+
+		// A sub-recipe just finished - apply or roll back its attempt
+		if (childResult != null) {
+			boolean subSuccess = childResult;
+			childResult = null;
+			RecipeGraph.RecipeNode subRecipe = frame.producers.get(frame.producerIndex);
+			visited.remove(frame.neededItem);
+
+			if (subSuccess) {
+				// Simulate getting the result and consume what this slot needs
+				chosenProducers.put(frame.neededItem, subRecipe);
+				inventory.merge(frame.neededItem, -1, Integer::sum);
+				frame.consumed.merge(frame.neededItem, 1, Integer::sum);
+				frame.nextSlot();
+			} else {
+				// Sub-crafting failed, roll back and try the next producer
+				inventory.clear();
+				inventory.putAll(frame.inventoryBefore);
+				steps.subList(frame.stepsBefore, steps.size()).clear();
+				chosenProducers.clear();
+				chosenProducers.putAll(frame.chosenBefore);
+				cost = frame.costBefore;
+				frame.producerIndex++;
+			}
+			return;
+		}
+
+		// All slots satisfied
+		if (frame.slotIndex >= frame.node.getSlots().size()) {
+			stack.pop();
+			steps.add(new CraftingPlan.CraftingStep(frame.node.getId(), frame.node.getResultStack(), 1,
+				Collections.unmodifiableMap(frame.consumed), frame.node.getStation(), frame.node.getCookingTime()));
+			cost += CostModel.stepCost(frame.node);
+			inventory.merge(frame.node.getResult(), frame.node.getResultCount(), Integer::sum);
+			finishFrame(true);
+			return;
+		}
+
+		// Order the current slot's options cheapest first
+		if (frame.options == null) {
+			List<Item> slotOptions = frame.node.getSlots().get(frame.slotIndex);
+			touchedItems.addAll(slotOptions);
+			frame.options = costs.orderByCost(slotOptions);
+			frame.optionIndex = 0;
+		}
+
+		// Pick the next option to try
+		if (frame.producers == null) {
+			if (frame.optionIndex >= frame.options.size()) {
+				stack.pop();
+				finishFrame(false);
+				return;
+			}
+
+			Item neededItem = frame.options.get(frame.optionIndex);
+
+			// Check if we have it in inventory
+			int haveCount = inventory.getOrDefault(neededItem, 0);
+			if (haveCount >= 1) {
+				// We have it, consume from simulated inventory
+				inventory.put(neededItem, haveCount - 1);
+				frame.consumed.merge(neededItem, 1, Integer::sum);
+				cost += CostModel.rawCost(neededItem);
+				frame.nextSlot();
+				return;
+			}
+
+			// Circular dependency - try next possible ingredient
+			if (visited.contains(neededItem)) {
+				frame.optionIndex++;
+				return;
+			}
+
+			frame.neededItem = neededItem;
+			frame.producers = producersFor(neededItem);
+			frame.producerIndex = 0;
+		}
+
+		// No recipe left for this option - try the next one
+		if (frame.producerIndex >= frame.producers.size()) {
+			frame.producers = null;
+			frame.optionIndex++;
+			return;
+		}
+
+		// Enforce depth limit to prevent hangs
+		if (frame.depth + 1 > MAX_RECURSION_DEPTH) {
+			frame.producerIndex = frame.producers.size();
+			return;
+		}
+
+		// Snapshot so a failed attempt leaves no partial consumption behind
+		frame.inventoryBefore = new HashMap<>(inventory);
+		frame.stepsBefore = steps.size();
+		frame.chosenBefore = new LinkedHashMap<>(chosenProducers);
+		frame.costBefore = cost;
+
+		visited.add(frame.neededItem);
+		stack.push(new Frame(frame.producers.get(frame.producerIndex), frame.depth + 1));
+	}
+
+	private void finishFrame(boolean result) {
+		if (!stack.isEmpty()) {
+			childResult = result;
+			return;
+		}
+
+		// Root finished
+		if (result && remainingRepetitions > 0) {
+			pushRoot();
+			return;
+		}
+
+		complete = true;
+		success = result;
+	}
+
+	/**
+	 * Producers to try for an item: a forced or remembered one first, then the cheapest
+	 */
+	private List<RecipeGraph.RecipeNode> producersFor(Item item) {
+		RecipeGraph.RecipeNode preferred = overrides.get(item);
+		if (preferred == null) {
+			preferred = PlanChoiceMemory.get(item, graph);
+		}
+
+		RecipeGraph.RecipeNode cheapest = costs.getBestProducer(item);
+		if (preferred == null || preferred == cheapest) {
+			return cheapest == null ? Collections.emptyList() : List.of(cheapest);
+		}
+		return cheapest == null ? List.of(preferred) : List.of(preferred, cheapest);
+	}
+
+	/**
+	 * One recipe being resolved, with the position of its slot/option/producer loops
+	 */
+	private static class Frame {
+		final RecipeGraph.RecipeNode node;
+		final int depth;
+		final Map<Item, Integer> consumed = new LinkedHashMap<>(); // What the satisfied slots took
+
+		int slotIndex = 0;
+		List<Item> options = null;
+		int optionIndex = 0;
+		Item neededItem = null;
+		List<RecipeGraph.RecipeNode> producers = null;
+		int producerIndex = 0;
+
+		// State before the current producer attempt
+		Map<Item, Integer> inventoryBefore = null;
+		int stepsBefore = 0;
+		Map<Item, RecipeGraph.RecipeNode> chosenBefore = null;
+		double costBefore = 0;
+
+		Frame(RecipeGraph.RecipeNode node, int depth) {
+			this.node = node;
+			this.depth = depth;
+		}
+
+		void nextSlot() {
+			slotIndex++;
+			options = null;
+			producers = null;
+			inventoryBefore = null;
+			chosenBefore = null;
+		}
+	}
+}
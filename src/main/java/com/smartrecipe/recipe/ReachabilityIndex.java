@@ -0,0 +1,139 @@
+package com.smartrecipe.recipe;
+
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.item.Item;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import java.util.*;
+
+/**
+ * Forward reachability closure: the set of items that can be produced from the
+ * items currently held through any chain of known crafting recipes, ignoring
+ * quantities. Anything outside the closure is provably uncraftable, so callers
+ * can skip the (expensive) top-down planner for it.
+ *
+ * The closure only depends on which items are held, not how many, so it is
+ * recomputed only when that set or the recipe snapshot changes. Like the cost
+ * tables, there is one closure per graph partition: a 2x2 grid does not reach
+ * what only 3x3 recipes make, and only smelting partitions reach smelted items.
+ */
+public class ReachabilityIndex {
+
+	/**
+	 * A partition's closure and the graph and held item set it was computed from
+	 */
+	private record Closure(RecipeGraph graph, long presenceHash, Set<Item> items) {}
+
+	// Last closure per graph partition
+	private static final Map<RecipeGraph.Partition, Closure> current = new HashMap<>();
+
+	/**
+	 * Check if a recipe could possibly be crafted from the current inventory
+	 * with the recipes of a graph partition.
+	 * Returns true for recipes the graph does not know about (let the planner decide).
+	 */
+	public static boolean isRecipeReachable(MinecraftClient client, RecipeGraph graph, NetworkRecipeId recipeId) {
+		if (client.player == null) return false;
+
+		Set<Item> closure = getClosure(client, graph);
+		RecipeGraph.RecipeNode node = graph.getNode(recipeId);
+		if (node == null) return true;
+
+		for (List<Item> options : node.getSlots()) {
+			if (!containsAny(closure, options)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check if an item is held or producible from what is held
+	 */
+	public static boolean isReachable(MinecraftClient client, Item item) {
+		return getClosure(client).contains(item);
+	}
+
+	/**
+	 * Get the current closure for the open grid (held items plus everything producible from them)
+	 */
+	public static Set<Item> getClosure(MinecraftClient client) {
+		if (client.player == null || client.world == null) return Collections.emptySet();
+
+		return getClosure(client, RecipeGraph.get(client.world, RecipeTreeCalculator.getGridSize(client)));
+	}
+
+	/**
+	 * Get the current closure with the recipes of a graph partition, reusing the last one if unchanged
+	 */
+	public static Set<Item> getClosure(MinecraftClient client, RecipeGraph graph) {
+		if (client.player == null) return Collections.emptySet();
+
+		long presenceHash = InventoryMirror.getPresenceHash();
+		Closure closure = current.get(graph.getPartition());
+		if (closure == null || closure.graph() != graph || closure.presenceHash() != presenceHash) {
+			Set<Item> held = RecipeTreeCalculator.getInventoryContents(client.player).keySet();
+			closure = new Closure(graph, presenceHash, computeClosure(graph, held));
+			current.put(graph.getPartition(), closure);
+
+			SmartRecipeBookMod.LOGGER.debug("ReachabilityIndex: {} held items reach {} items in {}",
+				held.size(), closure.items().size(), graph.getPartition());
+		}
+		return closure.items();
+	}
+
+	/**
+	 * Worklist fixpoint: each recipe counts its still-unsatisfied slots and fires
+	 * (adding its result) once every slot has at least one reachable option.
+	 * Every (recipe, slot) pair is visited at most once per item, so this is
+	 * linear in the size of the consumer index.
+	 */
+	static Set<Item> computeClosure(RecipeGraph graph, Set<Item> held) {
+		Set<Item> reached = new HashSet<>();
+		Map<RecipeGraph.RecipeNode, BitSet> satisfiedSlots = new HashMap<>();
+		Map<RecipeGraph.RecipeNode, Integer> pendingSlots = new HashMap<>();
+		Deque<Item> worklist = new ArrayDeque<>();
+
+		for (Item item : held) {
+			if (reached.add(item)) {
+				worklist.add(item);
+			}
+		}
+
+		// Recipes without ingredients are always available
+		for (RecipeGraph.RecipeNode node : graph.getNodes()) {
+			if (node.getSlots().isEmpty() && reached.add(node.getResult())) {
+				worklist.add(node.getResult());
+			}
+		}
+
+		while (!worklist.isEmpty()) {
+			Item item = worklist.poll();
+
+			for (RecipeGraph.SlotRef ref : graph.getConsumers(item)) {
+				RecipeGraph.RecipeNode node = ref.node();
+				BitSet satisfied = satisfiedSlots.computeIfAbsent(node, k -> new BitSet());
+				if (satisfied.get(ref.slot())) continue;
+
+				satisfied.set(ref.slot());
+				int pending = pendingSlots.getOrDefault(node, node.getSlots().size()) - 1;
+				pendingSlots.put(node, pending);
+
+				if (pending == 0 && reached.add(node.getResult())) {
+					worklist.add(node.getResult());
+				}
+			}
+		}
+
+		return reached;
+	}
+
+	private static boolean containsAny(Set<Item> set, List<Item> items) {
+		for (Item item : items) {
+			if (set.contains(item)) return true;
+		}
+		return false;
+	}
+}
@@ -16,6 +16,9 @@ import net.minecraft.recipe.display.RecipeDisplay;
 import net.minecraft.recipe.display.ShapedCraftingRecipeDisplay;
 import net.minecraft.recipe.display.ShapelessCraftingRecipeDisplay;
 import net.minecraft.recipe.display.SlotDisplayContexts;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.network.ServerRecipeBook;
 import net.minecraft.util.context.ContextParameterMap;
 import net.minecraft.world.World;
 
@@ -26,12 +29,21 @@ import java.util.stream.Collectors;
 /**
  * Custom recipe cache that bypasses vanilla ClientRecipeBook.
  * Stores ALL recipes directly when received from the server.
+ *
+ * In singleplayer the cache also holds every recipe of the integrated
+ * server, including ones the player has not unlocked. The recipes the
+ * server's recipe book actually has are tracked separately as a bitmap over
+ * recipe indices, since the server drops craft requests for any other.
  */
 public class RecipeCache {
 
 	// Thread-safe storage for all recipes
 	private static final Map<NetworkRecipeId, RecipeDisplayEntry> recipes = new ConcurrentHashMap<>();
 
+	// Indices of the recipes unlocked in the player's recipe book. Unlike the
+	// recipe map a BitSet is not thread-safe, so every access synchronizes on it.
+	private static final BitSet unlocked = new BitSet();
+
 	// Cached collections for UI (rebuilt when recipes change)
 	private static List<RecipeResultCollection> cachedCollections = null;
 	private static Map<RecipeBookCategory, List<RecipeResultCollection>> cachedByCategory = null;
@@ -39,18 +51,29 @@ public class RecipeCache {
 	// Map from result item to recipes that produce it
 	private static Map<Item, List<RecipeDisplayEntry>> recipesByResult = new ConcurrentHashMap<>();
 
+	// Bumped on every clear and snapshot request, so a late unlocked snapshot is dropped
+	private static int unlockedGeneration = 0;
+
 	// Track if we've loaded from integrated server this session
 	private static boolean loadedFromServer = false;
 
+	// Bumped whenever the recipe set changes so derived indexes know to rebuild
+	private static int version = 0;
+
 	/**
 	 * Clear all cached recipes (called when joining a new world)
 	 */
 	public static void clear() {
 		recipes.clear();
+		synchronized (unlocked) {
+			unlocked.clear();
+		}
+		unlockedGeneration++;
 		recipesByResult.clear();
 		cachedCollections = null;
 		cachedByCategory = null;
 		loadedFromServer = false;
+		version++;
 	}
 
 	/**
@@ -71,14 +94,62 @@ public class RecipeCache {
 		invalidateCache();
 	}
 
+	/**
+	 * Add recipes the server's recipe book unlocked
+	 */
+	public static void unlockRecipes(Collection<RecipeDisplayEntry> entries) {
+		synchronized (unlocked) {
+			for (RecipeDisplayEntry entry : entries) {
+				unlocked.set(entry.id().index());
+			}
+		}
+		addRecipes(entries);
+	}
+
 	/**
 	 * Remove a recipe from the cache
 	 */
 	public static void removeRecipe(NetworkRecipeId id) {
 		recipes.remove(id);
+		synchronized (unlocked) {
+			unlocked.clear(id.index());
+		}
 		invalidateCache();
 	}
 
+	/**
+	 * Handle a recipe the server's recipe book removed. Recipes loaded from the
+	 * integrated server stay in the cache, only locked.
+	 */
+	public static void lockRecipe(NetworkRecipeId id) {
+		if (loadedFromServer) {
+			synchronized (unlocked) {
+				unlocked.clear(id.index());
+			}
+			invalidateCache();
+		} else {
+			removeRecipe(id);
+		}
+	}
+
+	/**
+	 * Whether the server's recipe book has the recipe, so a craft request for it is accepted
+	 */
+	public static boolean isUnlocked(NetworkRecipeId id) {
+		synchronized (unlocked) {
+			return unlocked.get(id.index());
+		}
+	}
+
+	/**
+	 * Number of cached recipes the recipe book has unlocked
+	 */
+	public static int getUnlockedCount() {
+		synchronized (unlocked) {
+			return unlocked.cardinality();
+		}
+	}
+
 	/**
 	 * Get a recipe by its ID
 	 */
@@ -107,6 +178,22 @@ public class RecipeCache {
 		return !recipes.isEmpty();
 	}
 
+	/**
+	 * Get the snapshot version of the recipe set (changes whenever recipes are added or removed)
+	 */
+	public static int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the fully expanded raw-material bill of materials for a crafting recipe.
+	 * Bills are computed for all recipes at once and kept until the snapshot version changes.
+	 * @return The bill, or null if the recipe is not a crafting recipe
+	 */
+	public static BillOfMaterials getBillOfMaterials(NetworkRecipeId recipeId, World world) {
+		return BillOfMaterials.get(world, recipeId);
+	}
+
 	/**
 	 * Get all recipes as RecipeResultCollections (for UI compatibility)
 	 */
@@ -170,6 +257,7 @@ public class RecipeCache {
 		cachedCollections = null;
 		cachedByCategory = null;
 		recipesByResult.clear();
+		version++;
 	}
 
 	/**
@@ -381,7 +469,7 @@ public class RecipeCache {
 	 * Debug: print cache statistics
 	 */
 	public static void logStats() {
-		SmartRecipeBookMod.LOGGER.info("RecipeCache stats: {} total recipes", recipes.size());
+		SmartRecipeBookMod.LOGGER.info("RecipeCache stats: {} total recipes, {} unlocked", recipes.size(), getUnlockedCount());
 
 		// Count by category
 		Map<RecipeBookCategory, Integer> byCategory = new HashMap<>();
@@ -396,7 +484,11 @@ public class RecipeCache {
 
 	/**
 	 * Load ALL recipes from the integrated server (singleplayer only).
-	 * This bypasses the recipe book unlock system to show all recipes.
+	 * This bypasses the recipe book unlock system to show all recipes. The
+	 * unlocked set is then replaced with a snapshot of the player's
+	 * server-side recipe book, taken on the server thread (which owns it) and
+	 * handed back to the client thread, so no bit outlives the recipe list it
+	 * indexed.
 	 */
 	public static void loadFromIntegratedServer() {
 		MinecraftClient client = MinecraftClient.getInstance();
@@ -422,11 +514,46 @@ public class RecipeCache {
 			}
 
 			invalidateCache();
+			requestUnlockedSnapshot(client, serverRecipes);
 		} catch (Exception e) {
 			SmartRecipeBookMod.LOGGER.error("Failed to load recipes from integrated server", e);
 		}
 	}
 
+	/**
+	 * Read which recipes the player's recipe book has on the integrated server
+	 * thread, then replace the unlocked set with it on the client thread.
+	 * A snapshot that arrives after the cache was cleared or loaded again is dropped.
+	 */
+	private static void requestUnlockedSnapshot(MinecraftClient client, List<ServerRecipeManager.ServerRecipe> serverRecipes) {
+		MinecraftServer server = client.getServer();
+		if (server == null || client.player == null) return;
+
+		UUID playerId = client.player.getUuid();
+		int generation = ++unlockedGeneration;
+		server.submit(() -> {
+			BitSet snapshot = new BitSet();
+			ServerPlayerEntity player = server.getPlayerManager().getPlayer(playerId);
+			if (player != null) {
+				ServerRecipeBook recipeBook = player.getRecipeBook();
+				for (ServerRecipeManager.ServerRecipe serverRecipe : serverRecipes) {
+					if (recipeBook.isUnlocked(serverRecipe.parent().id())) {
+						snapshot.set(serverRecipe.display().id().index());
+					}
+				}
+			}
+			return snapshot;
+		}).thenAccept(snapshot -> client.execute(() -> {
+			if (generation != unlockedGeneration) return;
+
+			synchronized (unlocked) {
+				unlocked.clear();
+				unlocked.or(snapshot);
+			}
+			invalidateCache();
+		}));
+	}
+
 	/**
 	 * Ensure recipes are loaded, loading from server if needed
 	 */
@@ -0,0 +1,347 @@
+package com.smartrecipe.recipe;
+
+import com.smartrecipe.SmartRecipeBookMod;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.recipe.RecipeDisplayEntry;
+import net.minecraft.recipe.display.FurnaceRecipeDisplay;
+import net.minecraft.recipe.display.RecipeDisplay;
+import net.minecraft.recipe.display.ShapedCraftingRecipeDisplay;
+import net.minecraft.recipe.display.ShapelessCraftingRecipeDisplay;
+import net.minecraft.recipe.display.SlotDisplay;
+import net.minecraft.recipe.display.SlotDisplayContexts;
+import net.minecraft.util.context.ContextParameterMap;
+import net.minecraft.world.World;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of the crafting and smelting recipes in RecipeCache, with
+ * ingredient slots already resolved to items. Indexed both by result
+ * (producers) and by ingredient (consumers) so graph searches never touch
+ * SlotDisplay again. Rebuilt lazily whenever the RecipeCache version changes.
+ *
+ * The full graph holds every recipe. Partitions restricted to the recipes
+ * that fit a crafting grid, with or without smelting recipes, are built
+ * alongside it, so planning for the inventory never picks a producer it
+ * cannot run.
+ */
+public class RecipeGraph {
+
+	public static final int SMALL_GRID = 2;
+	public static final int LARGE_GRID = 3;
+
+	private static RecipeGraph current = null;
+
+	/**
+	 * Which recipes a graph holds
+	 * @param gridSize Largest crafting grid its crafting recipes need
+	 * @param smelting Whether it holds furnace, blast furnace, smoker and campfire recipes
+	 */
+	public record Partition(int gridSize, boolean smelting) {}
+
+	private static final Partition FULL = new Partition(LARGE_GRID, true);
+
+	private final int version;
+	private final Partition partition;
+	private final Map<Partition, RecipeGraph> partitions; // Shared by the full graph and its partitions
+	private final List<RecipeNode> nodes;
+	private final Map<NetworkRecipeId, RecipeNode> nodesById;
+	private final Map<Item, List<RecipeNode>> producers;
+	private final Map<Item, List<SlotRef>> consumers;
+
+	private RecipeGraph(int version, Partition partition, Map<Partition, RecipeGraph> partitions, List<RecipeNode> nodes) {
+		this.version = version;
+		this.partition = partition;
+		this.partitions = partitions;
+		this.nodes = nodes;
+		this.nodesById = new HashMap<>();
+		this.producers = new HashMap<>();
+		this.consumers = new HashMap<>();
+
+		for (RecipeNode node : nodes) {
+			nodesById.put(node.id, node);
+			producers.computeIfAbsent(node.result, k -> new ArrayList<>()).add(node);
+
+			for (int i = 0; i < node.slots.size(); i++) {
+				for (Item option : node.slots.get(i)) {
+					consumers.computeIfAbsent(option, k -> new ArrayList<>()).add(new SlotRef(node, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the full graph for the current recipe snapshot, rebuilding it if recipes changed
+	 */
+	public static RecipeGraph get(World world) {
+		int cacheVersion = RecipeCache.getVersion();
+		if (current == null || current.version != cacheVersion) {
+			current = build(world, cacheVersion);
+		}
+		return current;
+	}
+
+	/**
+	 * Get the graph restricted to crafting recipes that fit a crafting grid of the given size
+	 */
+	public static RecipeGraph get(World world, int gridSize) {
+		return get(world, gridSize, false);
+	}
+
+	/**
+	 * Get the graph restricted to crafting recipes that fit a crafting grid of
+	 * the given size, optionally with the smelting recipes
+	 */
+	public static RecipeGraph get(World world, int gridSize, boolean smelting) {
+		return get(world).getPartition(gridSize, smelting);
+	}
+
+	/**
+	 * Get the partition of this graph's snapshot for a crafting grid size, with or without smelting recipes
+	 */
+	public RecipeGraph getPartition(int gridSize, boolean smelting) {
+		int grid = gridSize >= LARGE_GRID ? LARGE_GRID : SMALL_GRID;
+		return partitions.get(new Partition(grid, smelting));
+	}
+
+	private static RecipeGraph build(World world, int version) {
+		List<RecipeNode> nodes = new ArrayList<>();
+
+		if (world != null) {
+			ContextParameterMap contextParams = SlotDisplayContexts.createParameters(world);
+
+			for (RecipeDisplayEntry entry : RecipeCache.getAllRecipes()) {
+				try {
+					RecipeNode node = RecipeNode.create(entry, contextParams);
+					if (node != null) {
+						nodes.add(node);
+					}
+				} catch (Exception e) {
+					// Skip recipes whose displays fail to resolve
+				}
+			}
+		}
+
+		RecipeGraph graph = of(version, nodes);
+		SmartRecipeBookMod.LOGGER.debug("RecipeGraph: Built {} nodes, {} crafting fit 2x2 (recipe version {})",
+			nodes.size(), graph.partitions.get(new Partition(SMALL_GRID, false)).nodes.size(), version);
+		return graph;
+	}
+
+	/**
+	 * Build the full graph over the given recipes along with its partitions,
+	 * without touching the shared snapshot
+	 */
+	static RecipeGraph of(int version, List<RecipeNode> nodes) {
+		Map<Partition, RecipeGraph> partitions = new HashMap<>();
+		RecipeGraph graph = new RecipeGraph(version, FULL, partitions, nodes);
+		partitions.put(FULL, graph);
+
+		for (int grid : new int[] { SMALL_GRID, LARGE_GRID }) {
+			for (boolean smelting : new boolean[] { false, true }) {
+				Partition partition = new Partition(grid, smelting);
+				if (partition.equals(FULL)) continue;
+
+				List<RecipeNode> partitionNodes = new ArrayList<>();
+				for (RecipeNode node : nodes) {
+					if (node.isSmelting() ? smelting : node.fitsGrid(grid)) {
+						partitionNodes.add(node);
+					}
+				}
+				partitions.put(partition, new RecipeGraph(version, partition, partitions, partitionNodes));
+			}
+		}
+		return graph;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public Partition getPartition() {
+		return partition;
+	}
+
+	/**
+	 * Largest crafting grid the recipes in this graph need
+	 */
+	public int getGridSize() {
+		return partition.gridSize();
+	}
+
+	public List<RecipeNode> getNodes() {
+		return nodes;
+	}
+
+	public RecipeNode getNode(NetworkRecipeId id) {
+		return nodesById.get(id);
+	}
+
+	/**
+	 * Get all recipes whose result is the given item
+	 */
+	public List<RecipeNode> getProducers(Item item) {
+		return producers.getOrDefault(item, Collections.emptyList());
+	}
+
+	/**
+	 * Get every (recipe, slot) pair that accepts the given item as an ingredient
+	 */
+	public List<SlotRef> getConsumers(Item item) {
+		return consumers.getOrDefault(item, Collections.emptyList());
+	}
+
+	/**
+	 * Reference to one ingredient slot of a recipe
+	 */
+	public record SlotRef(RecipeNode node, int slot) {}
+
+	/**
+	 * A crafting or smelting recipe with its ingredient slots resolved to items.
+	 * Empty slots (air in shaped recipes) are dropped.
+	 */
+	public static class RecipeNode {
+		private final RecipeDisplayEntry entry;
+		private final NetworkRecipeId id;
+		private final ItemStack resultStack;
+		private final Item result;
+		private final List<List<Item>> slots;
+		private final int minGridSize;
+		private final Item station; // Furnace/blast furnace/smoker/campfire, null for crafting recipes
+		private final int cookingTime;
+
+		private RecipeNode(RecipeDisplayEntry entry, NetworkRecipeId id, ItemStack resultStack, List<List<Item>> slots,
+						   int minGridSize, Item station, int cookingTime) {
+			this.entry = entry;
+			this.minGridSize = minGridSize;
+			this.station = station;
+			this.cookingTime = cookingTime;
+			this.id = id;
+			this.resultStack = resultStack;
+			this.result = resultStack.getItem();
+			this.slots = slots;
+		}
+
+		private static RecipeNode create(RecipeDisplayEntry entry, ContextParameterMap contextParams) {
+			RecipeDisplay display = entry.display();
+
+			SlotDisplay resultSlot;
+			List<SlotDisplay> ingredients;
+			int minGridSize;
+			Item station = null;
+			int cookingTime = 0;
+			if (display instanceof FurnaceRecipeDisplay furnace) {
+				resultSlot = furnace.result();
+				ingredients = List.of(furnace.ingredient());
+				minGridSize = 0;
+				cookingTime = furnace.duration();
+
+				// Which station runs it (a furnace if the display does not say)
+				List<ItemStack> stations = furnace.craftingStation().getStacks(contextParams);
+				station = stations.isEmpty() || stations.get(0).isEmpty() ? Items.FURNACE : stations.get(0).getItem();
+			} else if (display instanceof ShapedCraftingRecipeDisplay shaped) {
+				resultSlot = shaped.result();
+				ingredients = shaped.ingredients();
+				minGridSize = Math.max(shaped.width(), shaped.height());
+			} else if (display instanceof ShapelessCraftingRecipeDisplay shapeless) {
+				resultSlot = shapeless.result();
+				ingredients = shapeless.ingredients();
+				minGridSize = ingredients.size() <= SMALL_GRID * SMALL_GRID ? SMALL_GRID : LARGE_GRID;
+			} else {
+				return null;
+			}
+
+			List<ItemStack> results = resultSlot.getStacks(contextParams);
+			if (results.isEmpty() || results.get(0).isEmpty()) return null;
+
+			List<List<Item>> slots = new ArrayList<>();
+			for (SlotDisplay slot : ingredients) {
+				// Keep option order (the planner tries them first to last) but drop duplicates
+				LinkedHashSet<Item> options = new LinkedHashSet<>();
+				for (ItemStack stack : slot.getStacks(contextParams)) {
+					if (!stack.isEmpty()) {
+						options.add(stack.getItem());
+					}
+				}
+				if (!options.isEmpty()) {
+					slots.add(List.copyOf(options));
+				}
+			}
+
+			return new RecipeNode(entry, entry.id(), results.get(0), List.copyOf(slots), minGridSize, station, cookingTime);
+		}
+
+		/**
+		 * A crafting recipe without a display entry (for tests)
+		 */
+		static RecipeNode crafting(NetworkRecipeId id, ItemStack result, int minGridSize, List<List<Item>> slots) {
+			return new RecipeNode(null, id, result, List.copyOf(slots), minGridSize, null, 0);
+		}
+
+		/**
+		 * A smelting recipe without a display entry (for tests)
+		 */
+		static RecipeNode smelting(NetworkRecipeId id, ItemStack result, Item input, int cookingTime) {
+			return new RecipeNode(null, id, result, List.of(List.of(input)), 0, Items.FURNACE, cookingTime);
+		}
+
+		public RecipeDisplayEntry getEntry() {
+			return entry;
+		}
+
+		public NetworkRecipeId getId() {
+			return id;
+		}
+
+		public ItemStack getResultStack() {
+			return resultStack;
+		}
+
+		public Item getResult() {
+			return result;
+		}
+
+		public int getResultCount() {
+			return resultStack.getCount();
+		}
+
+		/**
+		 * Ticks this recipe occupies a station for (0 for instant crafting recipes)
+		 */
+		public int getCookingTime() {
+			return cookingTime;
+		}
+
+		/**
+		 * Whether this is a timed smelting recipe rather than an instant crafting one
+		 */
+		public boolean isSmelting() {
+			return station != null;
+		}
+
+		/**
+		 * Station item that runs this recipe, or null for crafting recipes
+		 */
+		public Item getStation() {
+			return station;
+		}
+
+		/**
+		 * Whether the recipe can be crafted in a grid of the given size (smelting recipes use no grid)
+		 */
+		public boolean fitsGrid(int gridSize) {
+			return minGridSize <= gridSize;
+		}
+
+		/**
+		 * Non-empty ingredient slots, each a list of accepted items
+		 */
+		public List<List<Item>> getSlots() {
+			return slots;
+		}
+	}
+}
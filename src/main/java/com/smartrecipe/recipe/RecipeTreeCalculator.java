@@ -7,16 +7,9 @@ import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.recipe.NetworkRecipeId;
-import net.minecraft.recipe.RecipeDisplayEntry;
-import net.minecraft.recipe.display.RecipeDisplay;
-import net.minecraft.recipe.display.ShapedCraftingRecipeDisplay;
-import net.minecraft.recipe.display.ShapelessCraftingRecipeDisplay;
-import net.minecraft.recipe.display.SlotDisplay;
-import net.minecraft.recipe.display.SlotDisplayContexts;
-import net.minecraft.util.context.ContextParameterMap;
+import net.minecraft.screen.CraftingScreenHandler;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Calculates the crafting tree needed to make an item,
@@ -24,14 +17,15 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class RecipeTreeCalculator {
 
-	// Cache for findRecipeForItem results to avoid repeated searches
-	private static final Map<Item, RecipeDisplayEntry> recipeForItemCache = new ConcurrentHashMap<>();
-	private static final Set<Item> itemsWithNoRecipe = ConcurrentHashMap.newKeySet();
-	private static long lastCacheClear = 0;
-	private static final long CACHE_TTL_MS = 5000; // Clear cache every 5 seconds
+	// Limits for enumerating alternative plans (k-best)
+	private static final int MAX_PLAN_ALTERNATIVES = 5; // Alternative plans solved per request
+	private static final int MAX_OPTIONS_PER_ITEM = 3; // Choices offered per intermediate item
+	private static final double ALTERNATIVE_PRUNE_FACTOR = 3.0; // Skip producers costing more than this times the chosen one
+	private static final long ALTERNATIVE_TIME_BUDGET_NS = 5_000_000L; // Hard bound of 5ms
 
-	// Max recursion depth for dependency checking (prevents hangs on complex recipe trees)
-	private static final int MAX_RECURSION_DEPTH = 3;
+	// Budgeted searches in progress, resumed by advancePlan
+	private static final Map<NetworkRecipeId, PendingPlan> pendingPlans = new HashMap<>();
+	private static final int MAX_PENDING_PLANS = 64;
 
 	/**
 	 * Calculate a crafting plan for the given recipe
@@ -40,316 +34,321 @@ public class RecipeTreeCalculator {
 	 * @return A CraftingPlan, or null if no special handling needed
 	 */
 	public static CraftingPlan calculatePlan(MinecraftClient client, NetworkRecipeId recipeId) {
-		if (client.player == null || client.world == null) return null;
+		return calculatePlan(client, recipeId, false, Collections.emptyMap());
+	}
 
-		// Get the recipe display entry from our custom cache
-		RecipeDisplayEntry entry = RecipeCache.findRecipeById(recipeId);
+	/**
+	 * Calculate a crafting plan and also enumerate the best alternative producers
+	 * for its intermediates, so the user can pick between them.
+	 * Intermediates with a remembered choice are not offered again.
+	 */
+	public static CraftingPlan calculatePlanWithChoices(MinecraftClient client, NetworkRecipeId recipeId) {
+		return calculatePlan(client, recipeId, true, Collections.emptyMap());
+	}
 
-		if (entry == null) {
-			SmartRecipeBookMod.LOGGER.debug("Recipe entry not found for {}", recipeId);
-			return null;
-		}
+	/**
+	 * Calculate a plan that uses the given producers for their items, e.g. the
+	 * ones the user picked from a plan's recipe choices. Such plans are not cached.
+	 * @param chosen Recipe to produce each item with
+	 */
+	public static CraftingPlan calculatePlanWithChoices(MinecraftClient client, NetworkRecipeId recipeId,
+														Map<Item, NetworkRecipeId> chosen) {
+		return calculatePlan(client, recipeId, false, chosen);
+	}
 
-		// Get the recipe display
-		RecipeDisplay display = entry.display();
+	/**
+	 * Calculate a plan that may also smelt intermediates (e.g. glass from sand)
+	 * in a furnace, blast furnace, smoker or campfire. Smelting steps are only
+	 * planned, not executed, so these plans are for showing what is needed.
+	 * Fuel is not accounted for.
+	 * @return A CraftingPlan, or null if the recipe is not in the open grid
+	 */
+	public static CraftingPlan calculateSmeltingPlan(MinecraftClient client, NetworkRecipeId recipeId) {
+		if (client.player == null || client.world == null) return null;
 
-		// Only handle crafting recipes
-		if (!(display instanceof ShapedCraftingRecipeDisplay) &&
-			!(display instanceof ShapelessCraftingRecipeDisplay)) {
-			return null;
-		}
+		RecipeGraph graph = RecipeGraph.get(client.world, getGridSize(client), true);
+		RecipeGraph.RecipeNode node = graph.getNode(recipeId);
+		if (node == null || node.isSmelting()) return null;
 
-		// Get current inventory
 		Map<Item, Integer> inventory = getInventoryContents(client.player);
-		ContextParameterMap contextParams = SlotDisplayContexts.createParameters(client.world);
+		CraftingPlan plan = new CraftingPlan(recipeId, node.getResultStack());
 
-		// Get result item
-		ItemStack resultStack = getResultItem(display, contextParams);
-
-		// Create the plan
-		CraftingPlan plan = new CraftingPlan(recipeId, resultStack);
-
-		// Calculate dependencies (with depth limit to prevent hangs)
-		Set<Item> visited = new HashSet<>();
-		List<CraftingPlan.CraftingStep> steps = new ArrayList<>();
-
-		boolean success = calculateDependencies(client, entry, inventory, visited, steps, contextParams, 0);
-
-		if (success) {
-			// Add all dependency steps to plan (they're already in dependency order)
-			for (CraftingPlan.CraftingStep step : steps) {
-				plan.addStep(step);
-			}
-		} else {
-			// Mark plan as not craftable if dependencies couldn't be resolved
+		if (!ReachabilityIndex.isRecipeReachable(client, graph, recipeId)) {
 			plan.setCanCraft(false);
+			plan.addStep(new CraftingPlan.CraftingStep(recipeId, node.getResultStack(), 1));
+			return plan;
 		}
 
-		// Always add the target recipe as the final step
-		plan.addStep(new CraftingPlan.CraftingStep(recipeId, resultStack, 1));
-
-		SmartRecipeBookMod.LOGGER.info("Created plan with {} steps for {} (canCraft: {})",
-			plan.getSteps().size(), resultStack.getName().getString(), plan.canCraft());
+		CostTable costs = CostTable.get(graph, inventory.keySet());
+		PlanSearch search = new PlanSearch(node, 1, new HashMap<>(inventory), graph, costs, Collections.emptyMap());
+		search.runToCompletion();
+		fillPlan(plan, search, inventory);
 
+		SmartRecipeBookMod.LOGGER.info("Created smelting plan for {}: {} crafting / {} smelting steps, ~{} ticks (canCraft: {})",
+			node.getResultStack().getName().getString(), plan.getCraftingSteps().size(), plan.getSmeltingSteps().size(),
+			plan.getEstimatedTicks(), plan.canCraft());
 		return plan;
 	}
 
-	/**
-	 * Recursively calculate dependencies for a recipe
-	 */
-	private static boolean calculateDependencies(
-			MinecraftClient client,
-			RecipeDisplayEntry entry,
-			Map<Item, Integer> inventory,
-			Set<Item> visited,
-			List<CraftingPlan.CraftingStep> steps,
-			ContextParameterMap contextParams,
-			int depth) {
-
-		// Enforce depth limit to prevent hangs
-		if (depth > MAX_RECURSION_DEPTH) {
-			return false;
-		}
-
-		RecipeDisplay display = entry.display();
-		List<SlotDisplay> ingredients = getIngredients(display);
-
-		if (ingredients == null) return false;
-
-		// Check each ingredient slot
-		for (SlotDisplay slotDisplay : ingredients) {
-			List<ItemStack> possibleStacks = slotDisplay.getStacks(contextParams);
-
-			if (possibleStacks.isEmpty()) {
-				// Empty slot (like air in shaped recipes) - skip
-				continue;
-			}
-
-			// Try each possible ingredient for this slot
-			boolean foundIngredient = false;
-
-			for (ItemStack possible : possibleStacks) {
-				if (possible.isEmpty()) continue;
-
-				Item neededItem = possible.getItem();
-				int neededCount = 1;
-
-				// Check if we have it in inventory
-				int haveCount = inventory.getOrDefault(neededItem, 0);
-
-				if (haveCount >= neededCount) {
-					// We have it, consume from simulated inventory
-					inventory.put(neededItem, haveCount - neededCount);
-					foundIngredient = true;
-					break;
-				}
+	private static CraftingPlan calculatePlan(MinecraftClient client, NetworkRecipeId recipeId, boolean withChoices,
+											 Map<Item, NetworkRecipeId> chosen) {
+		if (client.player == null || client.world == null) return null;
 
-				// Don't have it directly - check if we can craft it
-				if (visited.contains(neededItem)) {
-					// Circular dependency - try next possible ingredient
-					continue;
-				}
+		// Get the recipe node from the graph (only crafting recipes that fit the open grid are in it)
+		RecipeGraph graph = RecipeGraph.get(client.world, getGridSize(client));
+		RecipeGraph.RecipeNode node = graph.getNode(recipeId);
 
-				// Find a recipe that produces this item
-				RecipeDisplayEntry subRecipe = findRecipeForItem(neededItem, contextParams, inventory);
+		if (node == null) {
+			SmartRecipeBookMod.LOGGER.debug("Crafting recipe not found for {}", recipeId);
+			return null;
+		}
 
-				if (subRecipe != null) {
-					visited.add(neededItem);
+		ItemStack resultStack = node.getResultStack();
 
-					// Recursively calculate dependencies for sub-recipe
-					boolean subSuccess = calculateDependencies(client, subRecipe, inventory, visited, steps, contextParams, depth + 1);
+		// Get current inventory, then look for a plan made against exactly this state
+		Map<Item, Integer> inventory = getInventoryContents(client.player);
+		PlanCache.Key key = PlanCache.currentKey(recipeId, 1, graph.getGridSize());
+		boolean shared = !withChoices && chosen.isEmpty();
+		if (shared) {
+			CraftingPlan cached = PlanCache.get(key);
+			if (cached != null) return cached;
+		}
 
-					if (subSuccess) {
-						// Add the sub-recipe step (after its dependencies)
-						ItemStack subResult = getResultItem(subRecipe.display(), contextParams);
-						steps.add(new CraftingPlan.CraftingStep(subRecipe.id(), subResult, 1));
+		// Create the plan
+		CraftingPlan plan = new CraftingPlan(recipeId, resultStack);
 
-						// Simulate getting the result
-						int resultCount = subResult.getCount();
-						inventory.merge(neededItem, resultCount - neededCount, Integer::sum);
+		// Provably uncraftable if some ingredient is outside the forward closure
+		if (!ReachabilityIndex.isRecipeReachable(client, graph, recipeId)) {
+			plan.setCanCraft(false);
+			plan.addStep(new CraftingPlan.CraftingStep(recipeId, resultStack, 1));
+			return shared ? PlanCache.put(key, plan) : plan;
+		}
 
-						visited.remove(neededItem);
-						foundIngredient = true;
-						break;
-					}
+		// Get the cost table for what the inventory holds
+		CostTable costs = CostTable.get(graph, inventory.keySet());
 
-					visited.remove(neededItem);
-					// Sub-crafting failed, try next possible ingredient
-				}
-				// No recipe or sub-crafting failed - try next possible ingredient
+		// Producers the caller chose come first for their items
+		Map<Item, RecipeGraph.RecipeNode> overrides = new HashMap<>();
+		chosen.forEach((item, producerId) -> {
+			RecipeGraph.RecipeNode producer = graph.getNode(producerId);
+			if (producer != null) {
+				overrides.put(item, producer);
 			}
+		});
 
-			if (!foundIngredient) {
-				return false;
-			}
+		// Calculate dependencies (with depth limit to prevent hangs)
+		PlanSearch search = new PlanSearch(node, 1, new HashMap<>(inventory), graph, costs, overrides);
+		search.runToCompletion();
+		fillPlan(plan, search, inventory);
+
+		if (withChoices && search.isSuccess()) {
+			addRecipeChoices(plan, node, inventory, graph, costs, search);
 		}
 
-		return true;
-	}
+		SmartRecipeBookMod.LOGGER.debug("Created plan with {} steps for {} (canCraft: {}, cost: {})",
+			plan.getSteps().size(), resultStack.getName().getString(), plan.canCraft(), plan.getCost());
 
-	/**
-	 * Find a recipe entry by ID (uses RecipeCache)
-	 */
-	private static RecipeDisplayEntry findRecipeEntry(NetworkRecipeId recipeId) {
-		return RecipeCache.findRecipeById(recipeId);
+		// Plans with choices depend on what the user picks, so only plain plans are shared
+		return shared ? PlanCache.put(key, plan) : plan;
 	}
 
 	/**
-	 * Clear cache if TTL expired
+	 * Copy a finished search into a plan, aggregating its crafts into one step per recipe
+	 * @param inventory Inventory the search started from
 	 */
-	private static void maybeClearCache() {
-		long now = System.currentTimeMillis();
-		if (now - lastCacheClear > CACHE_TTL_MS) {
-			recipeForItemCache.clear();
-			itemsWithNoRecipe.clear();
-			lastCacheClear = now;
+	private static void fillPlan(CraftingPlan plan, PlanSearch search, Map<Item, Integer> inventory) {
+		plan.setDependencies(Collections.unmodifiableSet(new HashSet<>(search.getTouchedItems())));
+
+		long start = System.nanoTime();
+		if (search.isSuccess()) {
+			// Steps are already in dependency order and end with the target
+			List<CraftingPlan.CraftingStep> aggregated = StepAggregator.aggregate(search.getSteps(), inventory);
+			for (CraftingPlan.CraftingStep step : aggregated != null ? aggregated : search.getSteps()) {
+				plan.addStep(step);
+			}
+			plan.setCost(search.getCost());
+			plan.setUnbatchedStepCount(search.getSteps().size());
+		} else {
+			// Mark plan as not craftable if dependencies couldn't be resolved
+			plan.setCanCraft(false);
+			plan.addStep(new CraftingPlan.CraftingStep(plan.getTargetRecipe(), plan.getTargetItem(), 1));
 		}
+		plan.setPlanningNanos(search.getSearchNanos() + System.nanoTime() - start);
 	}
 
 	/**
-	 * Find a crafting recipe that produces the given item
+	 * Advance a budgeted plan search for a recipe, starting one if needed.
+	 * The search is kept between calls and resumed on the next one (e.g. the
+	 * next frame), and restarted if the inventory or recipes changed meanwhile.
+	 * @param maxNanos Time this call may spend searching
+	 * @return The plan once complete; an incomplete result has no plan yet
 	 */
-	private static RecipeDisplayEntry findRecipeForItem(Item item, ContextParameterMap contextParams, Map<Item, Integer> inventory) {
-		maybeClearCache();
+	public static PlanResult advancePlan(MinecraftClient client, NetworkRecipeId recipeId, long maxNanos) {
+		if (client.player == null || client.world == null) return new PlanResult(null, true);
 
-		// Check cache first
-		if (recipeForItemCache.containsKey(item)) {
-			return recipeForItemCache.get(item);
-		}
+		RecipeGraph graph = RecipeGraph.get(client.world, getGridSize(client));
+		RecipeGraph.RecipeNode node = graph.getNode(recipeId);
+		if (node == null) return new PlanResult(null, true);
 
-		// Check if we already know this item has no recipe
-		if (itemsWithNoRecipe.contains(item)) {
-			return null;
-		}
+		Map<Item, Integer> inventory = getInventoryContents(client.player);
+		long inventoryHash = InventoryMirror.getHash();
+		PlanCache.Key key = PlanCache.currentKey(recipeId, 1, graph.getGridSize());
 
-		// Try to find any recipe that produces this item
-		RecipeDisplayEntry fallbackRecipe = null;
+		CraftingPlan cached = PlanCache.get(key);
+		if (cached != null) {
+			pendingPlans.remove(recipeId);
+			return new PlanResult(cached, true);
+		}
 
-		for (var entry : RecipeCache.getAllRecipes()) {
-			RecipeDisplay display = entry.display();
+		PendingPlan pending = pendingPlans.get(recipeId);
 
-			// Only consider crafting recipes
-			if (!(display instanceof ShapedCraftingRecipeDisplay) &&
-				!(display instanceof ShapelessCraftingRecipeDisplay)) {
-				continue;
+		if (pending == null || pending.graph() != graph || pending.inventoryHash() != inventoryHash) {
+			// Provably uncraftable plans complete immediately
+			if (!ReachabilityIndex.isRecipeReachable(client, graph, recipeId)) {
+				pendingPlans.remove(recipeId);
+				CraftingPlan plan = new CraftingPlan(recipeId, node.getResultStack());
+				plan.setCanCraft(false);
+				plan.addStep(new CraftingPlan.CraftingStep(recipeId, node.getResultStack(), 1));
+				return new PlanResult(PlanCache.put(key, plan), true);
 			}
 
-			ItemStack result = getResultItem(display, contextParams);
-
-			// Check by item reference (exact match)
-			if (result.getItem() == item) {
-				// Prefer recipes we can craft directly
-				if (canCraftRecipe(display, contextParams, inventory)) {
-					recipeForItemCache.put(item, entry);
-					return entry;
-				}
-				// Keep first match as fallback
-				if (fallbackRecipe == null) {
-					fallbackRecipe = entry;
-				}
+			if (pendingPlans.size() >= MAX_PENDING_PLANS) {
+				pendingPlans.clear();
 			}
+
+			CostTable costs = CostTable.get(graph, inventory.keySet());
+			PlanSearch search = new PlanSearch(node, 1, new HashMap<>(inventory), graph, costs, Collections.emptyMap());
+			pending = new PendingPlan(graph, inventoryHash, search);
+			pendingPlans.put(recipeId, pending);
 		}
 
-		// Cache the result
-		if (fallbackRecipe != null) {
-			recipeForItemCache.put(item, fallbackRecipe);
-		} else {
-			itemsWithNoRecipe.add(item);
+		if (!pending.search().run(PlanSearch.UNBOUNDED, maxNanos)) {
+			return new PlanResult(null, false);
 		}
-		return fallbackRecipe;
+
+		pendingPlans.remove(recipeId);
+		CraftingPlan plan = new CraftingPlan(recipeId, node.getResultStack());
+		fillPlan(plan, pending.search(), inventory);
+
+		SmartRecipeBookMod.LOGGER.debug("Budgeted plan for {} finished after {} expansions (canCraft: {})",
+			recipeId, pending.search().getExpandedNodes(), plan.canCraft());
+		return new PlanResult(PlanCache.put(key, plan), true);
 	}
 
 	/**
-	 * Check if we have all ingredients to craft a recipe
+	 * Result of a budgeted plan search
+	 * @param plan The plan, or null while the search is incomplete
+	 * @param complete Whether the search finished
+	 */
+	public record PlanResult(CraftingPlan plan, boolean complete) {}
+
+	private record PendingPlan(RecipeGraph graph, long inventoryHash, PlanSearch search) {}
+
+	/**
+	 * Enumerate the top alternative plans, one deviation at a time: for every
+	 * intermediate the best plan crafts, force each other viable producer and
+	 * re-solve. Producers are tried cheapest first and pruned by cost, and the
+	 * whole enumeration stops at a fixed number of solves or time budget.
 	 */
-	private static boolean canCraftRecipe(RecipeDisplay display, ContextParameterMap contextParams, Map<Item, Integer> inventory) {
-		List<SlotDisplay> ingredients = getIngredients(display);
-		if (ingredients == null) return false;
-
-		// Create a copy of inventory to simulate consumption
-		Map<Item, Integer> simInventory = new HashMap<>(inventory);
-
-		for (SlotDisplay slot : ingredients) {
-			List<ItemStack> possibleIngredients = slot.getStacks(contextParams);
-			if (possibleIngredients.isEmpty()) continue;
-
-			boolean foundIngredient = false;
-			for (ItemStack possible : possibleIngredients) {
-				if (possible.isEmpty()) continue;
-				int have = simInventory.getOrDefault(possible.getItem(), 0);
-				if (have > 0) {
-					simInventory.put(possible.getItem(), have - 1);
-					foundIngredient = true;
+	private static void addRecipeChoices(CraftingPlan plan, RecipeGraph.RecipeNode target, Map<Item, Integer> inventory,
+										 RecipeGraph graph, CostTable costs, PlanSearch best) {
+		long deadline = System.nanoTime() + ALTERNATIVE_TIME_BUDGET_NS;
+		int solved = 0;
+
+		for (Map.Entry<Item, RecipeGraph.RecipeNode> chosen : best.getChosenProducers().entrySet()) {
+			Item item = chosen.getKey();
+			RecipeGraph.RecipeNode chosenProducer = chosen.getValue();
+
+			// The user already picked a producer for this item
+			if (PlanChoiceMemory.has(item)) continue;
+
+			double chosenCost = costs.getRecipeCost(chosenProducer);
+			List<RecipeGraph.RecipeNode> candidates = new ArrayList<>();
+			for (RecipeGraph.RecipeNode producer : graph.getProducers(item)) {
+				if (producer != chosenProducer && costs.getRecipeCost(producer) <= chosenCost * ALTERNATIVE_PRUNE_FACTOR) {
+					candidates.add(producer);
+				}
+			}
+			if (candidates.isEmpty()) continue;
+			candidates.sort(Comparator.comparingDouble(costs::getRecipeCost));
+
+			List<CraftingPlan.RecipeOption> options = new ArrayList<>();
+			options.add(toOption(chosenProducer, best));
+
+			for (RecipeGraph.RecipeNode candidate : candidates) {
+				if (solved >= MAX_PLAN_ALTERNATIVES || options.size() >= MAX_OPTIONS_PER_ITEM
+						|| System.nanoTime() > deadline) {
 					break;
 				}
+				solved++;
+
+				PlanSearch alternative = new PlanSearch(target, 1, new HashMap<>(inventory), graph, costs, Map.of(item, candidate));
+				// Only count it if the forced producer was actually used (it may have fallen back)
+				if (alternative.runToCompletion() && alternative.getChosenProducers().get(item) == candidate) {
+					options.add(toOption(candidate, alternative));
+				}
 			}
 
-			if (!foundIngredient) {
-				return false;
+			if (options.size() > 1) {
+				options.sort(Comparator.comparingDouble(CraftingPlan.RecipeOption::cost));
+				plan.addRecipeChoice(chosenProducer.getResultStack(), options);
 			}
 		}
 
-		return true;
+		SmartRecipeBookMod.LOGGER.debug("Solved {} alternative plans, {} items have choices",
+			solved, plan.getRecipeChoices().size());
 	}
 
-	/**
-	 * Get ingredients from a recipe display
-	 */
-	private static List<SlotDisplay> getIngredients(RecipeDisplay display) {
-		if (display instanceof ShapedCraftingRecipeDisplay shaped) {
-			return shaped.ingredients();
-		} else if (display instanceof ShapelessCraftingRecipeDisplay shapeless) {
-			return shapeless.ingredients();
+	private static CraftingPlan.RecipeOption toOption(RecipeGraph.RecipeNode producer, PlanSearch search) {
+		// Summarize the producer by the first option of each slot
+		List<Item> ingredients = new ArrayList<>();
+		for (List<Item> options : producer.getSlots()) {
+			if (!ingredients.contains(options.get(0))) {
+				ingredients.add(options.get(0));
+			}
 		}
-		return null;
+		return new CraftingPlan.RecipeOption(producer.getId(), ingredients, search.getCost(), search.getSteps().size());
 	}
 
 	/**
-	 * Get the result item from a recipe display
+	 * Crafting grid size of the open screen handler: 3 at a crafting table, 2 otherwise (the inventory grid).
+	 * Plans are made against this so every step can actually run in it.
 	 */
-	private static ItemStack getResultItem(RecipeDisplay display, ContextParameterMap contextParams) {
-		SlotDisplay resultSlot = null;
-		if (display instanceof ShapedCraftingRecipeDisplay shaped) {
-			resultSlot = shaped.result();
-		} else if (display instanceof ShapelessCraftingRecipeDisplay shapeless) {
-			resultSlot = shapeless.result();
-		}
-
-		if (resultSlot != null) {
-			List<ItemStack> stacks = resultSlot.getStacks(contextParams);
-			if (!stacks.isEmpty()) {
-				return stacks.get(0);
-			}
+	public static int getGridSize(MinecraftClient client) {
+		if (client.player != null && client.player.currentScreenHandler instanceof CraftingScreenHandler) {
+			return RecipeGraph.LARGE_GRID;
 		}
-		return ItemStack.EMPTY;
+		return RecipeGraph.SMALL_GRID;
 	}
 
 	/**
-	 * Get the contents of a player's inventory as item counts
+	 * Get the contents of a player's inventory as item counts.
+	 * This is a read-only live view of the inventory mirror; copy it before simulating consumption.
 	 */
 	public static Map<Item, Integer> getInventoryContents(ClientPlayerEntity player) {
-		Map<Item, Integer> contents = new HashMap<>();
-
-		// Iterate through main inventory slots
-		for (int i = 0; i < 36; i++) {
-			ItemStack stack = player.getInventory().getStack(i);
-			if (!stack.isEmpty()) {
-				contents.merge(stack.getItem(), stack.getCount(), Integer::sum);
-			}
-		}
-
-		return contents;
+		return InventoryMirror.getCounts(player);
 	}
 
 	/**
 	 * Calculate maximum craftable quantity for a recipe, considering sub-crafting.
-	 * Uses binary search to find the highest quantity that can be crafted.
+	 * Uses binary search to find the highest quantity that can be crafted,
+	 * starting from what the recipe's bill of materials says is covered.
 	 */
 	public static int calculateMaxCraftable(MinecraftClient client, NetworkRecipeId recipeId) {
 		if (client.player == null || client.world == null) return 1;
 
-		// Binary search for max craftable
+		// The bill of materials answers most cases with a linear check; confirm
+		// its count with one search and only search above it
 		int lo = 1, hi = 64;
+		BillOfMaterials bill = RecipeCache.getBillOfMaterials(recipeId, client.world);
+		if (bill != null) {
+			int covered = bill.getMaxCraftable(getInventoryContents(client.player), hi);
+			if (covered > lo && canCraftQuantity(client, recipeId, covered)) {
+				lo = covered;
+			}
+		}
+
+		// Binary search for max craftable
 		while (lo < hi) {
 			int mid = (lo + hi + 1) / 2;
 			if (canCraftQuantity(client, recipeId, mid)) {
@@ -365,92 +364,62 @@ public class RecipeTreeCalculator {
 	 * Check if we can craft a specific quantity of a recipe (including sub-crafting)
 	 */
 	private static boolean canCraftQuantity(MinecraftClient client, NetworkRecipeId recipeId, int quantity) {
-		RecipeDisplayEntry entry = RecipeCache.findRecipeById(recipeId);
-		if (entry == null) return false;
-
-		RecipeDisplay display = entry.display();
-		if (!(display instanceof ShapedCraftingRecipeDisplay) &&
-			!(display instanceof ShapelessCraftingRecipeDisplay)) {
-			return false;
-		}
-
-		// Get current inventory and simulate crafting 'quantity' times
-		Map<Item, Integer> inventory = getInventoryContents(client.player);
-		ContextParameterMap contextParams = SlotDisplayContexts.createParameters(client.world);
+		CraftingPlan plan = calculatePlanForQuantity(client, recipeId, quantity);
+		return plan != null && plan.canCraft();
+	}
 
-		// Try to "craft" quantity times
-		for (int i = 0; i < quantity; i++) {
-			Set<Item> visited = new HashSet<>();
-			if (!canCraftOnce(client, entry, inventory, visited, contextParams, 0)) {
-				return false;
-			}
-		}
-		return true;
+	/**
+	 * Calculate a plan crafting a recipe several times. Batch yields and
+	 * leftovers are shared across all crafts (one plank craft feeds two sticks)
+	 * and the crafts are aggregated into one step per recipe.
+	 * @return The plan, or null if the recipe is not a known crafting recipe
+	 */
+	public static CraftingPlan calculatePlanForQuantity(MinecraftClient client, NetworkRecipeId recipeId, int quantity) {
+		return calculatePlanForQuantity(client, recipeId, quantity, null);
 	}
 
 	/**
-	 * Check if we can craft one instance of a recipe, consuming from simulated inventory.
-	 * This recursively handles sub-crafting.
+	 * Calculate a plan for crafting a recipe multiple times against a given
+	 * inventory (e.g. what is left once queued jobs are done). Such plans are
+	 * not cached, since the cache is keyed on the real inventory.
+	 * @param startInventory Inventory to plan against, or null for the player's
 	 */
-	private static boolean canCraftOnce(
-			MinecraftClient client,
-			RecipeDisplayEntry entry,
-			Map<Item, Integer> inventory,
-			Set<Item> visited,
-			ContextParameterMap contextParams,
-			int depth) {
-
-		if (depth > MAX_RECURSION_DEPTH) return false;
-
-		RecipeDisplay display = entry.display();
-		List<SlotDisplay> ingredients = getIngredients(display);
-		if (ingredients == null) return false;
-
-		for (SlotDisplay slotDisplay : ingredients) {
-			List<ItemStack> possibleStacks = slotDisplay.getStacks(contextParams);
-			if (possibleStacks.isEmpty()) continue;
-
-			boolean foundIngredient = false;
-			for (ItemStack possible : possibleStacks) {
-				if (possible.isEmpty()) continue;
-
-				Item neededItem = possible.getItem();
-				int haveCount = inventory.getOrDefault(neededItem, 0);
-
-				if (haveCount >= 1) {
-					// Consume from inventory
-					inventory.put(neededItem, haveCount - 1);
-					foundIngredient = true;
-					break;
-				}
+	public static CraftingPlan calculatePlanForQuantity(MinecraftClient client, NetworkRecipeId recipeId, int quantity,
+														Map<Item, Integer> startInventory) {
+		if (client.player == null || client.world == null) return null;
 
-				// Need to sub-craft
-				if (visited.contains(neededItem)) continue;
-
-				RecipeDisplayEntry subRecipe = findRecipeForItem(neededItem, contextParams, inventory);
-				if (subRecipe != null) {
-					visited.add(neededItem);
-
-					// Recursively craft the sub-item
-					if (canCraftOnce(client, subRecipe, inventory, visited, contextParams, depth + 1)) {
-						// Add sub-crafted result to inventory
-						ItemStack subResult = getResultItem(subRecipe.display(), contextParams);
-						int produced = subResult.getCount();
-						inventory.merge(neededItem, produced, Integer::sum);
-
-						// Now consume what we need
-						inventory.put(neededItem, inventory.get(neededItem) - 1);
-						visited.remove(neededItem);
-						foundIngredient = true;
-						break;
-					}
-					visited.remove(neededItem);
-				}
-			}
+		RecipeGraph graph = RecipeGraph.get(client.world, getGridSize(client));
+		RecipeGraph.RecipeNode node = graph.getNode(recipeId);
+		if (node == null) return null;
+
+		// One snapshot for both the batched search and its single-craft baseline
+		Map<Item, Integer> inventory = new HashMap<>(startInventory != null ? startInventory : getInventoryContents(client.player));
+		PlanCache.Key key = PlanCache.currentKey(recipeId, quantity, graph.getGridSize());
+		if (startInventory == null) {
+			CraftingPlan cached = PlanCache.get(key);
+			if (cached != null) return cached;
+		}
 
-			if (!foundIngredient) return false;
+		// Simulate crafting 'quantity' times against the current inventory
+		CostTable costs = CostTable.get(graph, inventory.keySet());
+		PlanSearch search = new PlanSearch(node, quantity, new HashMap<>(inventory), graph, costs, Collections.emptyMap());
+		search.runToCompletion();
+
+		CraftingPlan plan = new CraftingPlan(recipeId, node.getResultStack());
+		fillPlan(plan, search, inventory);
+
+		if (plan.canCraft() && quantity > 1) {
+			// Compare against repeating the single-craft plan 'quantity' times,
+			// from the same inventory the batched plan started from
+			PlanSearch single = new PlanSearch(node, 1, new HashMap<>(inventory), graph, costs, Collections.emptyMap());
+			if (single.runToCompletion()) {
+				plan.setUnbatchedStepCount(single.getSteps().size() * quantity);
+			}
+			SmartRecipeBookMod.LOGGER.debug("Plan for {}x {}: {} steps / {} crafts instead of {} single-craft steps",
+				quantity, node.getResultStack().getName().getString(), plan.getSteps().size(),
+				plan.getCraftCount(), plan.getUnbatchedStepCount());
 		}
 
-		return true;
+		return startInventory == null ? PlanCache.put(key, plan) : plan;
 	}
 }
@@ -0,0 +1,103 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import java.util.*;
+
+/**
+ * Turns a list of single crafts into one step per recipe with its quantity set.
+ *
+ * Steps are merged per recipe and the merged steps ordered so each runs after
+ * the steps producing its inputs, keeping first-occurrence order where
+ * dependencies allow it. The result is checked by simulating it against the
+ * starting inventory, since crafting a whole batch before its consumers can
+ * need more inputs at once than the interleaved order did.
+ */
+public class StepAggregator {
+
+	/**
+	 * All crafts of one recipe
+	 */
+	private static class Group {
+		final NetworkRecipeId recipeId;
+		final ItemStack result;
+		final Item station;
+		final int cookingTime;
+		final Map<Item, Integer> inputs = new LinkedHashMap<>();
+		int crafts = 0;
+
+		Group(CraftingPlan.CraftingStep step) {
+			this.recipeId = step.getRecipeId();
+			this.result = step.getResult();
+			this.station = step.getStation();
+			this.cookingTime = step.getCookingTime();
+		}
+	}
+
+	/**
+	 * Merge steps per recipe and order the batches topologically, keeping
+	 * first-occurrence order where dependencies allow it
+	 * @return The merged steps, or null if they cannot be ordered or would run short
+	 */
+	public static List<CraftingPlan.CraftingStep> aggregate(List<CraftingPlan.CraftingStep> steps, Map<Item, Integer> startInventory) {
+		Map<NetworkRecipeId, Group> groups = new LinkedHashMap<>();
+		for (CraftingPlan.CraftingStep step : steps) {
+			Group group = groups.computeIfAbsent(step.getRecipeId(), id -> new Group(step));
+			group.crafts += step.getQuantity();
+			step.getInputs().forEach((item, count) -> group.inputs.merge(item, count, Integer::sum));
+		}
+
+		Map<Item, List<Group>> producedBy = new HashMap<>();
+		for (Group group : groups.values()) {
+			producedBy.computeIfAbsent(group.result.getItem(), k -> new ArrayList<>()).add(group);
+		}
+
+		// Repeatedly place the earliest batch whose producers are all placed
+		List<Group> order = new ArrayList<>();
+		Set<Group> placed = new HashSet<>();
+		while (order.size() < groups.size()) {
+			Group next = null;
+			for (Group group : groups.values()) {
+				if (!placed.contains(group) && producersPlaced(group, producedBy, placed)) {
+					next = group;
+					break;
+				}
+			}
+			if (next == null) return null; // Cyclic dependencies between batches
+
+			order.add(next);
+			placed.add(next);
+		}
+
+		// Every batch must have all of its inputs by the time it runs
+		Map<Item, Integer> simulated = new HashMap<>(startInventory);
+		for (Group group : order) {
+			for (Map.Entry<Item, Integer> input : group.inputs.entrySet()) {
+				int have = simulated.getOrDefault(input.getKey(), 0);
+				if (have < input.getValue()) return null;
+				simulated.put(input.getKey(), have - input.getValue());
+			}
+			simulated.merge(group.result.getItem(), group.result.getCount() * group.crafts, Integer::sum);
+		}
+
+		List<CraftingPlan.CraftingStep> merged = new ArrayList<>(order.size());
+		for (Group group : order) {
+			merged.add(new CraftingPlan.CraftingStep(group.recipeId, group.result, group.crafts,
+				Collections.unmodifiableMap(group.inputs), group.station, group.cookingTime));
+		}
+		return merged;
+	}
+
+	private static boolean producersPlaced(Group group, Map<Item, List<Group>> producedBy, Set<Group> placed) {
+		for (Item input : group.inputs.keySet()) {
+			for (Group producer : producedBy.getOrDefault(input, Collections.emptyList())) {
+				if (producer != group && !placed.contains(producer)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -1,21 +1,31 @@
 package com.smartrecipe.screen;
 
+import com.smartrecipe.SmartRecipeConfig;
 import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.PlanChoiceMemory;
+import com.smartrecipe.recipe.RecipeGraph;
+import com.smartrecipe.recipe.RecipeTreeCalculator;
 
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.recipe.NetworkRecipeId;
 import net.minecraft.text.Text;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Screen shown when there are multiple recipe choices for sub-components.
  * Allows user to select which recipe to use for each item.
+ * Choices are remembered and saved with the config, so the same item is not
+ * asked about again.
  */
 public class RecipeChoiceScreen extends Screen {
 
@@ -23,7 +33,8 @@ public class RecipeChoiceScreen extends Screen {
 	private final CraftingPlan plan;
 	private final Consumer<CraftingPlan> onConfirm;
 	private int currentChoiceIndex = 0;
-	private List<Map.Entry<ItemStack, List<NetworkRecipeId>>> choices;
+	private List<Map.Entry<ItemStack, List<CraftingPlan.RecipeOption>>> choices;
+	private final Map<Item, NetworkRecipeId> selected = new LinkedHashMap<>();
 
 	public RecipeChoiceScreen(Screen parent, CraftingPlan plan, Consumer<CraftingPlan> onConfirm) {
 		super(Text.translatable("smart-recipe-book.recipe_choice.title"));
@@ -45,20 +56,20 @@ public class RecipeChoiceScreen extends Screen {
 		}
 
 		// Show current choice
-		Map.Entry<ItemStack, List<NetworkRecipeId>> currentChoice = choices.get(currentChoiceIndex);
+		Map.Entry<ItemStack, List<CraftingPlan.RecipeOption>> currentChoice = choices.get(currentChoiceIndex);
 		ItemStack item = currentChoice.getKey();
-		List<NetworkRecipeId> recipes = currentChoice.getValue();
+		List<CraftingPlan.RecipeOption> options = currentChoice.getValue();
 
-		int buttonY = this.height / 2 - (recipes.size() * 25) / 2;
+		int buttonY = this.height / 2 - (options.size() * 25) / 2;
 
-		for (int i = 0; i < recipes.size(); i++) {
-			final NetworkRecipeId recipeId = recipes.get(i);
-			final int index = i;
+		// Options are sorted cheapest first
+		for (int i = 0; i < options.size(); i++) {
+			final CraftingPlan.RecipeOption option = options.get(i);
 
 			this.addDrawableChild(ButtonWidget.builder(
-				Text.literal(recipeId.toString()),
-				button -> selectRecipe(item, recipeId)
-			).dimensions(this.width / 2 - 100, buttonY + (i * 25), 200, 20).build());
+				Text.literal(describeOption(option)),
+				button -> selectRecipe(item, option)
+			).dimensions(this.width / 2 - 130, buttonY + (i * 25), 260, 20).build());
 		}
 
 		// Cancel button
@@ -68,28 +79,55 @@ public class RecipeChoiceScreen extends Screen {
 		).dimensions(this.width / 2 - 100, this.height - 30, 200, 20).build());
 	}
 
-	private void selectRecipe(ItemStack item, NetworkRecipeId recipeId) {
-		// Update the plan with the selected recipe
-		// TODO: Actually update the plan's steps with the selected recipe
+	/**
+	 * Button label: the recipe's ingredients, then the cost of the whole plan using it
+	 */
+	private static String describeOption(CraftingPlan.RecipeOption option) {
+		String ingredients = option.ingredients().stream()
+			.map(Item::getName)
+			.map(Text::getString)
+			.collect(Collectors.joining(", "));
+		return String.format(Locale.ROOT, "%s (%d steps, cost %.1f)", ingredients, option.stepCount(), option.cost());
+	}
+
+	private void selectRecipe(ItemStack item, CraftingPlan.RecipeOption option) {
+		selected.put(item.getItem(), option.recipeId());
+
+		// Remember the choice so later plans skip this prompt
+		RecipeGraph.RecipeNode producer = RecipeGraph.get(this.client.world, RecipeTreeCalculator.getGridSize(this.client))
+			.getNode(option.recipeId());
+		if (producer != null) {
+			PlanChoiceMemory.remember(item.getItem(), producer);
+		}
 
 		currentChoiceIndex++;
 
 		if (currentChoiceIndex >= choices.size()) {
-			// All choices made, execute the plan
+			// All choices made, re-plan with them and execute
+			SmartRecipeConfig.saveChoices();
 			close();
-			onConfirm.accept(plan);
+			onConfirm.accept(replanWithChoices());
 		} else {
 			// Show next choice
 			clearAndInit();
 		}
 	}
 
+	/**
+	 * Re-run the planner with the selected producers.
+	 * Falls back to the original plan if the new one cannot be crafted.
+	 */
+	private CraftingPlan replanWithChoices() {
+		CraftingPlan chosen = RecipeTreeCalculator.calculatePlanWithChoices(this.client, plan.getTargetRecipe(), selected);
+		return chosen != null && chosen.canCraft() ? chosen : plan;
+	}
+
 	@Override
 	public void render(DrawContext context, int mouseX, int mouseY, float delta) {
 		super.render(context, mouseX, mouseY, delta);
 
 		if (!choices.isEmpty() && currentChoiceIndex < choices.size()) {
-			Map.Entry<ItemStack, List<NetworkRecipeId>> currentChoice = choices.get(currentChoiceIndex);
+			Map.Entry<ItemStack, List<CraftingPlan.RecipeOption>> currentChoice = choices.get(currentChoiceIndex);
 			ItemStack item = currentChoice.getKey();
 
 			// Draw title
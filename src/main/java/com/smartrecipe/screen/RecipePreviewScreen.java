@@ -2,7 +2,9 @@ package com.smartrecipe.screen;
 
 import com.smartrecipe.SmartRecipeBookMod;
 import com.smartrecipe.crafting.AutoCraftExecutor;
+import com.smartrecipe.recipe.BillOfMaterials;
 import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.PlanCache;
 import com.smartrecipe.recipe.RecipeCache;
 import com.smartrecipe.recipe.RecipeTreeCalculator;
 
@@ -41,6 +43,9 @@ public class RecipePreviewScreen extends Screen {
 	private CraftingPlan craftingPlan;
 	private boolean canCraft = false;
 	private boolean canCraftDirect = false;
+	private boolean planPending = false; // Budgeted plan search still running
+	private String shortfallText = null; // Raw materials missing, when not craftable
+	private String stepsText = null; // Steps of the chosen quantity, batched and one craft at a time
 	private int craftQuantity = 1;
 	private int maxCraftable = 1;
 
@@ -49,6 +54,9 @@ public class RecipePreviewScreen extends Screen {
 	private int confirmationTicks = 0;
 	private static final int CONFIRMATION_DURATION = 15; // ~0.75 seconds
 
+	// Time the plan search may take per tick before the screen shows it as pending
+	private static final long PLAN_BUDGET_PER_TICK_NS = 4_000_000L;
+
 	private ButtonWidget craftButton;
 	private ButtonWidget cancelButton;
 	private ButtonWidget plusButton;
@@ -192,6 +200,20 @@ public class RecipePreviewScreen extends Screen {
 	private void adjustQuantity(int delta) {
 		craftQuantity = Math.max(1, Math.min(maxCraftable, craftQuantity + delta));
 		updateQuantityButtons();
+		updateStepsText();
+	}
+
+	/**
+	 * Compare the steps of crafting the chosen quantity as one plan with crafting it one at a time
+	 */
+	private void updateStepsText() {
+		stepsText = null;
+		if (!canCraft || craftQuantity <= 1 || client == null) return;
+
+		CraftingPlan plan = RecipeTreeCalculator.calculatePlanForQuantity(client, recipe.id(), craftQuantity);
+		if (plan != null && plan.canCraft() && plan.getUnbatchedStepCount() > plan.getSteps().size()) {
+			stepsText = plan.getSteps().size() + " steps (" + plan.getUnbatchedStepCount() + " one at a time)";
+		}
 	}
 
 	private void updateQuantityButtons() {
@@ -217,10 +239,60 @@ public class RecipePreviewScreen extends Screen {
 			// Check direct craftability
 			canCraftDirect = canCraftRecipeDirect(contextParams);
 
-			// Calculate full plan for recursive craftability
-			craftingPlan = RecipeTreeCalculator.calculatePlan(client, recipe.id());
-			canCraft = craftingPlan != null && craftingPlan.canCraft();
+			// Calculate full plan for recursive craftability, resumed in tick() if over budget
+			advancePlan();
+		}
+	}
+
+	/**
+	 * Give the plan search one slice of time; finishes setting up craftability once it completes
+	 */
+	private void advancePlan() {
+		RecipeTreeCalculator.PlanResult result = RecipeTreeCalculator.advancePlan(client, recipe.id(), PLAN_BUDGET_PER_TICK_NS);
+		planPending = !result.complete();
+		if (planPending) {
+			canCraft = false;
+			return;
 		}
+
+		craftingPlan = result.plan();
+		canCraft = craftingPlan != null && craftingPlan.canCraft();
+		shortfallText = canCraft ? null : describeShortfall();
+	}
+
+	/**
+	 * Summarize the raw materials the recipe's bill of materials is short of
+	 */
+	private String describeShortfall() {
+		// The planner only uses recipes that fit the open grid
+		if (!fitsInGrid(recipe)) {
+			return "Needs a crafting table";
+		}
+
+		// Reachable through smelting: say what has to go through a furnace first
+		CraftingPlan smeltingPlan = RecipeTreeCalculator.calculateSmeltingPlan(client, recipe.id());
+		if (smeltingPlan != null && smeltingPlan.canCraft() && smeltingPlan.requiresSmelting()) {
+			CraftingPlan.CraftingStep smelt = smeltingPlan.getSmeltingSteps().get(0);
+			return "Needs smelting: " + smelt.getQuantity() + "x " + smelt.getResult().getName().getString()
+				+ " (~" + (smeltingPlan.getEstimatedTicks() + 19) / 20 + "s)";
+		}
+
+		BillOfMaterials bill = RecipeCache.getBillOfMaterials(recipe.id(), client.world);
+		if (bill == null) return null;
+
+		Map<Item, Integer> shortfall = bill.getShortfall(playerInventory, 1);
+		if (shortfall.isEmpty()) return null;
+
+		// Name the first two, count the rest
+		List<String> parts = new ArrayList<>();
+		for (Map.Entry<Item, Integer> entry : shortfall.entrySet()) {
+			if (parts.size() == 2) {
+				parts.add("+" + (shortfall.size() - 2) + " more");
+				break;
+			}
+			parts.add(entry.getValue() + "x " + entry.getKey().getName().getString());
+		}
+		return "Need: " + String.join(", ", parts);
 	}
 
 	private boolean hasSmeltingIngredient(ContextParameterMap contextParams) {
@@ -247,7 +319,8 @@ public class RecipePreviewScreen extends Screen {
 
 		// Use RecipeTreeCalculator to calculate max craftable with sub-crafting support
 		maxCraftable = RecipeTreeCalculator.calculateMaxCraftable(client, recipe.id());
-		SmartRecipeBookMod.LOGGER.info("Max craftable for {}: {}", resultStack.getName().getString(), maxCraftable);
+		SmartRecipeBookMod.LOGGER.info("Max craftable for {}: {} (plan cache: {} hits, {} misses)",
+			resultStack.getName().getString(), maxCraftable, PlanCache.getHits(), PlanCache.getMisses());
 	}
 
 	private boolean canCraftRecipeDirect(ContextParameterMap contextParams) {
@@ -319,10 +392,14 @@ public class RecipePreviewScreen extends Screen {
 		// Draw quantity display (only for crafting recipes)
 		if (!isFurnaceRecipe) {
 			String quantityText = "Quantity: " + craftQuantity;
-			if (maxCraftable > 1) {
+			if (planPending) {
+				quantityText = "Checking materials...";
+			} else if (shortfallText != null) {
+				quantityText = shortfallText;
+			} else if (maxCraftable > 1) {
 				quantityText += " / " + maxCraftable;
 			}
-			int quantityColor = canCraft ? 0xFF44FF44 : 0xFFFF4444;
+			int quantityColor = planPending ? 0xFFAAAAAA : canCraft ? 0xFF44FF44 : 0xFFFF4444;
 
 			context.drawCenteredTextWithShadow(
 				this.textRenderer,
@@ -331,6 +408,16 @@ public class RecipePreviewScreen extends Screen {
 				panelY + 105,
 				quantityColor
 			);
+
+			if (stepsText != null && !planPending && shortfallText == null) {
+				context.drawCenteredTextWithShadow(
+					this.textRenderer,
+					Text.literal(stepsText),
+					panelX + PANEL_WIDTH / 2,
+					panelY + 117,
+					0xFFAAAAAA
+				);
+			}
 		}
 
 		// Draw buttons
@@ -758,6 +845,18 @@ public class RecipePreviewScreen extends Screen {
 	public void tick() {
 		super.tick();
 
+		// Keep searching for a plan that did not fit in the first budget
+		if (planPending && client != null) {
+			advancePlan();
+			if (!planPending) {
+				calculateMaxCraftable();
+				if (craftButton != null) {
+					craftButton.active = canCraft;
+				}
+				updateQuantityButtons();
+			}
+		}
+
 		if (showingConfirmation) {
 			confirmationTicks++;
 			if (confirmationTicks >= CONFIRMATION_DURATION) {
@@ -789,19 +888,25 @@ public class RecipePreviewScreen extends Screen {
 
 		SmartRecipeBookMod.LOGGER.info("Crafting {}x {} from preview", craftQuantity, resultStack.getName().getString());
 
+		// Re-plan with alternatives so the user can pick between producers
+		CraftingPlan planWithChoices = RecipeTreeCalculator.calculatePlanWithChoices(client, recipe.id());
+		if (planWithChoices != null && planWithChoices.canCraft()) {
+			craftingPlan = planWithChoices;
+		}
+
 		// If plan requires choices, show choice screen
 		if (craftingPlan.hasRecipeChoices()) {
 			final int quantity = craftQuantity;
 			client.setScreen(new RecipeChoiceScreen(
 				null,
 				craftingPlan,
-				(finalPlan) -> AutoCraftExecutor.execute(client, finalPlan, false, quantity)
+				(finalPlan) -> AutoCraftExecutor.execute(client, finalPlan, quantity)
 			));
 			return;
 		}
 
 		// Execute the plan with quantity
-		AutoCraftExecutor.execute(client, craftingPlan, false, craftQuantity);
+		AutoCraftExecutor.execute(client, craftingPlan, craftQuantity);
 
 		// Show confirmation
 		showingConfirmation = true;
@@ -3,6 +3,7 @@ package com.smartrecipe.screen;
 import com.smartrecipe.SmartRecipeBookMod;
 import com.smartrecipe.crafting.AutoCraftExecutor;
 import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.CraftabilityTracker;
 import com.smartrecipe.recipe.RecipeCache;
 import com.smartrecipe.recipe.RecipeTreeCalculator;
 
@@ -16,7 +17,6 @@ import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.TextFieldWidget;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
-import net.minecraft.recipe.NetworkRecipeId;
 import net.minecraft.recipe.RecipeDisplayEntry;
 import net.minecraft.recipe.display.FurnaceRecipeDisplay;
 import net.minecraft.recipe.display.RecipeDisplay;
@@ -55,9 +55,6 @@ public class SmartRecipeBookScreen extends Screen {
 	private String searchQuery = "";
 	private Map<Item, Integer> playerInventory = new HashMap<>();
 
-	// Cache for recursive craftability checks (expensive to compute)
-	private Map<NetworkRecipeId, Boolean> craftabilityCache = new HashMap<>();
-
 	// UI components
 	private TextFieldWidget searchField;
 	private ButtonWidget prevPageButton;
@@ -117,9 +114,6 @@ public class SmartRecipeBookScreen extends Screen {
 		// Update player inventory
 		updateInventory();
 
-		// Clear craftability cache when re-initializing
-		craftabilityCache.clear();
-
 		// Calculate grid position (centered)
 		int gridWidth = RECIPES_PER_ROW * (SLOT_SIZE + SLOT_SPACING);
 		int gridHeight = ROWS_PER_PAGE * (SLOT_SIZE + SLOT_SPACING);
@@ -192,7 +186,6 @@ public class SmartRecipeBookScreen extends Screen {
 	 */
 	public void refresh() {
 		updateInventory();
-		craftabilityCache.clear();
 		applyFilters();
 	}
 
@@ -292,27 +285,13 @@ public class SmartRecipeBookScreen extends Screen {
 	/**
 	 * Check if a recipe can be crafted with current inventory,
 	 * including recursive sub-crafting of ingredients.
-	 * Uses caching to avoid recalculating expensive checks.
+	 * Returns null while a new answer is still being computed in the background.
 	 */
-	private boolean canCraftRecipeRecursive(RecipeDisplayEntry entry, ContextParameterMap contextParams) {
-		// Check cache first
-		Boolean cached = craftabilityCache.get(entry.id());
-		if (cached != null) {
-			return cached;
-		}
-
-		// Use RecipeTreeCalculator to check if we can craft this recipe
-		// It already handles recursive dependency checking
-		if (client == null) {
-			craftabilityCache.put(entry.id(), false);
-			return false;
-		}
-
-		CraftingPlan plan = RecipeTreeCalculator.calculatePlan(client, entry.id());
-		boolean canCraft = plan != null && plan.canCraft();
+	private Boolean canCraftRecipeRecursive(RecipeDisplayEntry entry) {
+		if (client == null) return false;
 
-		craftabilityCache.put(entry.id(), canCraft);
-		return canCraft;
+		// Answers are kept across screens and only re-evaluated when an item they depend on changes
+		return CraftabilityTracker.get(client, entry.id());
 	}
 
 	/**
@@ -515,16 +494,12 @@ public class SmartRecipeBookScreen extends Screen {
 					if (directlyCraftable) {
 						tooltip.add(Text.literal("§a✓ Can craft now").styled(s -> s));
 					} else {
-						// Check if craftable with sub-crafting (lazy evaluation)
-						Boolean cached = craftabilityCache.get(hoveredRecipe.id());
-						if (cached == null) {
-							// Calculate on hover
-							CraftingPlan plan = RecipeTreeCalculator.calculatePlan(client, hoveredRecipe.id());
-							cached = plan != null && plan.canCraft();
-							craftabilityCache.put(hoveredRecipe.id(), cached);
-						}
+						// Check if craftable with sub-crafting (lazy evaluation, resumed across frames)
+						Boolean cached = canCraftRecipeRecursive(hoveredRecipe);
 
-						if (cached) {
+						if (cached == null) {
+							tooltip.add(Text.literal("§7… Checking materials").styled(s -> s));
+						} else if (cached) {
 							tooltip.add(Text.literal("§e⚡ Requires sub-crafting").styled(s -> s));
 						} else {
 							tooltip.add(Text.literal("§c✗ Missing materials").styled(s -> s));
@@ -0,0 +1,94 @@
+package com.smartrecipe;
+
+import com.smartrecipe.crafting.AutoCraftExecutor;
+import com.smartrecipe.crafting.CraftRateController;
+import com.smartrecipe.crafting.PlacementBackend;
+import com.smartrecipe.recipe.PlanChoiceMemory;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Items;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmartRecipeConfigTest {
+
+	@BeforeAll
+	static void bootstrap() {
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+	}
+
+	@AfterEach
+	void restore() {
+		new SmartRecipeConfig().apply();
+	}
+
+	@Test
+	void missingFileGivesTheDefaults(@TempDir Path dir) {
+		SmartRecipeConfig config = SmartRecipeConfig.read(dir.resolve("missing.json"));
+
+		assertEquals(CraftRateController.DEFAULT_MAX_PACKETS_PER_SECOND, config.maxPacketsPerSecond);
+		assertEquals(AutoCraftExecutor.DEFAULT_MAX_IN_FLIGHT, config.maxInFlight);
+		assertEquals(PlacementBackend.Type.RECIPE_BOOK, config.placement);
+		assertTrue(config.serverPlacement.isEmpty());
+	}
+
+	@Test
+	void settingsAreAppliedAndClamped(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("config.json");
+		Files.writeString(file, """
+			{
+				"maxPacketsPerSecond": 20,
+				"maxInFlight": 99,
+				"placement": "SLOT_TRANSFER",
+				"serverPlacement": { "play.example.net": "RECIPE_BOOK" }
+			}
+			""");
+
+		SmartRecipeConfig.read(file).apply();
+
+		assertEquals(20, CraftRateController.getMaxPacketsPerSecond());
+		assertEquals(16, AutoCraftExecutor.getMaxInFlight());
+		assertEquals(PlacementBackend.Type.SLOT_TRANSFER, PlacementBackend.get("other.example.net"));
+		assertEquals(PlacementBackend.Type.RECIPE_BOOK, PlacementBackend.get("play.example.net"));
+	}
+
+	@Test
+	void unknownBackendKeepsTheDefault(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("config.json");
+		Files.writeString(file, "{ \"placement\": \"TELEPATHY\" }");
+
+		SmartRecipeConfig.read(file).apply();
+
+		assertEquals(PlacementBackend.Type.RECIPE_BOOK, PlacementBackend.get("other.example.net"));
+	}
+
+	@Test
+	void savedConfigReadsBack(@TempDir Path dir) {
+		SmartRecipeConfig config = new SmartRecipeConfig();
+		config.maxInFlight = 4;
+		config.serverPlacement.put("singleplayer", PlacementBackend.Type.SLOT_TRANSFER);
+		config.recipeChoices.put("minecraft:stick", List.of("minecraft:bamboo", "minecraft:bamboo"));
+		Path file = dir.resolve("config.json");
+		config.save(file);
+
+		SmartRecipeConfig read = SmartRecipeConfig.read(file);
+		assertEquals(4, read.maxInFlight);
+		assertEquals(PlacementBackend.Type.SLOT_TRANSFER, read.serverPlacement.get("singleplayer"));
+
+		read.apply();
+		assertTrue(PlanChoiceMemory.has(Items.STICK));
+		assertEquals(read.recipeChoices, PlanChoiceMemory.save());
+	}
+}
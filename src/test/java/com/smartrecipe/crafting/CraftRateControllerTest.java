@@ -0,0 +1,155 @@
+package com.smartrecipe.crafting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CraftRateControllerTest {
+
+	private static final long MS = 1_000_000L;
+	private static final long SECOND = 1_000 * MS;
+
+	@BeforeEach
+	void clear() {
+		CraftRateController.clear();
+		CraftRateController.setMaxPacketsPerSecond(CraftRateController.DEFAULT_MAX_PACKETS_PER_SECOND);
+	}
+
+	@AfterEach
+	void restore() {
+		clear();
+	}
+
+	@Test
+	void windowGrowsByOneBatchPerWindowOfConfirmations() {
+		CraftRateController.select("aimd");
+		assertEquals(2, CraftRateController.getWindow(8));
+
+		// 2 -> 2.5 -> 2.9 -> 3.24
+		for (int i = 0; i < 3; i++) {
+			CraftRateController.onConfirmed(50 * MS, 2, SECOND + i);
+		}
+		assertEquals(3, CraftRateController.getWindow(8));
+		assertEquals(2, CraftRateController.getWindow(2));
+	}
+
+	@Test
+	void unusedWindowDoesNotGrow() {
+		CraftRateController.select("idle");
+		for (int i = 0; i < 10; i++) {
+			CraftRateController.onConfirmed(50 * MS, 1, SECOND + i);
+		}
+		assertEquals(2.0, CraftRateController.getProfile().getWindow());
+	}
+
+	@Test
+	void lossHalvesTheWindowOncePerRoundTrip() {
+		CraftRateController.select("lossy");
+		for (int i = 0; i < 3; i++) {
+			CraftRateController.onConfirmed(50 * MS, 2, SECOND + i);
+		}
+		double window = CraftRateController.getProfile().getWindow();
+
+		CraftRateController.onLost(2 * SECOND);
+		CraftRateController.onLost(2 * SECOND + 10 * MS); // Same burst
+		assertEquals(window / 2, CraftRateController.getProfile().getWindow(), 1e-9);
+		assertEquals(2, CraftRateController.getProfile().getLosses());
+
+		CraftRateController.onLost(3 * SECOND);
+		assertEquals(1.0, CraftRateController.getProfile().getWindow(), 1e-9); // Never below one batch
+	}
+
+	@Test
+	void queueingDelayCountsAsCongestion() {
+		CraftRateController.select("queueing");
+		CraftRateController.onConfirmed(50 * MS, 2, SECOND);
+		double window = CraftRateController.getProfile().getWindow();
+
+		CraftRateController.onConfirmed(400 * MS, 2, 2 * SECOND);
+
+		assertEquals(window / 2, CraftRateController.getProfile().getWindow(), 1e-9);
+		assertEquals(50.0, CraftRateController.getProfile().getMinRttMs(), 1e-9);
+	}
+
+	@Test
+	void timeoutFollowsTheRoundTrip() {
+		CraftRateController.select("timeout");
+		assertEquals(20, CraftRateController.getTimeoutTicks());
+
+		// 1000ms smoothed plus four 500ms deviations
+		CraftRateController.onConfirmed(1000 * MS, 2, SECOND);
+		assertEquals(60, CraftRateController.getTimeoutTicks());
+	}
+
+	@Test
+	void tokenBucketPacesPacketsPerSecond() {
+		CraftRateController.select("bucket");
+		assertFalse(CraftRateController.canSend());
+
+		CraftRateController.onTick(); // 40 per second is 2 per tick
+		assertTrue(CraftRateController.canSend());
+		CraftRateController.onSent(3);
+		assertFalse(CraftRateController.canSend());
+		CraftRateController.onTick();
+		assertTrue(CraftRateController.canSend());
+
+		// Bursts are capped at a quarter second of packets
+		for (int i = 0; i < 100; i++) {
+			CraftRateController.onTick();
+		}
+		CraftRateController.onSent(10);
+		assertFalse(CraftRateController.canSend());
+	}
+
+	@Test
+	void packetRateIsClamped() {
+		CraftRateController.setMaxPacketsPerSecond(0);
+		assertEquals(1, CraftRateController.getMaxPacketsPerSecond());
+		CraftRateController.setMaxPacketsPerSecond(10_000);
+		assertEquals(400, CraftRateController.getMaxPacketsPerSecond());
+	}
+
+	@Test
+	void profilesSurviveSaveAndLoad(@TempDir Path dir) {
+		CraftRateController.select("play.example.net");
+		for (int i = 0; i < 3; i++) {
+			CraftRateController.onConfirmed((50 + i) * MS, 2, SECOND + i);
+		}
+		CraftRateController.LatencyProfile before = CraftRateController.getProfile();
+		Path file = dir.resolve("rates.json");
+		CraftRateController.save(file);
+
+		CraftRateController.clear();
+		assertTrue(CraftRateController.getProfiles().isEmpty());
+		CraftRateController.load(file);
+
+		CraftRateController.LatencyProfile after = CraftRateController.getProfiles().get("play.example.net");
+		assertNotNull(after);
+		assertEquals(before.getWindow(), after.getWindow(), 1e-9);
+		assertEquals(before.getSmoothedRttMs(), after.getSmoothedRttMs(), 1e-9);
+		assertEquals(50.0, after.getMinRttMs(), 1e-9);
+		assertEquals(3, after.getSamples());
+
+		// Selecting the server picks the loaded profile up
+		assertSame(after, CraftRateController.select("play.example.net"));
+		assertEquals(3, CraftRateController.getWindow(8));
+	}
+
+	@Test
+	void brokenFileIsIgnored(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("rates.json");
+		Files.writeString(file, "{ not json");
+
+		CraftRateController.load(file);
+		CraftRateController.load(dir.resolve("missing.json"));
+
+		assertTrue(CraftRateController.getProfiles().isEmpty());
+	}
+}
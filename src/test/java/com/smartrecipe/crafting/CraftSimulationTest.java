@@ -0,0 +1,296 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.recipe.BatchPlanner;
+import com.smartrecipe.recipe.CraftingPlan;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs plans of the shapes the planner produces through AutoCraftExecutor
+ * against SimulatedCraftServer, on networks from a local server to a lossy
+ * remote one.
+ */
+class CraftSimulationTest {
+
+	private static final int MAX_TICKS = 20 * 60 * 5; // Give up on a plan after five minutes
+	private static final long SEED = 42;
+
+	private static final SimulatedCraftServer.NetworkProfile LOCAL = new SimulatedCraftServer.NetworkProfile("local", 0, 0, 0);
+	private static final SimulatedCraftServer.NetworkProfile LAN = new SimulatedCraftServer.NetworkProfile("lan", 1, 0, 0);
+	private static final List<SimulatedCraftServer.NetworkProfile> LOSSY = List.of(
+		new SimulatedCraftServer.NetworkProfile("remote", 4, 0.01, 0),
+		new SimulatedCraftServer.NetworkProfile("hostile", 6, 0.02, 0.02));
+
+	private static final NetworkRecipeId PLANKS = new NetworkRecipeId(0);
+	private static final NetworkRecipeId STICKS = new NetworkRecipeId(1);
+	private static final NetworkRecipeId CHEST = new NetworkRecipeId(2);
+	private static final NetworkRecipeId TORCH = new NetworkRecipeId(3);
+	private static final NetworkRecipeId CRAFTING_TABLE = new NetworkRecipeId(4);
+	private static final NetworkRecipeId LADDER = new NetworkRecipeId(5);
+
+	/**
+	 * A plan, the inventory it starts from and what it should leave
+	 */
+	private record Scenario(String name, CraftingPlan plan, Map<Item, Integer> inventory, Map<Item, Integer> expected) {}
+
+	@BeforeAll
+	static void bootstrap() {
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+	}
+
+	@AfterEach
+	void cancel() {
+		AutoCraftExecutor.cancel();
+	}
+
+	/**
+	 * Plans of the shapes the planner produces: a single bulk step, chains of
+	 * intermediates, and steps whose inputs come from the step before
+	 */
+	private static List<Scenario> library() {
+		return List.of(
+			// One full grid of planks
+			scenario("planks", PLANKS, new ItemStack(Items.OAK_PLANKS, 4),
+				Map.of(Items.OAK_LOG, 64), Map.of(Items.OAK_PLANKS, 256),
+				step(PLANKS, Items.OAK_PLANKS, 4, 64, Items.OAK_LOG, 64)),
+
+			// A few crafts, staged one request each
+			scenario("sticks", STICKS, new ItemStack(Items.STICK, 4),
+				Map.of(Items.OAK_PLANKS, 10), Map.of(Items.STICK, 20),
+				step(STICKS, Items.STICK, 4, 5, Items.OAK_PLANKS, 10)),
+
+			// Intermediate then target
+			scenario("chests", CHEST, new ItemStack(Items.CHEST, 1),
+				Map.of(Items.OAK_LOG, 8), Map.of(Items.CHEST, 4),
+				step(PLANKS, Items.OAK_PLANKS, 4, 8, Items.OAK_LOG, 8),
+				step(CHEST, Items.CHEST, 1, 4, Items.OAK_PLANKS, 32)),
+
+			// Two ingredients, one of them crafted first
+			scenario("torches", TORCH, new ItemStack(Items.TORCH, 4),
+				Map.of(Items.OAK_PLANKS, 16, Items.COAL, 16), Map.of(Items.TORCH, 64, Items.OAK_PLANKS, 8),
+				step(STICKS, Items.STICK, 4, 4, Items.OAK_PLANKS, 8),
+				step(TORCH, Items.TORCH, 4, 16, Items.COAL, 16, Items.STICK, 16)),
+
+			// Three levels deep
+			scenario("ladders", LADDER, new ItemStack(Items.LADDER, 3),
+				Map.of(Items.OAK_LOG, 8), Map.of(Items.LADDER, 24, Items.CRAFTING_TABLE, 1),
+				step(PLANKS, Items.OAK_PLANKS, 4, 8, Items.OAK_LOG, 8),
+				step(STICKS, Items.STICK, 4, 14, Items.OAK_PLANKS, 28),
+				step(LADDER, Items.LADDER, 3, 8, Items.STICK, 56),
+				step(CRAFTING_TABLE, Items.CRAFTING_TABLE, 1, 1, Items.OAK_PLANKS, 4)));
+	}
+
+	private static Scenario scenario(String name, NetworkRecipeId target, ItemStack result, Map<Item, Integer> inventory,
+									 Map<Item, Integer> expected, CraftingPlan.CraftingStep... steps) {
+		CraftingPlan plan = new CraftingPlan(target, result);
+		for (CraftingPlan.CraftingStep step : steps) {
+			plan.addStep(step);
+		}
+		plan.setCanCraft(true);
+		plan.freeze();
+		return new Scenario(name, plan, inventory, expected);
+	}
+
+	/**
+	 * A step with its inputs over all crafts, as item/count pairs
+	 */
+	private static CraftingPlan.CraftingStep step(NetworkRecipeId recipe, Item result, int count, int quantity, Object... inputs) {
+		Map<Item, Integer> consumed = new LinkedHashMap<>();
+		for (int i = 0; i < inputs.length; i += 2) {
+			consumed.put((Item) inputs[i], (Integer) inputs[i + 1]);
+		}
+		return new CraftingPlan.CraftingStep(recipe, new ItemStack(result, count), quantity, consumed);
+	}
+
+	private static SimulatedCraftServer server(Scenario scenario, SimulatedCraftServer.NetworkProfile network) {
+		SimulatedCraftServer server = new SimulatedCraftServer(network, SEED);
+		scenario.inventory().forEach(server::give);
+		server.register(scenario.plan());
+		return server;
+	}
+
+	private static CraftJob queue(SimulatedCraftServer server, Scenario scenario) {
+		AutoCraftExecutor.cancel();
+		CraftJob job = AutoCraftExecutor.execute(server, scenario.plan(), 1, AutoCraftExecutor.DEFAULT_PRIORITY);
+		assertNotNull(job, scenario.name() + " was not queued");
+		return job;
+	}
+
+	/**
+	 * Tick until the job ends, failing if it does not within MAX_TICKS
+	 */
+	private static void runToEnd(SimulatedCraftServer server, CraftJob job, String name) {
+		while (!job.isFinished() && server.getTick() < MAX_TICKS) {
+			server.tick();
+		}
+		assertTrue(job.isFinished(), name + " on " + server.getProfile().name() + " did not finish within " + MAX_TICKS + " ticks");
+		assertEquals(0, server.getOpenOverlays(), name + " on " + server.getProfile().name() + " left inventory overlays behind");
+	}
+
+	private static void assertHolds(SimulatedCraftServer server, Map<Item, Integer> expected, String name) {
+		Map<Item, Integer> inventory = server.getServerInventory();
+		expected.forEach((item, count) ->
+			assertEquals(count, inventory.getOrDefault(item, 0), name + ": " + item));
+	}
+
+	private static Scenario scenario(String name) {
+		return library().stream().filter(scenario -> scenario.name().equals(name)).findFirst().orElseThrow();
+	}
+
+	@Test
+	void everyScenarioCompletesWithoutLoss() {
+		for (SimulatedCraftServer.NetworkProfile network : List.of(LOCAL, LAN)) {
+			for (Scenario scenario : library()) {
+				SimulatedCraftServer server = server(scenario, network);
+				CraftJob job = queue(server, scenario);
+				runToEnd(server, job, scenario.name());
+
+				assertEquals(CraftJob.Status.DONE, job.getStatus(), scenario.name() + " on " + network.name());
+				assertEquals(0, job.replans, scenario.name() + " on " + network.name());
+				assertHolds(server, scenario.expected(), scenario.name() + " on " + network.name());
+				assertEquals(0, server.getServerGridAndCursorCount(), scenario.name() + " left items in the grid");
+			}
+		}
+	}
+
+	@Test
+	void fullStackIsOneRequestAndOneShiftClick() {
+		Scenario planks = scenario("planks");
+		SimulatedCraftServer server = server(planks, LAN);
+		CraftJob job = queue(server, planks);
+		runToEnd(server, job, planks.name());
+
+		assertEquals(64, job.sentCrafts);
+		assertEquals(2, server.getSentPackets());
+		assertEquals(2, job.sentPackets);
+		assertEquals(100.0 * (1 - 2 / 128.0), job.getPacketSavings(), 1e-9);
+	}
+
+	@Test
+	void smallBatchIsOneRequestPerCraftAndOneShiftClick() {
+		Scenario sticks = scenario("sticks");
+		SimulatedCraftServer server = server(sticks, LAN);
+		CraftJob job = queue(server, sticks);
+		runToEnd(server, job, sticks.name());
+
+		assertEquals(5, job.sentCrafts);
+		assertEquals(6, server.getSentPackets());
+		assertEquals(40.0, job.getPacketSavings(), 1e-9); // N+1 packets for N staged crafts
+	}
+
+	@Test
+	void setsLeftInTheGridAreCraftedWithoutPlacingThem() {
+		Scenario sticks = scenario("sticks");
+		SimulatedCraftServer server = server(sticks, LAN);
+		server.fillGrid(STICKS, 2);
+		CraftJob job = queue(server, sticks);
+		runToEnd(server, job, sticks.name());
+
+		// Three requests for the sets still missing, then the shift-click
+		assertEquals(CraftJob.Status.DONE, job.getStatus());
+		assertEquals(2, job.residentCrafts);
+		assertEquals(2, job.skippedRequests);
+		assertEquals(4, server.getSentPackets());
+		assertHolds(server, Map.of(Items.STICK, 20, Items.OAK_PLANKS, 4), sticks.name());
+		assertEquals(0, server.getServerGridAndCursorCount());
+	}
+
+	@Test
+	void batchOfTargetsRunsAsOneJob() {
+		SimulatedCraftServer server = new SimulatedCraftServer(LAN, SEED);
+		server.addRecipe(PLANKS, new ItemStack(Items.OAK_PLANKS, 4), Map.of(Items.OAK_LOG, 1));
+		server.addRecipe(STICKS, new ItemStack(Items.STICK, 4), Map.of(Items.OAK_PLANKS, 2));
+		server.addRecipe(TORCH, new ItemStack(Items.TORCH, 4), Map.of(Items.COAL, 1, Items.STICK, 1));
+		server.give(Items.OAK_LOG, 2);
+		server.give(Items.COAL, 2);
+
+		AutoCraftExecutor.cancel();
+		CraftJob job = AutoCraftExecutor.executeBatch(server, List.of(
+			new BatchPlanner.Target(Items.TORCH, 8), new BatchPlanner.Target(Items.STICK, 4)));
+		assertNotNull(job);
+		assertEquals(2, job.getPlan().getTargets().size());
+		runToEnd(server, job, "batch");
+
+		// One planks craft feeds the torches' sticks and the sticks asked for
+		assertEquals(CraftJob.Status.DONE, job.getStatus());
+		assertHolds(server, Map.of(Items.TORCH, 8, Items.STICK, 6, Items.OAK_PLANKS, 0, Items.OAK_LOG, 1), "batch");
+	}
+
+	@Test
+	void uncraftableBatchIsNotQueued() {
+		SimulatedCraftServer server = new SimulatedCraftServer(LAN, SEED);
+		server.addRecipe(TORCH, new ItemStack(Items.TORCH, 4), Map.of(Items.COAL, 1, Items.STICK, 1));
+
+		AutoCraftExecutor.cancel();
+		assertNull(AutoCraftExecutor.executeBatch(server, List.of(new BatchPlanner.Target(Items.TORCH, 4))));
+		assertEquals(0, AutoCraftExecutor.getQueueDepth());
+	}
+
+	@Test
+	void lossyNetworksEndEveryJobAndDropItsOverlays() {
+		for (SimulatedCraftServer.NetworkProfile network : LOSSY) {
+			for (Scenario scenario : library()) {
+				SimulatedCraftServer server = server(scenario, network);
+				CraftJob job = queue(server, scenario);
+				runToEnd(server, job, scenario.name());
+
+				assertNotEquals(CraftJob.Status.CANCELLED, job.getStatus(), scenario.name() + " on " + network.name());
+			}
+		}
+	}
+
+	@Test
+	void deviationIsReplannedAgainstTheActualInventory() {
+		Scenario chests = scenario("chests");
+		SimulatedCraftServer server = server(chests, LAN);
+		CraftJob job = queue(server, chests);
+
+		// Planks picked up while the first batch is on its way make it land with more than predicted
+		while (job.sentCrafts == 0 && server.getTick() < MAX_TICKS) {
+			server.tick();
+		}
+		server.pickUp(Items.OAK_PLANKS, 3);
+		runToEnd(server, job, chests.name());
+
+		assertEquals(CraftJob.Status.DONE, job.getStatus());
+		assertTrue(job.replans > 0);
+		assertEquals(4, server.getServerInventory().getOrDefault(Items.CHEST, 0));
+	}
+
+	@Test
+	void slotTransferPlacesEveryStep() {
+		SimulatedCraftServer.NetworkProfile network = LAN;
+		String serverKey = "simulated " + network.name();
+		PlacementBackend.select(serverKey, PlacementBackend.Type.SLOT_TRANSFER);
+		try {
+			for (Scenario scenario : library()) {
+				SimulatedCraftServer server = server(scenario, network);
+				CraftJob job = queue(server, scenario);
+				runToEnd(server, job, scenario.name());
+
+				assertEquals(CraftJob.Status.DONE, job.getStatus(), scenario.name());
+				assertHolds(server, scenario.expected(), scenario.name());
+				assertEquals(0, server.getServerGridAndCursorCount(), scenario.name() + " left items in the grid or cursor");
+				assertEquals(server.getSentPackets(), server.getSentClicks(), scenario.name() + " sent craft requests");
+			}
+		} finally {
+			PlacementBackend.select(serverKey, PlacementBackend.Type.RECIPE_BOOK);
+		}
+	}
+}
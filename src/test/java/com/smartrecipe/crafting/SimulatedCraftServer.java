@@ -0,0 +1,801 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.SmartRecipeBookMod;
+import com.smartrecipe.recipe.BatchPlanner;
+import com.smartrecipe.recipe.CraftingPlan;
+import com.smartrecipe.recipe.InventoryCapacity;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.SlotActionType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A crafting table on a pretend server, for running the executor headless.
+ * The handler has the result slot (0), a 3x3 grid (1-9) and the 36 main
+ * inventory slots (10-45), laid out like the real one.
+ *
+ * Craft requests place sets the way the recipe book does: a different
+ * recipe's sets go back to the inventory first, then one set is added (a
+ * stack with craftAll). Slot clicks follow vanilla's rules for pickups,
+ * double-click gathering and quick-craft drags, and a shift-click on the
+ * result crafts set after set while the results fit in the inventory.
+ * Recipes are shapeless, one item per grid slot, in the order their inputs
+ * were given.
+ *
+ * Packets take a configurable number of ticks each way. A packet to the
+ * server may be lost (never applied) or rejected (not applied, but answered
+ * with a resync). Every change the server makes reaches the client as a
+ * snapshot of the handler and revision, which is handed to the executor as
+ * a slot update, except for clicks the client predicted right: it shows those
+ * as soon as it sends them, and the server does not answer them.
+ *
+ * Planning goes through a small planner over the server's recipes: held
+ * items first, then the first recipe registered for an item.
+ */
+public class SimulatedCraftServer implements CraftEnvironment {
+
+	private static final long NANOS_PER_TICK = 50_000_000L;
+	private static final int MAX_PLAN_DEPTH = 8;
+
+	static final int RESULT_SLOT = 0;
+	static final int GRID_START = 1;
+	static final int GRID_SLOTS = 9;
+	static final int INVENTORY_START = GRID_START + GRID_SLOTS;
+	static final int INVENTORY_SLOTS = 36;
+	private static final int SLOT_COUNT = INVENTORY_START + INVENTORY_SLOTS;
+
+	/**
+	 * Network conditions between the client and the simulated server
+	 * @param latencyTicks Ticks a packet takes each way
+	 * @param lossRate Chance a packet to the server is lost
+	 * @param rejectRate Chance the server refuses a packet it received and resyncs
+	 */
+	public record NetworkProfile(String name, int latencyTicks, double lossRate, double rejectRate) {}
+
+	/**
+	 * What one craft of a recipe takes and makes
+	 * @param layout Item each grid slot takes, from the first slot on
+	 */
+	private record Recipe(NetworkRecipeId id, Item result, int count, List<Item> layout, Map<Item, Integer> inputs) {}
+
+	/**
+	 * A packet on its way, applied once its tick comes
+	 */
+	private record Packet(long deliverTick, Runnable apply) {}
+
+	/**
+	 * The handler's slots and cursor at one point
+	 */
+	private static class Slots {
+		final Item[] items = new Item[SLOT_COUNT];
+		final int[] counts = new int[SLOT_COUNT];
+		Item cursorItem = null;
+		int cursorCount = 0;
+
+		void copyFrom(Slots other) {
+			System.arraycopy(other.items, 0, items, 0, SLOT_COUNT);
+			System.arraycopy(other.counts, 0, counts, 0, SLOT_COUNT);
+			cursorItem = other.cursorItem;
+			cursorCount = other.cursorCount;
+		}
+
+		boolean matches(Slots other) {
+			return Arrays.equals(items, other.items) && Arrays.equals(counts, other.counts)
+				&& cursorItem == other.cursorItem && cursorCount == other.cursorCount;
+		}
+
+		/**
+		 * Apply a click's predicted slots and cursor
+		 */
+		void apply(Map<Integer, ItemStack> changed, ItemStack cursor) {
+			changed.forEach((slot, stack) -> set(slot, stack.getItem(), stack.getCount()));
+			cursorItem = cursor.isEmpty() ? null : cursor.getItem();
+			cursorCount = cursor.getCount();
+		}
+
+		void set(int slot, Item item, int count) {
+			items[slot] = count > 0 ? item : null;
+			counts[slot] = count > 0 ? count : 0;
+		}
+
+		Map<Item, Integer> inventory() {
+			Map<Item, Integer> inventory = new HashMap<>();
+			for (int slot = INVENTORY_START; slot < SLOT_COUNT; slot++) {
+				if (items[slot] != null) {
+					inventory.merge(items[slot], counts[slot], Integer::sum);
+				}
+			}
+			return inventory;
+		}
+	}
+
+	private final NetworkProfile profile;
+	private final Random random;
+	private final Map<NetworkRecipeId, Recipe> recipes = new LinkedHashMap<>();
+	private final Map<Item, Recipe> producers = new HashMap<>();
+
+	// The server's state
+	private final Slots server = new Slots();
+	private int revision = 0;
+	private int dragType = -1; // Quick-craft drag in progress, -1 if none
+	private final List<Integer> dragSlots = new ArrayList<>();
+
+	// What the client last heard
+	private final Slots client = new Slots();
+	private int clientRevision = 0;
+
+	private final Map<Long, Map<Item, Integer>> overlays = new HashMap<>();
+	private long nextOverlayId = 1;
+
+	private final ArrayDeque<Packet> toServer = new ArrayDeque<>();
+	private final ArrayDeque<Packet> toClient = new ArrayDeque<>();
+	private long tick = 0;
+
+	// Packet counts
+	private int sentPackets = 0;
+	private int sentClicks = 0;
+	private int lostPackets = 0;
+	private int rejectedPackets = 0;
+	private int slotUpdates = 0;
+
+	public SimulatedCraftServer(NetworkProfile profile, long seed) {
+		this.profile = profile;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Put items into the inventory, on the server and in the client's view alike
+	 */
+	public void give(Item item, int count) {
+		int left = insert(item, count, false);
+		if (left > 0) {
+			throw new IllegalStateException("No room for " + left + "x " + item);
+		}
+		client.copyFrom(server);
+	}
+
+	/**
+	 * Leave sets of a known recipe in the grid, as the player does by placing
+	 * them and not crafting. The items are added, not taken from the inventory.
+	 */
+	public void fillGrid(NetworkRecipeId recipeId, int sets) {
+		Recipe recipe = recipes.get(recipeId);
+		for (int i = 0; i < recipe.layout().size(); i++) {
+			server.set(GRID_START + i, recipe.layout().get(i), sets);
+		}
+		client.copyFrom(server);
+	}
+
+	/**
+	 * The player picks up items while a job runs: they land in the server's
+	 * inventory and reach the client with the next sync
+	 */
+	public void pickUp(Item item, int count) {
+		insert(item, count, false);
+		sync();
+	}
+
+	/**
+	 * Learn a recipe
+	 * @param inputs Items one craft takes, in grid order
+	 */
+	public void addRecipe(NetworkRecipeId recipeId, ItemStack result, Map<Item, Integer> inputs) {
+		List<Item> layout = new ArrayList<>();
+		inputs.forEach((item, count) -> {
+			for (int i = 0; i < count; i++) {
+				layout.add(item);
+			}
+		});
+		if (layout.isEmpty() || layout.size() > GRID_SLOTS) {
+			throw new IllegalArgumentException("Recipe " + recipeId + " does not fit the grid");
+		}
+
+		Recipe recipe = new Recipe(recipeId, result.getItem(), result.getCount(), List.copyOf(layout), Map.copyOf(inputs));
+		recipes.put(recipeId, recipe);
+		producers.putIfAbsent(recipe.result(), recipe);
+	}
+
+	/**
+	 * Learn the recipes a plan's steps use (inputs per craft rounded up, as the executor counts them)
+	 */
+	public void register(CraftingPlan plan) {
+		for (CraftingPlan.CraftingStep step : plan.getSteps()) {
+			if (step.getResult().isEmpty() || recipes.containsKey(step.getRecipeId())) continue;
+
+			int crafts = Math.max(1, step.getQuantity());
+			Map<Item, Integer> inputs = new LinkedHashMap<>();
+			for (Map.Entry<Item, Integer> input : step.getInputs().entrySet()) {
+				inputs.put(input.getKey(), (input.getValue() + crafts - 1) / crafts);
+			}
+			addRecipe(step.getRecipeId(), step.getResult(), inputs);
+		}
+	}
+
+	/**
+	 * Advance one tick: deliver the packets that are due, then tick the executor
+	 */
+	public void tick() {
+		tick++;
+		deliver(toServer);
+		deliver(toClient);
+		AutoCraftExecutor.onClientTick(null);
+	}
+
+	private void deliver(ArrayDeque<Packet> packets) {
+		while (!packets.isEmpty() && packets.peekFirst().deliverTick() <= tick) {
+			packets.removeFirst().apply().run();
+		}
+	}
+
+	/**
+	 * Send a packet to the server, unless it is lost on the way
+	 */
+	private void toServer(Runnable apply) {
+		sentPackets++;
+		if (random.nextDouble() < profile.lossRate()) {
+			lostPackets++;
+			return;
+		}
+		toServer.addLast(new Packet(tick + profile.latencyTicks(), () -> {
+			if (random.nextDouble() < profile.rejectRate()) {
+				rejectedPackets++;
+				sync();
+				return;
+			}
+			apply.run();
+		}));
+	}
+
+	/**
+	 * Bump the revision and send the client a snapshot of the server's state
+	 */
+	private void sync() {
+		revision++;
+		Slots snapshot = new Slots();
+		snapshot.copyFrom(server);
+		int snapshotRevision = revision;
+		toClient.addLast(new Packet(tick + profile.latencyTicks(), () -> {
+			client.copyFrom(snapshot);
+			clientRevision = snapshotRevision;
+			slotUpdates++;
+			AutoCraftExecutor.onSlotUpdate();
+		}));
+	}
+
+	// Server side
+
+	private void applyCraftRequest(NetworkRecipeId recipeId, boolean craftAll) {
+		Recipe recipe = recipes.get(recipeId);
+		if (recipe == null) {
+			SmartRecipeBookMod.LOGGER.warn("Simulated server does not know recipe {}", recipeId);
+			rejectedPackets++;
+			sync();
+			return;
+		}
+
+		// Anything else in the grid goes back to the inventory first
+		if (gridRecipe(server) != recipe) {
+			clearGrid();
+		}
+
+		int room = Integer.MAX_VALUE;
+		for (int i = 0; i < recipe.layout().size(); i++) {
+			room = Math.min(room, recipe.layout().get(i).getMaxCount() - server.counts[GRID_START + i]);
+		}
+		int affordable = Integer.MAX_VALUE;
+		Map<Item, Integer> inventory = server.inventory();
+		for (Map.Entry<Item, Integer> input : recipe.inputs().entrySet()) {
+			affordable = Math.min(affordable, inventory.getOrDefault(input.getKey(), 0) / input.getValue());
+		}
+
+		int sets = Math.min(craftAll ? room : 1, affordable);
+		for (int i = 0; i < recipe.layout().size() && sets > 0; i++) {
+			Item item = recipe.layout().get(i);
+			take(item, sets);
+			server.set(GRID_START + i, item, server.counts[GRID_START + i] + sets);
+		}
+		sync();
+	}
+
+	private void applyClick(int slot, int button, SlotActionType action) {
+		if (!click(slot, button, action)) {
+			rejectedPackets++;
+		}
+		sync();
+	}
+
+	/**
+	 * A click the client predicted: only answered if the prediction was wrong
+	 */
+	private void applyPredictedClick(int slot, int button, SlotActionType action, Map<Integer, ItemStack> changed,
+									 ItemStack cursor) {
+		Slots expected = new Slots();
+		expected.copyFrom(server);
+		expected.apply(changed, cursor);
+
+		boolean applied = click(slot, button, action);
+		if (!applied) {
+			rejectedPackets++;
+		}
+		if (!applied || !server.matches(expected)) {
+			sync();
+		}
+	}
+
+	private boolean click(int slot, int button, SlotActionType action) {
+		return switch (action) {
+			case QUICK_MOVE -> slot == RESULT_SLOT && craftAll();
+			case PICKUP -> pickup(slot, button);
+			case PICKUP_ALL -> pickupAll(slot, button);
+			case QUICK_CRAFT -> quickCraft(slot, button);
+			default -> false;
+		};
+	}
+
+	/**
+	 * Shift-click on the result: craft while the grid holds a recipe and the result fits
+	 */
+	private boolean craftAll() {
+		Recipe recipe;
+		while ((recipe = gridRecipe(server)) != null && room(recipe.result()) >= recipe.count()) {
+			insert(recipe.result(), recipe.count(), true);
+			for (int slot = GRID_START; slot < INVENTORY_START; slot++) {
+				if (server.items[slot] != null) {
+					server.set(slot, server.items[slot], server.counts[slot] - 1);
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean pickup(int slot, int button) {
+		if (slot < GRID_START || slot >= SLOT_COUNT) return false;
+
+		Item item = server.items[slot];
+		int count = server.counts[slot];
+		if (server.cursorItem == null) {
+			if (item == null) return true;
+
+			// Left takes the stack, right takes half (rounded up)
+			int taken = button == 0 ? count : (count + 1) / 2;
+			server.cursorItem = item;
+			server.cursorCount = taken;
+			server.set(slot, item, count - taken);
+			return true;
+		}
+
+		Item held = server.cursorItem;
+		if (item == null || item == held) {
+			// Left puts down all that fits, right puts down one
+			int placed = Math.min(button == 0 ? server.cursorCount : 1, held.getMaxCount() - count);
+			server.set(slot, held, count + placed);
+			takeFromCursor(placed);
+		} else {
+			// Swap
+			server.set(slot, held, server.cursorCount);
+			server.cursorItem = item;
+			server.cursorCount = count;
+		}
+		return true;
+	}
+
+	/**
+	 * Double-click on an empty slot: collect the cursor's item from every
+	 * slot but the result, non-full stacks first, up to a full stack
+	 */
+	private boolean pickupAll(int slot, int button) {
+		if (slot < GRID_START || slot >= SLOT_COUNT) return false;
+		if (server.cursorItem == null || server.items[slot] != null) return true;
+
+		Item held = server.cursorItem;
+		int max = held.getMaxCount();
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < SLOT_COUNT - GRID_START && server.cursorCount < max; i++) {
+				int from = button == 0 ? GRID_START + i : SLOT_COUNT - 1 - i;
+				if (server.items[from] != held || (pass == 0 && server.counts[from] >= max)) continue;
+
+				int taken = Math.min(max - server.cursorCount, server.counts[from]);
+				server.cursorCount += taken;
+				server.set(from, held, server.counts[from] - taken);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Quick-craft drag: start, add slots, then spread the cursor over them
+	 * (evenly for a left drag, one each for a right drag)
+	 */
+	private boolean quickCraft(int slot, int button) {
+		int stage = ScreenHandler.unpackQuickCraftStage(button);
+		if (stage == 0) {
+			boolean started = dragType < 0 && server.cursorItem != null;
+			dragType = started ? ScreenHandler.unpackQuickCraftButton(button) : -1;
+			dragSlots.clear();
+			return started;
+		}
+		if (dragType < 0) return false;
+
+		if (stage == 1) {
+			boolean accepts = slot >= GRID_START && slot < SLOT_COUNT
+				&& (server.items[slot] == null || server.items[slot] == server.cursorItem);
+			if (accepts && !dragSlots.contains(slot) && server.cursorCount > dragSlots.size()) {
+				dragSlots.add(slot);
+			}
+			return true;
+		}
+
+		int type = dragType;
+		dragType = -1;
+		if (dragSlots.isEmpty()) return true;
+		if (dragSlots.size() == 1) {
+			return pickup(dragSlots.get(0), type);
+		}
+
+		Item held = server.cursorItem;
+		int original = server.cursorCount;
+		if (original < dragSlots.size()) return true;
+
+		int per = type == 0 ? original / dragSlots.size() : 1;
+		for (int target : dragSlots) {
+			int existing = server.counts[target];
+			int placed = Math.min(per + existing, held.getMaxCount()) - existing;
+			server.set(target, held, existing + placed);
+			takeFromCursor(placed);
+		}
+		return true;
+	}
+
+	private void takeFromCursor(int count) {
+		server.cursorCount -= count;
+		if (server.cursorCount <= 0) {
+			server.cursorItem = null;
+			server.cursorCount = 0;
+		}
+	}
+
+	/**
+	 * Return whatever the grid holds to the inventory
+	 */
+	private void clearGrid() {
+		for (int slot = GRID_START; slot < INVENTORY_START; slot++) {
+			if (server.items[slot] == null) continue;
+
+			int left = insert(server.items[slot], server.counts[slot], false);
+			if (left > 0) {
+				SmartRecipeBookMod.LOGGER.warn("Simulated server dropped {}x {} clearing the grid", left, server.items[slot]);
+			}
+			server.set(slot, null, 0);
+		}
+	}
+
+	/**
+	 * Take items out of the inventory slots, first slot first
+	 */
+	private void take(Item item, int count) {
+		for (int slot = INVENTORY_START; slot < SLOT_COUNT && count > 0; slot++) {
+			if (server.items[slot] != item) continue;
+
+			int taken = Math.min(count, server.counts[slot]);
+			server.set(slot, item, server.counts[slot] - taken);
+			count -= taken;
+		}
+	}
+
+	/**
+	 * Insert items the way a shift-click does: onto matching stacks, then into empty slots
+	 * @param fromLast Fill from the last inventory slot back, as results are
+	 * @return Items that did not fit
+	 */
+	private int insert(Item item, int count, boolean fromLast) {
+		int max = item.getMaxCount();
+		for (int pass = 0; pass < 2 && count > 0; pass++) {
+			for (int i = 0; i < INVENTORY_SLOTS && count > 0; i++) {
+				int slot = fromLast ? SLOT_COUNT - 1 - i : INVENTORY_START + i;
+				boolean matches = pass == 0 ? server.items[slot] == item : server.items[slot] == null;
+				if (!matches) continue;
+
+				int placed = Math.min(count, max - server.counts[slot]);
+				server.set(slot, item, server.counts[slot] + placed);
+				count -= placed;
+			}
+		}
+		return count;
+	}
+
+	private int room(Item item) {
+		int room = 0;
+		for (int slot = INVENTORY_START; slot < SLOT_COUNT; slot++) {
+			if (server.items[slot] == null) {
+				room += item.getMaxCount();
+			} else if (server.items[slot] == item) {
+				room += item.getMaxCount() - server.counts[slot];
+			}
+		}
+		return room;
+	}
+
+	/**
+	 * Recipe whose arrangement the grid holds (what the result slot shows), or null
+	 */
+	private Recipe gridRecipe(Slots slots) {
+		List<Item> held = new ArrayList<>();
+		for (int slot = GRID_START; slot < INVENTORY_START; slot++) {
+			if (slots.items[slot] != null) {
+				held.add(slots.items[slot]);
+			}
+		}
+		if (held.isEmpty()) return null;
+
+		for (Recipe recipe : recipes.values()) {
+			List<Item> layout = new ArrayList<>(recipe.layout());
+			if (layout.size() != held.size()) continue;
+
+			List<Item> remaining = new ArrayList<>(held);
+			boolean matches = true;
+			for (Item item : layout) {
+				matches &= remaining.remove(item);
+			}
+			if (matches) return recipe;
+		}
+		return null;
+	}
+
+	// Planning
+
+	/**
+	 * Add the steps of crafting a recipe, inputs first, using held items before crafting more
+	 * @return false if an input cannot be obtained
+	 */
+	private boolean craft(Recipe recipe, int crafts, Map<Item, Integer> available, List<CraftingPlan.CraftingStep> steps, int depth) {
+		if (depth > MAX_PLAN_DEPTH) return false;
+
+		Map<Item, Integer> inputs = new LinkedHashMap<>();
+		for (Map.Entry<Item, Integer> input : recipe.inputs().entrySet()) {
+			int need = input.getValue() * crafts;
+			int missing = need - available.getOrDefault(input.getKey(), 0);
+			if (missing > 0) {
+				Recipe producer = producers.get(input.getKey());
+				if (producer == null) return false;
+				if (!craft(producer, (missing + producer.count() - 1) / producer.count(), available, steps, depth + 1)) return false;
+			}
+			available.merge(input.getKey(), -need, Integer::sum);
+			inputs.put(input.getKey(), need);
+		}
+
+		steps.add(new CraftingPlan.CraftingStep(recipe.id(), new ItemStack(recipe.result(), recipe.count()), crafts, inputs));
+		available.merge(recipe.result(), recipe.count() * crafts, Integer::sum);
+		return true;
+	}
+
+	// Reports
+
+	/**
+	 * Whether nothing is left on the wire
+	 */
+	public boolean isIdle() {
+		return toServer.isEmpty() && toClient.isEmpty();
+	}
+
+	public NetworkProfile getProfile() {
+		return profile;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public int getSentPackets() {
+		return sentPackets;
+	}
+
+	/**
+	 * Slot clicks among the sent packets (result shift-clicks included)
+	 */
+	public int getSentClicks() {
+		return sentClicks;
+	}
+
+	public int getLostPackets() {
+		return lostPackets;
+	}
+
+	public int getRejectedPackets() {
+		return rejectedPackets;
+	}
+
+	public int getSlotUpdates() {
+		return slotUpdates;
+	}
+
+	/**
+	 * Overlays the executor added and has not removed
+	 */
+	public int getOpenOverlays() {
+		return overlays.size();
+	}
+
+	/**
+	 * The client's inventory with the overlays of batches in flight applied
+	 */
+	public Map<Item, Integer> getPredictedInventory() {
+		Map<Item, Integer> predicted = client.inventory();
+		for (Map<Item, Integer> delta : overlays.values()) {
+			delta.forEach((item, count) -> predicted.merge(item, count, Integer::sum));
+		}
+		predicted.values().removeIf(count -> count <= 0);
+		return predicted;
+	}
+
+	/**
+	 * The server's inventory, including what is still on its way to the client
+	 */
+	public Map<Item, Integer> getServerInventory() {
+		return server.inventory();
+	}
+
+	/**
+	 * Items the server's grid and cursor hold
+	 */
+	public int getServerGridAndCursorCount() {
+		return Arrays.stream(server.counts, GRID_START, INVENTORY_START).sum() + server.cursorCount;
+	}
+
+	// The environment
+
+	@Override
+	public boolean isReady() {
+		return true;
+	}
+
+	@Override
+	public Map<Item, Integer> getInventory() {
+		return client.inventory();
+	}
+
+	@Override
+	public long addOverlay(Map<Item, Integer> delta) {
+		long id = nextOverlayId++;
+		overlays.put(id, new HashMap<>(delta));
+		return id;
+	}
+
+	@Override
+	public void removeOverlay(long overlay) {
+		overlays.remove(overlay);
+	}
+
+	@Override
+	public int getRevision() {
+		return clientRevision;
+	}
+
+	@Override
+	public String getServerKey() {
+		return "simulated " + profile.name();
+	}
+
+	@Override
+	public boolean isUnlocked(NetworkRecipeId recipeId) {
+		return true;
+	}
+
+	@Override
+	public int residentCrafts(CraftingPlan.CraftingStep step) {
+		Recipe recipe = gridRecipe(client);
+		if (recipe == null || !recipe.id().equals(step.getRecipeId())) return 0;
+
+		int sets = Integer.MAX_VALUE;
+		for (int slot = GRID_START; slot < INVENTORY_START; slot++) {
+			if (client.items[slot] != null) {
+				sets = Math.min(sets, client.counts[slot]);
+			}
+		}
+		return sets;
+	}
+
+	@Override
+	public List<SlotTransferHelper.Click> planPlacement(CraftingPlan.CraftingStep step, int crafts) {
+		Recipe recipe = recipes.get(step.getRecipeId());
+		if (recipe == null || client.cursorItem != null) return null;
+
+		SlotTransferHelper.Model model = new SlotTransferHelper.Model();
+		for (int slot = GRID_START; slot < INVENTORY_START; slot++) {
+			model.addGridSlot(slot, client.items[slot], client.counts[slot]);
+		}
+		for (int slot = INVENTORY_START; slot < SLOT_COUNT; slot++) {
+			model.addInventorySlot(slot, client.items[slot], client.counts[slot]);
+		}
+
+		Map<Integer, List<Item>> layout = new LinkedHashMap<>();
+		for (int i = 0; i < recipe.layout().size(); i++) {
+			layout.put(i, List.of(recipe.layout().get(i)));
+		}
+		return SlotTransferHelper.planPlacement(model, layout, step, crafts);
+	}
+
+	@Override
+	public CraftingPlan planCrafts(NetworkRecipeId recipeId, int crafts, Map<Item, Integer> inventory) {
+		Recipe recipe = recipes.get(recipeId);
+		if (recipe == null) return null;
+
+		Map<Item, Integer> available = new HashMap<>(inventory != null ? inventory : getPredictedInventory());
+		List<CraftingPlan.CraftingStep> steps = new ArrayList<>();
+		boolean canCraft = craft(recipe, crafts, available, steps, 0);
+
+		CraftingPlan plan = new CraftingPlan(recipeId, new ItemStack(recipe.result(), recipe.count()));
+		steps.forEach(plan::addStep);
+		plan.setCanCraft(canCraft);
+		return plan;
+	}
+
+	@Override
+	public CraftingPlan planTargets(List<BatchPlanner.Target> targets, Map<Item, Integer> inventory) {
+		Map<Item, Integer> available = new HashMap<>(inventory != null ? inventory : getPredictedInventory());
+		List<CraftingPlan.CraftingStep> steps = new ArrayList<>();
+		CraftingPlan plan = null;
+		boolean canCraft = true;
+
+		for (BatchPlanner.Target target : targets) {
+			Recipe recipe = producers.get(target.item());
+			if (recipe == null) {
+				canCraft = false;
+				continue;
+			}
+
+			ItemStack wanted = new ItemStack(target.item(), target.quantity());
+			if (plan == null) {
+				plan = new CraftingPlan(recipe.id(), wanted);
+			} else {
+				plan.addTarget(wanted);
+			}
+			canCraft &= craft(recipe, (target.quantity() + recipe.count() - 1) / recipe.count(), available, steps, 0);
+		}
+		if (plan == null) return null;
+
+		steps.forEach(plan::addStep);
+		plan.setCanCraft(canCraft && !steps.isEmpty());
+		return plan;
+	}
+
+	@Override
+	public InventoryCapacity.Result simulateCapacity(List<CraftingPlan.CraftingStep> steps) {
+		return InventoryCapacity.simulate(client.inventory(), steps);
+	}
+
+	@Override
+	public void sendCraftRequest(NetworkRecipeId recipeId, boolean craftAll) {
+		toServer(() -> applyCraftRequest(recipeId, craftAll));
+	}
+
+	@Override
+	public int sendClick(int slot, int button, SlotActionType action) {
+		sentClicks++;
+		toServer(() -> applyClick(slot, button, action));
+		return clientRevision;
+	}
+
+	@Override
+	public int sendClick(int slot, int button, SlotActionType action, Map<Integer, ItemStack> changed, ItemStack cursor) {
+		sentClicks++;
+		client.apply(changed, cursor);
+		toServer(() -> applyPredictedClick(slot, button, action, changed, cursor));
+		return clientRevision;
+	}
+
+	@Override
+	public long nanoTime() {
+		return tick * NANOS_PER_TICK;
+	}
+}
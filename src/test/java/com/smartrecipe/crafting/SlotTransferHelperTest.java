@@ -0,0 +1,203 @@
+package com.smartrecipe.crafting;
+
+import com.smartrecipe.recipe.CraftingPlan;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+import net.minecraft.screen.slot.SlotActionType;
+import net.minecraft.text.Text;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotTransferHelperTest {
+
+	// A crafting table's grid (ids 1-9) and main inventory (ids 10-45)
+	private static final int GRID_START = 1;
+	private static final int INVENTORY_START = 10;
+
+	// Crafting table: planks in the top left 2x2
+	private static final Map<Integer, List<Item>> TABLE_LAYOUT = Map.of(
+		0, List.of(Items.OAK_PLANKS), 1, List.of(Items.OAK_PLANKS),
+		3, List.of(Items.OAK_PLANKS), 4, List.of(Items.OAK_PLANKS));
+
+	@BeforeAll
+	static void bootstrap() {
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+	}
+
+	private static SlotTransferHelper.Model model(Object... stacks) {
+		SlotTransferHelper.Model model = new SlotTransferHelper.Model();
+		for (int i = 0; i < 9; i++) {
+			model.addGridSlot(GRID_START + i, null, 0);
+		}
+		for (int i = 0; i < 36; i++) {
+			int at = i * 2;
+			model.addInventorySlot(INVENTORY_START + i, at < stacks.length ? (Item) stacks[at] : null,
+				at < stacks.length ? (Integer) stacks[at + 1] : 0);
+		}
+		return model;
+	}
+
+	private static CraftingPlan.CraftingStep tables(int crafts) {
+		return new CraftingPlan.CraftingStep(new NetworkRecipeId(1), new ItemStack(Items.CRAFTING_TABLE), crafts,
+			Map.of(Items.OAK_PLANKS, 4 * crafts));
+	}
+
+	private static long count(List<SlotTransferHelper.Click> clicks, SlotActionType action) {
+		return clicks.stream().filter(click -> click.action() == action).count();
+	}
+
+	private static void assertClick(int slot, int button, SlotActionType action, SlotTransferHelper.Click click) {
+		assertEquals(slot, click.slot());
+		assertEquals(button, click.button());
+		assertEquals(action, click.action());
+	}
+
+	@Test
+	void oneStackIsSpreadWithASingleDrag() {
+		List<SlotTransferHelper.Click> clicks = SlotTransferHelper.planPlacement(model(Items.OAK_PLANKS, 64),
+			TABLE_LAYOUT, tables(16), 16);
+
+		// Pick up, then start, four slots and end of one even drag
+		assertNotNull(clicks);
+		assertClick(INVENTORY_START, 0, SlotActionType.PICKUP, clicks.get(0));
+		assertEquals(7, clicks.size());
+		assertEquals(6, count(clicks, SlotActionType.QUICK_CRAFT));
+	}
+
+	@Test
+	void splitStacksAreGatheredWithADoubleClick() {
+		List<SlotTransferHelper.Click> clicks = SlotTransferHelper.planPlacement(
+			model(Items.OAK_PLANKS, 20, Items.OAK_PLANKS, 20), TABLE_LAYOUT, tables(10), 10);
+
+		assertNotNull(clicks);
+		assertClick(INVENTORY_START, 0, SlotActionType.PICKUP_ALL, clicks.get(1));
+		assertEquals(8, clicks.size());
+	}
+
+	@Test
+	void noDoubleClickWhenTheOffhandHoldsTheItem() {
+		SlotTransferHelper.Model model = model(Items.OAK_PLANKS, 20, Items.OAK_PLANKS, 20);
+		model.addOtherItem(Items.OAK_PLANKS);
+
+		List<SlotTransferHelper.Click> clicks = SlotTransferHelper.planPlacement(model, TABLE_LAYOUT, tables(10), 10);
+
+		// Each stack is picked up and dragged on its own instead
+		assertNotNull(clicks);
+		assertEquals(0, count(clicks, SlotActionType.PICKUP_ALL));
+		assertClick(INVENTORY_START + 1, 0, SlotActionType.PICKUP, clicks.get(7));
+		assertEquals(14, clicks.size());
+	}
+
+	@Test
+	void leftoverCursorIsPutBack() {
+		SlotTransferHelper.Model model = new SlotTransferHelper.Model();
+		model.addGridSlot(GRID_START, null, 0);
+		model.addInventorySlot(INVENTORY_START, Items.OAK_PLANKS, 64);
+
+		CraftingPlan.CraftingStep buttons = new CraftingPlan.CraftingStep(new NetworkRecipeId(2),
+			new ItemStack(Items.OAK_BUTTON), 1, Map.of(Items.OAK_PLANKS, 1));
+		List<SlotTransferHelper.Click> clicks = SlotTransferHelper.planPlacement(model,
+			Map.of(0, List.of(Items.OAK_PLANKS)), buttons, 1);
+
+		assertNotNull(clicks);
+		assertEquals(3, clicks.size());
+		assertClick(INVENTORY_START, 0, SlotActionType.PICKUP, clicks.get(0));
+		assertClick(GRID_START, 1, SlotActionType.PICKUP, clicks.get(1));
+		assertClick(INVENTORY_START, 0, SlotActionType.PICKUP, clicks.get(2));
+		assertEquals(63, clicks.get(2).changed().get(INVENTORY_START).getCount());
+		assertTrue(clicks.get(2).cursor().isEmpty());
+	}
+
+	@Test
+	void clicksCarryTheirPredictedSlots() {
+		List<SlotTransferHelper.Click> clicks = SlotTransferHelper.planPlacement(model(Items.OAK_PLANKS, 64),
+			TABLE_LAYOUT, tables(16), 16);
+
+		assertNotNull(clicks);
+		SlotTransferHelper.Click pickup = clicks.get(0);
+		assertEquals(List.of(INVENTORY_START), List.copyOf(pickup.changed().keySet()));
+		assertTrue(pickup.changed().get(INVENTORY_START).isEmpty());
+		assertEquals(64, pickup.cursor().getCount());
+
+		// Starting the drag and adding slots change nothing; its end fills the grid
+		assertTrue(clicks.get(1).changed().isEmpty());
+		assertEquals(64, clicks.get(1).cursor().getCount());
+		SlotTransferHelper.Click end = clicks.get(clicks.size() - 1);
+		assertEquals(List.of(GRID_START, GRID_START + 1, GRID_START + 3, GRID_START + 4), List.copyOf(end.changed().keySet()));
+		for (ItemStack stack : end.changed().values()) {
+			assertTrue(stack.isOf(Items.OAK_PLANKS));
+			assertEquals(16, stack.getCount());
+		}
+		assertTrue(end.cursor().isEmpty());
+	}
+
+	@Test
+	void namedStacksAreNotMixedWithPlainOnes() {
+		ItemStack named = new ItemStack(Items.OAK_PLANKS, 32);
+		named.set(DataComponentTypes.CUSTOM_NAME, Text.literal("Spare"));
+		SlotTransferHelper.Model model = new SlotTransferHelper.Model();
+		for (int i = 0; i < 9; i++) {
+			model.addGridSlot(GRID_START + i, null, 0);
+		}
+		model.addInventorySlot(INVENTORY_START, named);
+		model.addInventorySlot(INVENTORY_START + 1, Items.OAK_PLANKS, 20);
+		model.addInventorySlot(INVENTORY_START + 2, Items.OAK_PLANKS, 20);
+
+		List<SlotTransferHelper.Click> clicks = SlotTransferHelper.planPlacement(model, TABLE_LAYOUT, tables(10), 10);
+
+		// The plain stacks are gathered and dragged; the named one is left alone
+		assertNotNull(clicks);
+		assertClick(INVENTORY_START + 1, 0, SlotActionType.PICKUP, clicks.get(0));
+		assertClick(INVENTORY_START + 1, 0, SlotActionType.PICKUP_ALL, clicks.get(1));
+		assertEquals(8, clicks.size());
+		for (SlotTransferHelper.Click click : clicks) {
+			assertNotEquals(INVENTORY_START, click.slot());
+			assertFalse(click.changed().containsKey(INVENTORY_START));
+		}
+		for (ItemStack stack : clicks.get(clicks.size() - 1).changed().values()) {
+			assertNull(stack.get(DataComponentTypes.CUSTOM_NAME));
+		}
+	}
+
+	@Test
+	void namedStackIsNotDraggedOntoAPlainOne() {
+		ItemStack named = new ItemStack(Items.OAK_PLANKS, 4);
+		named.set(DataComponentTypes.CUSTOM_NAME, Text.literal("Spare"));
+		SlotTransferHelper.Model model = new SlotTransferHelper.Model();
+		model.addGridSlot(GRID_START, Items.OAK_PLANKS, 1);
+		model.addInventorySlot(INVENTORY_START, named);
+
+		CraftingPlan.CraftingStep buttons = new CraftingPlan.CraftingStep(new NetworkRecipeId(2),
+			new ItemStack(Items.OAK_BUTTON), 1, Map.of(Items.OAK_PLANKS, 1));
+		assertNull(SlotTransferHelper.planPlacement(model, Map.of(0, List.of(Items.OAK_PLANKS)), buttons, 1));
+	}
+
+	@Test
+	void occupiedGridSlotOutsideTheArrangementFails() {
+		SlotTransferHelper.Model model = new SlotTransferHelper.Model();
+		for (int i = 0; i < 9; i++) {
+			model.addGridSlot(GRID_START + i, i == 8 ? Items.COBBLESTONE : null, i == 8 ? 1 : 0);
+		}
+		model.addInventorySlot(INVENTORY_START, Items.OAK_PLANKS, 64);
+
+		assertNull(SlotTransferHelper.planPlacement(model, TABLE_LAYOUT, tables(1), 1));
+	}
+
+	@Test
+	void notEnoughItemsFails() {
+		assertNull(SlotTransferHelper.planPlacement(model(Items.OAK_PLANKS, 7), TABLE_LAYOUT, tables(2), 2));
+	}
+}
@@ -0,0 +1,73 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillOfMaterialsTest {
+
+	private static RecipeGraph.RecipeNode planks;
+	private static RecipeGraph.RecipeNode chest;
+	private static RecipeGraph.RecipeNode ironBlock;
+	private static Map<NetworkRecipeId, BillOfMaterials> bills;
+
+	@BeforeAll
+	static void build() {
+		TestRecipes.bootstrap();
+
+		planks = TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG);
+		chest = TestRecipes.crafting(Items.CHEST, 1, Collections.nCopies(8, List.of(Items.OAK_PLANKS)));
+		ironBlock = TestRecipes.crafting(Items.IRON_BLOCK, 1, Collections.nCopies(9, List.of(Items.IRON_INGOT)));
+		RecipeGraph.RecipeNode ingot = TestRecipes.crafting(Items.IRON_INGOT, 1,
+			Collections.nCopies(9, List.of(Items.IRON_NUGGET)));
+		RecipeGraph.RecipeNode nuggets = TestRecipes.crafting(Items.IRON_NUGGET, 9, Items.IRON_INGOT);
+
+		bills = BillOfMaterials.buildAll(TestRecipes.graph(planks, chest, ironBlock, ingot, nuggets));
+	}
+
+	@Test
+	void materialsAreExpandedToRawItems() {
+		BillOfMaterials bill = bills.get(chest.getId());
+
+		assertEquals(Map.of(Items.OAK_LOG, 2), bill.getMaterials());
+		assertEquals(3, bill.getStepCount()); // Two planks crafts and the chest
+	}
+
+	@Test
+	void itemsOnlyCraftableFromThemselvesStayRaw() {
+		assertEquals(Map.of(Items.IRON_INGOT, 9), bills.get(ironBlock.getId()).getMaterials());
+	}
+
+	@Test
+	void heldIntermediatesAreUsedFirst() {
+		BillOfMaterials bill = bills.get(chest.getId());
+
+		assertEquals(Map.of(Items.OAK_LOG, 1), bill.getShortfall(Map.of(Items.OAK_PLANKS, 4), 1));
+		assertTrue(bill.isCoveredBy(Map.of(Items.OAK_PLANKS, 8), 1));
+		assertTrue(bill.isCoveredBy(Map.<Item, Integer>of(Items.OAK_PLANKS, 4, Items.OAK_LOG, 1), 1));
+	}
+
+	@Test
+	void shortfallScalesWithRuns() {
+		assertEquals(Map.of(Items.OAK_LOG, 6), bills.get(chest.getId()).getShortfall(Map.of(), 3));
+		assertEquals(Map.of(Items.OAK_LOG, 1), bills.get(planks.getId()).getShortfall(Map.of(), 1));
+	}
+
+	@Test
+	void maxCraftableIsTheLargestCoveredRunCount() {
+		BillOfMaterials bill = bills.get(chest.getId());
+
+		assertEquals(0, bill.getMaxCraftable(Map.of(Items.OAK_LOG, 1), 64));
+		assertEquals(2, bill.getMaxCraftable(Map.of(Items.OAK_LOG, 5), 64));
+		assertEquals(3, bill.getMaxCraftable(Map.of(Items.OAK_LOG, 64), 3));
+	}
+}
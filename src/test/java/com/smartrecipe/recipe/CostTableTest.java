@@ -0,0 +1,109 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Items;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostTableTest {
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	@Test
+	void heldItemsCostTheirRawCost() {
+		CostTable table = CostTable.build(TestRecipes.graph(), Set.of(Items.OAK_LOG));
+
+		assertEquals(CostModel.rawCost(Items.OAK_LOG), table.getCost(Items.OAK_LOG));
+		assertEquals(Double.POSITIVE_INFINITY, table.getCost(Items.DIAMOND));
+	}
+
+	@Test
+	void craftedItemsCostTheirRecipePerUnit() {
+		RecipeGraph.RecipeNode planks = TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG);
+		CostTable table = CostTable.build(TestRecipes.graph(planks), Set.of(Items.OAK_LOG));
+
+		double recipeCost = CostModel.stepCost(planks) + CostModel.rawCost(Items.OAK_LOG);
+		assertEquals(recipeCost, table.getRecipeCost(planks));
+		assertEquals(recipeCost / 4, table.getCost(Items.OAK_PLANKS));
+		assertSame(planks, table.getBestProducer(Items.OAK_PLANKS));
+	}
+
+	@Test
+	void recipesMissingAnInputAreUnreachable() {
+		RecipeGraph.RecipeNode planks = TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG);
+		RecipeGraph.RecipeNode sticks = TestRecipes.crafting(Items.STICK, 4, Items.OAK_PLANKS, Items.OAK_PLANKS);
+		CostTable table = CostTable.build(TestRecipes.graph(planks, sticks), Set.of(Items.COBBLESTONE));
+
+		assertEquals(Double.POSITIVE_INFINITY, table.getCost(Items.STICK));
+		assertEquals(Double.POSITIVE_INFINITY, table.getRecipeCost(sticks));
+		assertNull(table.getBestProducer(Items.STICK));
+	}
+
+	@Test
+	void cheapestProducerWins() {
+		RecipeGraph.RecipeNode fromPlanks = TestRecipes.crafting(Items.CHEST, 1, Items.OAK_PLANKS, Items.OAK_PLANKS,
+			Items.OAK_PLANKS, Items.OAK_PLANKS, Items.OAK_PLANKS, Items.OAK_PLANKS, Items.OAK_PLANKS, Items.OAK_PLANKS);
+		RecipeGraph.RecipeNode fromLogs = TestRecipes.crafting(Items.CHEST, 4, Items.OAK_LOG, Items.OAK_LOG,
+			Items.OAK_LOG, Items.OAK_LOG, Items.OAK_LOG, Items.OAK_LOG, Items.OAK_LOG, Items.OAK_LOG);
+		CostTable table = CostTable.build(TestRecipes.graph(fromPlanks, fromLogs), Set.of(Items.OAK_PLANKS, Items.OAK_LOG));
+
+		assertSame(fromLogs, table.getBestProducer(Items.CHEST));
+		assertTrue(table.getRecipeCost(fromPlanks) < Double.POSITIVE_INFINITY);
+	}
+
+	@Test
+	void itemsOnlyCraftableFromThemselvesStayUnreachable() {
+		RecipeGraph.RecipeNode ingot = TestRecipes.crafting(Items.IRON_INGOT, 1, Items.IRON_NUGGET, Items.IRON_NUGGET,
+			Items.IRON_NUGGET, Items.IRON_NUGGET, Items.IRON_NUGGET, Items.IRON_NUGGET, Items.IRON_NUGGET,
+			Items.IRON_NUGGET, Items.IRON_NUGGET);
+		RecipeGraph.RecipeNode nuggets = TestRecipes.crafting(Items.IRON_NUGGET, 9, Items.IRON_INGOT);
+		CostTable table = CostTable.build(TestRecipes.graph(ingot, nuggets), Set.of());
+
+		assertEquals(Double.POSITIVE_INFINITY, table.getCost(Items.IRON_INGOT));
+		assertEquals(Double.POSITIVE_INFINITY, table.getCost(Items.IRON_NUGGET));
+	}
+
+	@Test
+	void orderByCostDropsUnobtainableOptions() {
+		RecipeGraph.RecipeNode planks = TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG);
+		CostTable table = CostTable.build(TestRecipes.graph(planks), Set.of(Items.OAK_LOG));
+
+		assertEquals(List.of(Items.OAK_LOG, Items.OAK_PLANKS),
+			table.orderByCost(List.of(Items.DIAMOND, Items.OAK_PLANKS, Items.OAK_LOG)));
+	}
+
+	@Test
+	void sharedTableIsReusedUntilHeldItemsChange() {
+		RecipeGraph graph = TestRecipes.graph(TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG));
+
+		CostTable first = CostTable.get(graph, Set.of(Items.OAK_LOG));
+		assertSame(first, CostTable.get(graph, Set.of(Items.OAK_LOG)));
+
+		CostTable changed = CostTable.get(graph, Set.of(Items.OAK_LOG, Items.COBBLESTONE));
+		assertNotSame(first, changed);
+		assertSame(changed, CostTable.get(graph, Set.of(Items.OAK_LOG, Items.COBBLESTONE)));
+	}
+
+	@Test
+	void eachPartitionKeepsItsOwnTable() {
+		RecipeGraph graph = TestRecipes.graph(TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG),
+			TestRecipes.smelting(Items.CHARCOAL, Items.OAK_LOG));
+		RecipeGraph small = graph.getPartition(RecipeGraph.SMALL_GRID, false);
+
+		CostTable full = CostTable.get(graph, Set.of(Items.OAK_LOG));
+		CostTable partition = CostTable.get(small, Set.of(Items.OAK_LOG));
+
+		assertNotSame(full, partition);
+		assertSame(full, CostTable.get(graph, Set.of(Items.OAK_LOG)));
+		assertTrue(full.getCost(Items.CHARCOAL) < Double.POSITIVE_INFINITY);
+		assertEquals(Double.POSITIVE_INFINITY, partition.getCost(Items.CHARCOAL));
+	}
+}
@@ -0,0 +1,86 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CraftabilityTrackerTest {
+
+	private static final NetworkRecipeId STICKS = new NetworkRecipeId(1);
+	private static final NetworkRecipeId TORCHES = new NetworkRecipeId(2);
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	@BeforeEach
+	void clear() {
+		CraftabilityTracker.clear();
+	}
+
+	@Test
+	void failedSearchIsDirtiedByAnIngredientOfAnUnexpandedProducer() {
+		// Sticks failed looking only at planks; the planks producer (from logs) was never expanded
+		CraftabilityTracker.record(STICKS, false, Set.of(Items.OAK_PLANKS));
+
+		CraftabilityTracker.onCountChanged(Items.OAK_LOG, 0, 1);
+
+		assertTrue(CraftabilityTracker.isDirty(STICKS));
+	}
+
+	@Test
+	void failedSearchIsDirtiedByItsOwnDependencies() {
+		CraftabilityTracker.record(STICKS, false, Set.of(Items.OAK_PLANKS));
+
+		CraftabilityTracker.onCountChanged(Items.OAK_PLANKS, 1, 2);
+
+		assertTrue(CraftabilityTracker.isDirty(STICKS));
+	}
+
+	@Test
+	void craftableAnswerIgnoresItemsItDoesNotDependOn() {
+		CraftabilityTracker.record(STICKS, true, Set.of(Items.OAK_PLANKS));
+
+		CraftabilityTracker.onCountChanged(Items.OAK_LOG, 0, 1);
+		assertFalse(CraftabilityTracker.isDirty(STICKS));
+
+		CraftabilityTracker.onCountChanged(Items.OAK_PLANKS, 4, 2);
+		assertTrue(CraftabilityTracker.isDirty(STICKS));
+	}
+
+	@Test
+	void countChangesWithoutAPresenceFlipLeaveFailedAnswersAlone() {
+		CraftabilityTracker.record(STICKS, false, Set.of(Items.OAK_PLANKS));
+
+		CraftabilityTracker.onCountChanged(Items.OAK_LOG, 1, 2);
+
+		assertFalse(CraftabilityTracker.isDirty(STICKS));
+	}
+
+	@Test
+	void reachabilityPrunedAnswersDependOnPresence() {
+		CraftabilityTracker.record(TORCHES, false, null);
+
+		CraftabilityTracker.onCountChanged(Items.COAL, 3, 0);
+
+		assertTrue(CraftabilityTracker.isDirty(TORCHES));
+	}
+
+	@Test
+	void answerTurningCraftableStopsDependingOnPresence() {
+		CraftabilityTracker.record(STICKS, false, Set.of(Items.OAK_PLANKS));
+		CraftabilityTracker.record(STICKS, true, Set.of(Items.OAK_PLANKS));
+
+		CraftabilityTracker.onCountChanged(Items.OAK_LOG, 0, 1);
+
+		assertFalse(CraftabilityTracker.isDirty(STICKS));
+	}
+}
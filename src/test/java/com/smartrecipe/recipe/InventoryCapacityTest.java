@@ -0,0 +1,76 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryCapacityTest {
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	private static CraftingPlan.CraftingStep step(Item result, int count, int crafts, Item input, int perCraft) {
+		return new CraftingPlan.CraftingStep(new NetworkRecipeId(1), new ItemStack(result, count), crafts,
+			Map.of(input, perCraft * crafts));
+	}
+
+	@Test
+	void resultsTakeTheSlotsTheirStacksNeed() {
+		InventoryCapacity.Result result = InventoryCapacity.simulate(Map.of(Items.OAK_LOG, 64),
+			List.of(step(Items.OAK_PLANKS, 4, 64, Items.OAK_LOG, 1)));
+
+		// The logs' slot is freed, then 256 planks fill four
+		assertTrue(result.fits());
+		assertEquals(4, result.peakSlots());
+	}
+
+	@Test
+	void resultsTopUpStacksOfTheSameItem() {
+		InventoryCapacity.Result result = InventoryCapacity.simulate(Map.of(Items.OAK_PLANKS, 10, Items.OAK_LOG, 1),
+			List.of(step(Items.OAK_PLANKS, 4, 1, Items.OAK_LOG, 1)));
+
+		assertTrue(result.fits());
+		assertEquals(2, result.peakSlots());
+	}
+
+	@Test
+	void unstackableResultsTakeASlotEach() {
+		InventoryCapacity.Result result = InventoryCapacity.simulate(Map.of(Items.OAK_PLANKS, 64, Items.STICK, 64),
+			List.of(new CraftingPlan.CraftingStep(new NetworkRecipeId(2), new ItemStack(Items.WOODEN_SWORD), 3,
+				Map.of(Items.OAK_PLANKS, 6, Items.STICK, 3))));
+
+		assertTrue(result.fits());
+		assertEquals(5, result.peakSlots());
+	}
+
+	@Test
+	void firstStepThatDoesNotFitIsReported() {
+		// 35 of 36 slots taken; the planks fill the last one and the sticks find none
+		InventoryCapacity.Result result = InventoryCapacity.simulate(Map.of(Items.COBBLESTONE, 34 * 64, Items.OAK_LOG, 64),
+			List.of(step(Items.OAK_PLANKS, 4, 16, Items.OAK_LOG, 1), step(Items.STICK, 4, 16, Items.OAK_PLANKS, 2)));
+
+		assertFalse(result.fits());
+		assertEquals(1, result.overflowStep());
+	}
+
+	@Test
+	void slotsFreedByInputsAreReused() {
+		// A full inventory still fits a step that empties the slot of its input
+		InventoryCapacity.Result result = InventoryCapacity.simulate(Map.of(Items.COBBLESTONE, 35 * 64, Items.OAK_LOG, 16),
+			List.of(step(Items.OAK_PLANKS, 4, 16, Items.OAK_LOG, 1)));
+
+		assertTrue(result.fits());
+		assertEquals(36, result.peakSlots());
+	}
+}
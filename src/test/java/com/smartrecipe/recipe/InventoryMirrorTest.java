@@ -0,0 +1,166 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryMirrorTest {
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	@BeforeEach
+	void clear() {
+		InventoryMirror.clear();
+	}
+
+	private static int count(Item item) {
+		return InventoryMirror.getCounts(null).getOrDefault(item, 0);
+	}
+
+	@Test
+	void inputUpdateBeforeResultIsNotSubtractedTwice() {
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_PLANKS, 8));
+		long overlay = InventoryMirror.addOverlay(Map.of(Items.OAK_PLANKS, -4, Items.STICK, 4));
+		assertEquals(4, count(Items.OAK_PLANKS));
+		assertEquals(4, count(Items.STICK));
+
+		// The server took the planks, the sticks are still on their way
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_PLANKS, 4));
+		assertEquals(4, count(Items.OAK_PLANKS));
+		assertEquals(4, count(Items.STICK));
+
+		InventoryMirror.updateSlot(1, new ItemStack(Items.STICK, 4));
+		assertEquals(4, count(Items.OAK_PLANKS));
+		assertEquals(4, count(Items.STICK));
+
+		InventoryMirror.removeOverlay(overlay);
+		assertEquals(4, count(Items.OAK_PLANKS));
+		assertEquals(4, count(Items.STICK));
+		assertEquals(0, InventoryMirror.getOverlayCount());
+	}
+
+	@Test
+	void updatesAreAbsorbedByTheOldestOverlayFirst() {
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_PLANKS, 8));
+		long first = InventoryMirror.addOverlay(Map.of(Items.OAK_PLANKS, -4));
+		InventoryMirror.addOverlay(Map.of(Items.OAK_PLANKS, -4));
+		assertEquals(0, count(Items.OAK_PLANKS));
+
+		// First batch's inputs left; rolling it back must not bring them back
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_PLANKS, 4));
+		InventoryMirror.removeOverlay(first);
+		assertEquals(0, count(Items.OAK_PLANKS));
+	}
+
+	@Test
+	void changesAgainstTheExpectedDirectionAreNotAbsorbed() {
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_PLANKS, 8));
+		long overlay = InventoryMirror.addOverlay(Map.of(Items.OAK_PLANKS, -4));
+
+		// The player picked up more planks; the batch still has to take its share
+		InventoryMirror.updateSlot(1, new ItemStack(Items.OAK_PLANKS, 2));
+		assertEquals(6, count(Items.OAK_PLANKS));
+
+		InventoryMirror.removeOverlay(overlay);
+		assertEquals(10, count(Items.OAK_PLANKS));
+	}
+
+	@Test
+	void rolledBackOverlayRestoresWhatWasNotAbsorbed() {
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_PLANKS, 8));
+		long overlay = InventoryMirror.addOverlay(Map.of(Items.OAK_PLANKS, -4, Items.STICK, 4));
+
+		InventoryMirror.removeOverlay(overlay);
+		assertEquals(8, count(Items.OAK_PLANKS));
+		assertEquals(0, count(Items.STICK));
+		assertEquals(InventoryMirror.getConfirmedCounts(null), InventoryMirror.getCounts(null));
+	}
+
+	@Test
+	void hashIsUnchangedAfterAddingThenRemoving() {
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_LOG, 5));
+		long hash = InventoryMirror.getHash();
+		long presence = InventoryMirror.getPresenceHash();
+
+		InventoryMirror.updateSlot(3, new ItemStack(Items.STICK, 2));
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_LOG, 7));
+		assertNotEquals(hash, InventoryMirror.getHash());
+
+		InventoryMirror.updateSlot(3, ItemStack.EMPTY);
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_LOG, 5));
+		assertEquals(hash, InventoryMirror.getHash());
+		assertEquals(presence, InventoryMirror.getPresenceHash());
+	}
+
+	@Test
+	void presenceHashOnlyChangesWhenAnItemAppearsOrDisappears() {
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_LOG, 5));
+		long presence = InventoryMirror.getPresenceHash();
+
+		// More of a held item, or the same items in another slot
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_LOG, 9));
+		InventoryMirror.updateSlot(1, new ItemStack(Items.OAK_LOG, 1));
+		InventoryMirror.updateSlot(0, ItemStack.EMPTY);
+		assertEquals(presence, InventoryMirror.getPresenceHash());
+
+		InventoryMirror.updateSlot(2, new ItemStack(Items.STICK, 1));
+		long withSticks = InventoryMirror.getPresenceHash();
+		assertNotEquals(presence, withSticks);
+
+		InventoryMirror.updateSlot(2, new ItemStack(Items.STICK, 4));
+		assertEquals(withSticks, InventoryMirror.getPresenceHash());
+
+		InventoryMirror.updateSlot(2, ItemStack.EMPTY);
+		assertEquals(presence, InventoryMirror.getPresenceHash());
+	}
+
+	@Test
+	void slotDeltasMatchAFullRescan() {
+		ItemStack[] slots = new ItemStack[36];
+		Arrays.fill(slots, ItemStack.EMPTY);
+		slots[0] = new ItemStack(Items.OAK_LOG, 12);
+		slots[5] = new ItemStack(Items.COBBLESTONE, 64);
+		slots[9] = new ItemStack(Items.COBBLESTONE, 3);
+		for (int i = 0; i < slots.length; i++) {
+			InventoryMirror.updateSlot(i, slots[i]);
+		}
+
+		// Deltas: a stack shrinks, one moves, one is replaced, one empties
+		InventoryMirror.updateSlot(0, new ItemStack(Items.OAK_LOG, 4));
+		InventoryMirror.updateSlot(9, ItemStack.EMPTY);
+		InventoryMirror.updateSlot(20, new ItemStack(Items.COBBLESTONE, 3));
+		InventoryMirror.updateSlot(5, new ItemStack(Items.STICK, 8));
+		InventoryMirror.updateSlot(35, new ItemStack(Items.OAK_PLANKS, 16));
+		Map<Item, Integer> counts = Map.copyOf(InventoryMirror.getCounts(null));
+		long hash = InventoryMirror.getHash();
+		long presence = InventoryMirror.getPresenceHash();
+
+		// The same final slots, scanned into an empty mirror
+		InventoryMirror.clear();
+		slots[0] = new ItemStack(Items.OAK_LOG, 4);
+		slots[9] = ItemStack.EMPTY;
+		slots[20] = new ItemStack(Items.COBBLESTONE, 3);
+		slots[5] = new ItemStack(Items.STICK, 8);
+		slots[35] = new ItemStack(Items.OAK_PLANKS, 16);
+		for (int i = 0; i < slots.length; i++) {
+			InventoryMirror.updateSlot(i, slots[i]);
+		}
+
+		assertEquals(Map.of(Items.OAK_LOG, 4, Items.COBBLESTONE, 3, Items.STICK, 8, Items.OAK_PLANKS, 16), counts);
+		assertEquals(counts, InventoryMirror.getCounts(null));
+		assertEquals(hash, InventoryMirror.getHash());
+		assertEquals(presence, InventoryMirror.getPresenceHash());
+	}
+}
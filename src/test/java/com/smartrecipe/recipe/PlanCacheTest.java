@@ -0,0 +1,102 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanCacheTest {
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	@BeforeEach
+	void clear() {
+		PlanCache.clear();
+	}
+
+	private static PlanCache.Key key(int recipe) {
+		return new PlanCache.Key(new NetworkRecipeId(recipe), 1, RecipeGraph.LARGE_GRID, 0L, 0);
+	}
+
+	private static CraftingPlan plan(int recipe) {
+		return new CraftingPlan(new NetworkRecipeId(recipe), new ItemStack(Items.STICK, 4));
+	}
+
+	@Test
+	void cachedPlansAreFrozen() {
+		CraftingPlan plan = PlanCache.put(key(1), plan(1));
+
+		assertTrue(plan.isFrozen());
+		assertThrows(IllegalStateException.class, () -> plan.setCanCraft(false));
+		assertSame(plan, PlanCache.get(key(1)));
+	}
+
+	@Test
+	void unbatchedBaselineIsFixedOnceCached() {
+		CraftingPlan plan = plan(1);
+		plan.setUnbatchedStepCount(12);
+		PlanCache.put(key(1), plan);
+
+		assertEquals(12, plan.getUnbatchedStepCount());
+		assertThrows(IllegalStateException.class, () -> plan.setUnbatchedStepCount(3));
+	}
+
+	@Test
+	void keysDifferingInAnyFieldMiss() {
+		PlanCache.put(key(1), plan(1));
+		NetworkRecipeId recipe = new NetworkRecipeId(1);
+
+		assertNull(PlanCache.get(new PlanCache.Key(recipe, 2, RecipeGraph.LARGE_GRID, 0L, 0)));
+		assertNull(PlanCache.get(new PlanCache.Key(recipe, 1, RecipeGraph.SMALL_GRID, 0L, 0)));
+		assertNull(PlanCache.get(new PlanCache.Key(recipe, 1, RecipeGraph.LARGE_GRID, 1L, 0)));
+		assertNull(PlanCache.get(new PlanCache.Key(recipe, 1, RecipeGraph.LARGE_GRID, 0L, 1)));
+	}
+
+	@Test
+	void hitsAndMissesAreCounted() {
+		long hits = PlanCache.getHits();
+		long misses = PlanCache.getMisses();
+
+		PlanCache.get(key(1));
+		PlanCache.put(key(1), plan(1));
+		PlanCache.get(key(1));
+		PlanCache.get(key(1));
+
+		assertEquals(hits + 2, PlanCache.getHits());
+		assertEquals(misses + 1, PlanCache.getMisses());
+	}
+
+	@Test
+	void leastRecentlyUsedPlanIsEvicted() {
+		for (int i = 0; i < 256; i++) {
+			PlanCache.put(key(i), plan(i));
+		}
+		assertEquals(256, PlanCache.size());
+
+		// Touch the oldest so the second oldest is evicted instead
+		assertNotNull(PlanCache.get(key(0)));
+		PlanCache.put(key(256), plan(256));
+
+		assertEquals(256, PlanCache.size());
+		assertNotNull(PlanCache.get(key(0)));
+		assertNull(PlanCache.get(key(1)));
+		assertNotNull(PlanCache.get(key(256)));
+	}
+
+	@Test
+	void clearDropsEveryPlan() {
+		PlanCache.put(key(1), plan(1));
+		PlanCache.clear();
+
+		assertEquals(0, PlanCache.size());
+		assertNull(PlanCache.get(key(1)));
+	}
+}
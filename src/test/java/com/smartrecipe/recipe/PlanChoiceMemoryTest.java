@@ -0,0 +1,58 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Items;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanChoiceMemoryTest {
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	@BeforeEach
+	void clear() {
+		PlanChoiceMemory.clear();
+	}
+
+	@Test
+	void savedChoiceFindsTheRecipeUnderANewId() {
+		RecipeGraph.RecipeNode bambooSticks = TestRecipes.crafting(Items.STICK, 1, Items.BAMBOO, Items.BAMBOO);
+		RecipeGraph graph = TestRecipes.graph(TestRecipes.crafting(Items.STICK, 4, Items.OAK_PLANKS, Items.OAK_PLANKS),
+			bambooSticks);
+		PlanChoiceMemory.remember(Items.STICK, bambooSticks);
+		assertSame(bambooSticks, PlanChoiceMemory.get(Items.STICK, graph));
+
+		Map<String, List<String>> saved = PlanChoiceMemory.save();
+		assertEquals(Map.of("minecraft:stick", List.of("minecraft:bamboo", "minecraft:bamboo")), saved);
+
+		// Next session: the server hands out other ids
+		PlanChoiceMemory.load(saved);
+		RecipeGraph.RecipeNode sameRecipe = TestRecipes.crafting(Items.STICK, 1, Items.BAMBOO, Items.BAMBOO);
+		RecipeGraph next = TestRecipes.graph(TestRecipes.crafting(Items.STICK, 4, Items.OAK_PLANKS, Items.OAK_PLANKS),
+			sameRecipe);
+		assertSame(sameRecipe, PlanChoiceMemory.get(Items.STICK, next));
+	}
+
+	@Test
+	void choiceWithoutAMatchingRecipeIsIgnored() {
+		PlanChoiceMemory.load(Map.of(
+			"minecraft:stick", List.of("minecraft:diamond", "minecraft:diamond"),
+			"minecraft:ladder", List.of("nosuchmod:rung"),
+			"nosuchmod:thing", List.of("minecraft:stick")));
+
+		RecipeGraph graph = TestRecipes.graph(TestRecipes.crafting(Items.STICK, 4, Items.OAK_PLANKS, Items.OAK_PLANKS));
+		assertTrue(PlanChoiceMemory.has(Items.STICK));
+		assertNull(PlanChoiceMemory.get(Items.STICK, graph));
+		assertFalse(PlanChoiceMemory.has(Items.LADDER));
+		assertEquals(1, PlanChoiceMemory.save().size());
+	}
+}
@@ -0,0 +1,99 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanSearchTest {
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	@BeforeEach
+	void clear() {
+		PlanChoiceMemory.clear();
+	}
+
+	private static List<NetworkRecipeId> recipes(PlanSearch search) {
+		return search.getSteps().stream().map(CraftingPlan.CraftingStep::getRecipeId).toList();
+	}
+
+	@Test
+	void resumedSearchMatchesAnUnbudgetedOne() {
+		RecipeGraph.RecipeNode planks = TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG);
+		RecipeGraph.RecipeNode sticks = TestRecipes.crafting(Items.STICK, 4, Items.OAK_PLANKS, Items.OAK_PLANKS);
+		RecipeGraph.RecipeNode pickaxe = TestRecipes.crafting(Items.WOODEN_PICKAXE, 1, Items.OAK_PLANKS,
+			Items.OAK_PLANKS, Items.OAK_PLANKS, Items.STICK, Items.STICK);
+		RecipeGraph graph = TestRecipes.graph(planks, sticks, pickaxe);
+		Map<Item, Integer> start = Map.of(Items.OAK_LOG, 2);
+		CostTable costs = CostTable.build(graph, start.keySet());
+
+		PlanSearch whole = new PlanSearch(pickaxe, 1, new HashMap<>(start), graph, costs, Collections.emptyMap());
+		assertTrue(whole.runToCompletion());
+
+		Map<Item, Integer> inventory = new HashMap<>(start);
+		PlanSearch budgeted = new PlanSearch(pickaxe, 1, inventory, graph, costs, Collections.emptyMap());
+		int calls = 1;
+		while (!budgeted.run(1, PlanSearch.UNBOUNDED)) {
+			calls++;
+		}
+
+		assertTrue(calls > 1);
+		assertTrue(budgeted.isSuccess());
+		assertEquals(whole.getExpandedNodes(), budgeted.getExpandedNodes());
+		assertEquals(recipes(whole), recipes(budgeted));
+		assertEquals(List.of(planks.getId(), planks.getId(), sticks.getId(), pickaxe.getId()), recipes(budgeted));
+		assertEquals(whole.getCost(), budgeted.getCost());
+		assertEquals(whole.getChosenProducers(), budgeted.getChosenProducers());
+		assertEquals(Map.of(Items.OAK_LOG, 0, Items.OAK_PLANKS, 3, Items.STICK, 2, Items.WOODEN_PICKAXE, 1), inventory);
+	}
+
+	@Test
+	void exhaustedNodeBudgetMakesNoProgress() {
+		RecipeGraph.RecipeNode planks = TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG);
+		RecipeGraph graph = TestRecipes.graph(planks);
+		Map<Item, Integer> inventory = new HashMap<>(Map.of(Items.OAK_LOG, 1));
+		PlanSearch search = new PlanSearch(planks, 1, inventory, graph, CostTable.build(graph, inventory.keySet()),
+			Collections.emptyMap());
+
+		assertFalse(search.run(0, PlanSearch.UNBOUNDED));
+		assertEquals(0, search.getExpandedNodes());
+		assertTrue(search.getSteps().isEmpty());
+		assertTrue(search.runToCompletion());
+	}
+
+	@Test
+	void failedBranchIsRolledBack() {
+		// Sticks from planks and a diamond: the planks are crafted, then the diamond is missing
+		RecipeGraph.RecipeNode planks = TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG);
+		RecipeGraph.RecipeNode diamondSticks = TestRecipes.crafting(Items.STICK, 4, Items.OAK_PLANKS, Items.DIAMOND);
+		RecipeGraph.RecipeNode bambooSticks = TestRecipes.crafting(Items.STICK, 1, Items.BAMBOO, Items.BAMBOO);
+		RecipeGraph.RecipeNode ladder = TestRecipes.crafting(Items.LADDER, 1, Items.STICK);
+		RecipeGraph graph = TestRecipes.graph(planks, diamondSticks, bambooSticks, ladder);
+		Map<Item, Integer> inventory = new HashMap<>(Map.of(Items.OAK_LOG, 1, Items.BAMBOO, 2));
+		CostTable costs = CostTable.build(graph, inventory.keySet());
+
+		PlanSearch search = new PlanSearch(ladder, 1, inventory, graph, costs, Map.of(Items.STICK, diamondSticks));
+
+		assertTrue(search.runToCompletion());
+		assertEquals(List.of(bambooSticks.getId(), ladder.getId()), recipes(search));
+		assertEquals(Map.of(Items.STICK, bambooSticks), search.getChosenProducers());
+		assertEquals(1, inventory.get(Items.OAK_LOG));
+		assertEquals(0, inventory.getOrDefault(Items.OAK_PLANKS, 0));
+		assertEquals(CostModel.rawCost(Items.BAMBOO) * 2 + CostModel.stepCost(bambooSticks) + CostModel.stepCost(ladder),
+			search.getCost());
+	}
+}
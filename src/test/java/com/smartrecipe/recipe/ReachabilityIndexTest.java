@@ -0,0 +1,58 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.Items;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReachabilityIndexTest {
+
+	private static RecipeGraph graph;
+
+	@BeforeAll
+	static void build() {
+		TestRecipes.bootstrap();
+
+		graph = TestRecipes.graph(
+			TestRecipes.crafting(Items.OAK_PLANKS, 4, Items.OAK_LOG),
+			TestRecipes.crafting(Items.STICK, 4, Items.OAK_PLANKS, Items.OAK_PLANKS),
+			TestRecipes.crafting(Items.CHEST, 1, Collections.nCopies(8, List.of(Items.OAK_PLANKS))),
+			TestRecipes.crafting(Items.TORCH, 4, List.of(List.of(Items.COAL, Items.CHARCOAL), List.of(Items.STICK))),
+			TestRecipes.smelting(Items.CHARCOAL, Items.OAK_LOG));
+	}
+
+	@Test
+	void chainsOfRecipesAreFollowed() {
+		Set<Item> closure = ReachabilityIndex.computeClosure(graph.getPartition(RecipeGraph.LARGE_GRID, false),
+			Set.of(Items.OAK_LOG));
+
+		assertTrue(closure.containsAll(Set.of(Items.OAK_LOG, Items.OAK_PLANKS, Items.STICK, Items.CHEST)));
+		assertFalse(closure.contains(Items.TORCH));
+	}
+
+	@Test
+	void smallGridDoesNotReachLargeRecipes() {
+		Set<Item> closure = ReachabilityIndex.computeClosure(graph.getPartition(RecipeGraph.SMALL_GRID, false),
+			Set.of(Items.OAK_LOG));
+
+		assertTrue(closure.contains(Items.STICK));
+		assertFalse(closure.contains(Items.CHEST));
+	}
+
+	@Test
+	void onlySmeltingPartitionsReachSmeltedItems() {
+		Set<Item> held = Set.of(Items.OAK_LOG);
+
+		assertFalse(ReachabilityIndex.computeClosure(graph.getPartition(RecipeGraph.LARGE_GRID, false), held)
+			.contains(Items.TORCH));
+		assertTrue(ReachabilityIndex.computeClosure(graph.getPartition(RecipeGraph.LARGE_GRID, true), held)
+			.containsAll(Set.of(Items.CHARCOAL, Items.TORCH)));
+	}
+}
@@ -0,0 +1,87 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StepAggregatorTest {
+
+	private static final NetworkRecipeId PLANKS = new NetworkRecipeId(1);
+	private static final NetworkRecipeId STICKS = new NetworkRecipeId(2);
+	private static final NetworkRecipeId IRON = new NetworkRecipeId(3);
+
+	@BeforeAll
+	static void bootstrap() {
+		TestRecipes.bootstrap();
+	}
+
+	private static CraftingPlan.CraftingStep planks() {
+		return new CraftingPlan.CraftingStep(PLANKS, new ItemStack(Items.OAK_PLANKS, 4), 1, Map.of(Items.OAK_LOG, 1));
+	}
+
+	private static CraftingPlan.CraftingStep sticks() {
+		return new CraftingPlan.CraftingStep(STICKS, new ItemStack(Items.STICK, 4), 1, Map.of(Items.OAK_PLANKS, 2));
+	}
+
+	@Test
+	void interleavedCraftsAreMergedPerRecipe() {
+		List<CraftingPlan.CraftingStep> merged = StepAggregator.aggregate(
+			List.of(planks(), sticks(), planks(), sticks()), Map.of(Items.OAK_LOG, 2));
+
+		assertNotNull(merged);
+		assertEquals(2, merged.size());
+		assertEquals(PLANKS, merged.get(0).getRecipeId());
+		assertEquals(2, merged.get(0).getQuantity());
+		assertEquals(Map.of(Items.OAK_LOG, 2), merged.get(0).getInputs());
+		assertEquals(STICKS, merged.get(1).getRecipeId());
+		assertEquals(2, merged.get(1).getQuantity());
+		assertEquals(Map.of(Items.OAK_PLANKS, 4), merged.get(1).getInputs());
+	}
+
+	@Test
+	void producersRunBeforeConsumersSeenFirst() {
+		// Held planks covered the first stick craft, so it came before any planks craft
+		List<CraftingPlan.CraftingStep> merged = StepAggregator.aggregate(
+			List.of(sticks(), planks(), sticks()), Map.of(Items.OAK_PLANKS, 2, Items.OAK_LOG, 1));
+
+		assertNotNull(merged);
+		assertEquals(List.of(PLANKS, STICKS), merged.stream().map(CraftingPlan.CraftingStep::getRecipeId).toList());
+	}
+
+	@Test
+	void batchesRunningShortAreRejected() {
+		assertNull(StepAggregator.aggregate(List.of(planks(), sticks(), sticks(), sticks()), Map.of(Items.OAK_LOG, 1)));
+	}
+
+	@Test
+	void cyclicBatchesAreRejected() {
+		CraftingPlan.CraftingStep block = new CraftingPlan.CraftingStep(IRON, new ItemStack(Items.IRON_BLOCK), 1,
+			Map.of(Items.IRON_INGOT, 9));
+		CraftingPlan.CraftingStep ingots = new CraftingPlan.CraftingStep(new NetworkRecipeId(4),
+			new ItemStack(Items.IRON_INGOT, 9), 1, Map.of(Items.IRON_BLOCK, 1));
+
+		assertNull(StepAggregator.aggregate(List.of(block, ingots), Map.of(Items.IRON_INGOT, 9)));
+	}
+
+	@Test
+	void stationAndCookingTimeAreKept() {
+		CraftingPlan.CraftingStep smelt = new CraftingPlan.CraftingStep(IRON, new ItemStack(Items.IRON_INGOT), 1,
+			Map.of(Items.RAW_IRON, 1), Items.FURNACE, 200);
+
+		List<CraftingPlan.CraftingStep> merged = StepAggregator.aggregate(List.of(smelt, smelt, smelt), Map.of(Items.RAW_IRON, 3));
+
+		assertNotNull(merged);
+		assertEquals(1, merged.size());
+		assertEquals(3, merged.get(0).getQuantity());
+		assertEquals(Items.FURNACE, merged.get(0).getStation());
+		assertEquals(200, merged.get(0).getCookingTime());
+	}
+}
@@ -0,0 +1,55 @@
+package com.smartrecipe.recipe;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.NetworkRecipeId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recipe nodes and graphs built from plain items, for tests that need no world
+ */
+final class TestRecipes {
+
+	private static int nextId = 10_000;
+
+	private TestRecipes() {}
+
+	/**
+	 * Bootstrap the registries so items can be used without a client
+	 */
+	static void bootstrap() {
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+	}
+
+	/**
+	 * A crafting recipe with one single-option slot per ingredient
+	 */
+	static RecipeGraph.RecipeNode crafting(Item result, int count, Item... ingredients) {
+		List<List<Item>> slots = new ArrayList<>();
+		for (Item ingredient : ingredients) {
+			slots.add(List.of(ingredient));
+		}
+		return crafting(result, count, slots);
+	}
+
+	/**
+	 * A crafting recipe whose slots each accept any of their options
+	 */
+	static RecipeGraph.RecipeNode crafting(Item result, int count, List<List<Item>> slots) {
+		int grid = slots.size() <= RecipeGraph.SMALL_GRID * RecipeGraph.SMALL_GRID ? RecipeGraph.SMALL_GRID : RecipeGraph.LARGE_GRID;
+		return RecipeGraph.RecipeNode.crafting(new NetworkRecipeId(nextId++), new ItemStack(result, count), grid, slots);
+	}
+
+	static RecipeGraph.RecipeNode smelting(Item result, Item input) {
+		return RecipeGraph.RecipeNode.smelting(new NetworkRecipeId(nextId++), new ItemStack(result), input, 200);
+	}
+
+	static RecipeGraph graph(RecipeGraph.RecipeNode... nodes) {
+		return RecipeGraph.of(nextId++, List.of(nodes));
+	}
+}